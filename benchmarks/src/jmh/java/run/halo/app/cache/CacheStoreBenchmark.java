@@ -0,0 +1,86 @@
+package run.halo.app.cache;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Read and write throughput of a string cache store, with a preloaded key space.
+ *
+ * <p>The key of every invocation is drawn uniformly, so contended runs spread over the whole
+ * key space instead of hammering a single key.
+ *
+ * @author guqing
+ */
+@State(Scope.Benchmark)
+public abstract class CacheStoreBenchmark {
+
+    @Param("10000")
+    public int keyCount;
+
+    private String[] keys;
+
+    private AbstractStringCacheStore cacheStore;
+
+    /**
+     * Creates the store under benchmark.
+     *
+     * @return string cache store
+     */
+    protected abstract AbstractStringCacheStore createCacheStore() throws Exception;
+
+    /**
+     * Releases the store under benchmark.
+     *
+     * @param cacheStore string cache store
+     */
+    protected abstract void destroyCacheStore(AbstractStringCacheStore cacheStore)
+        throws Exception;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        cacheStore = createCacheStore();
+        keys = new String[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = "benchmark_key_" + i;
+            cacheStore.put(keys[i], "value_" + i);
+            cacheStore.putAny(keys[i] + "_any", Map.of("id", i, "name", "value_" + i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        destroyCacheStore(cacheStore);
+    }
+
+    @Benchmark
+    public void get(Blackhole blackhole) {
+        blackhole.consume(cacheStore.get(nextKey()));
+    }
+
+    @Benchmark
+    public void put() {
+        cacheStore.put(nextKey(), "value");
+    }
+
+    @Benchmark
+    public void getAny(Blackhole blackhole) {
+        blackhole.consume(cacheStore.getAny(nextKey() + "_any", Map.class));
+    }
+
+    @Benchmark
+    public void putAny() {
+        cacheStore.putAny(nextKey() + "_any", Map.of("id", 1, "name", "value"));
+    }
+
+    private String nextKey() {
+        return keys[ThreadLocalRandom.current().nextInt(keys.length)];
+    }
+}
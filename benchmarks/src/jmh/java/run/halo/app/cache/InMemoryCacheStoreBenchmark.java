@@ -0,0 +1,36 @@
+package run.halo.app.cache;
+
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * {@link InMemoryCacheStore} benchmarks.
+ *
+ * @author guqing
+ */
+public class InMemoryCacheStoreBenchmark {
+
+    public abstract static class AbstractInMemoryCacheStoreBenchmark extends CacheStoreBenchmark {
+
+        @Override
+        protected AbstractStringCacheStore createCacheStore() {
+            return new InMemoryCacheStore();
+        }
+
+        @Override
+        protected void destroyCacheStore(AbstractStringCacheStore cacheStore) {
+            ((InMemoryCacheStore) cacheStore).preDestroy();
+        }
+    }
+
+    @Threads(1)
+    public static class SingleThread extends AbstractInMemoryCacheStoreBenchmark {
+    }
+
+    @Threads(8)
+    public static class Contended8 extends AbstractInMemoryCacheStoreBenchmark {
+    }
+
+    @Threads(32)
+    public static class Contended32 extends AbstractInMemoryCacheStoreBenchmark {
+    }
+}
@@ -0,0 +1,53 @@
+package run.halo.app.cache;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.openjdk.jmh.annotations.Threads;
+import run.halo.app.config.properties.HaloProperties;
+import run.halo.app.utils.FileUtils;
+
+/**
+ * {@link LevelCacheStore} benchmarks against a level-db in a temporary work directory.
+ *
+ * <p>The level-db handle is static, so every benchmark must run in its own fork.
+ *
+ * @author guqing
+ */
+public class LevelCacheStoreBenchmark {
+
+    public abstract static class AbstractLevelCacheStoreBenchmark extends CacheStoreBenchmark {
+
+        private Path workDir;
+
+        @Override
+        protected AbstractStringCacheStore createCacheStore() throws Exception {
+            workDir = Files.createTempDirectory("halo-benchmark-");
+
+            HaloProperties haloProperties = new HaloProperties();
+            haloProperties.setWorkDir(workDir.toString() + File.separator);
+
+            LevelCacheStore cacheStore = new LevelCacheStore(haloProperties);
+            cacheStore.init();
+            return cacheStore;
+        }
+
+        @Override
+        protected void destroyCacheStore(AbstractStringCacheStore cacheStore) {
+            ((LevelCacheStore) cacheStore).preDestroy();
+            FileUtils.deleteFolderQuietly(workDir);
+        }
+    }
+
+    @Threads(1)
+    public static class SingleThread extends AbstractLevelCacheStoreBenchmark {
+    }
+
+    @Threads(8)
+    public static class Contended8 extends AbstractLevelCacheStoreBenchmark {
+    }
+
+    @Threads(32)
+    public static class Contended32 extends AbstractLevelCacheStoreBenchmark {
+    }
+}
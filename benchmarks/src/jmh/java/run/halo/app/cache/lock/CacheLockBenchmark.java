@@ -0,0 +1,78 @@
+package run.halo.app.cache.lock;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Cache lock key building and token bucket benchmarks of {@link CacheLockInterceptor}.
+ *
+ * @author guqing
+ */
+public class CacheLockBenchmark {
+
+    @State(Scope.Benchmark)
+    public abstract static class AbstractCacheLockBenchmark {
+
+        private CacheLockKeyBuilder constantKeyBuilder;
+
+        private CacheLockKeyBuilder paramKeyBuilder;
+
+        private TokenBucketTable tokenBuckets;
+
+        @Setup(Level.Trial)
+        public void setUp() throws NoSuchMethodException {
+            constantKeyBuilder =
+                CacheLockKeyBuilder.compile(LockedMethods.class.getMethod("constant"));
+            paramKeyBuilder = CacheLockKeyBuilder.compile(
+                LockedMethods.class.getMethod("param", Integer.class, String.class));
+            tokenBuckets = new TokenBucketTable();
+        }
+
+        @Benchmark
+        public String buildConstantKey() {
+            return constantKeyBuilder.build(new Object[0]);
+        }
+
+        @Benchmark
+        public String buildParamKey() {
+            return paramKeyBuilder
+                .build(new Object[] {ThreadLocalRandom.current().nextInt(1024), "slug"});
+        }
+
+        @Benchmark
+        public boolean acquireThrottled() {
+            // Always throttled after the first permit
+            return tokenBuckets.tryAcquire(constantKeyBuilder.build(new Object[0]),
+                constantKeyBuilder.getEmissionInterval(), constantKeyBuilder.getBurstTolerance());
+        }
+    }
+
+    @Threads(1)
+    public static class SingleThread extends AbstractCacheLockBenchmark {
+    }
+
+    @Threads(8)
+    public static class Contended8 extends AbstractCacheLockBenchmark {
+    }
+
+    @Threads(32)
+    public static class Contended32 extends AbstractCacheLockBenchmark {
+    }
+
+    public static class LockedMethods {
+
+        @CacheLock(prefix = "constant", autoDelete = false, expired = 1, timeUnit = TimeUnit.HOURS)
+        public void constant() {
+        }
+
+        @CacheLock(autoDelete = false)
+        public void param(@CacheParam Integer id, @CacheParam String slug) {
+        }
+    }
+}
@@ -1,8 +1,16 @@
 package run.halo.app.cache;
 
+import java.util.Collection;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.lang.NonNull;
 import org.springframework.lang.Nullable;
@@ -21,6 +29,17 @@ public abstract class AbstractCacheStore<K, V> implements CacheStore<K, V> {
 
     protected HaloProperties haloProperties;
 
+    /**
+     * Hit, miss and eviction counters of this store.
+     */
+    protected final CacheStats stats = new CacheStats();
+
+    /**
+     * Loads in flight, keyed by the cache key.
+     */
+    private final ConcurrentMap<K, CompletableFuture<Object>> loadingFutures =
+        new ConcurrentHashMap<>();
+
     /**
      * Get cache wrapper by key.
      *
@@ -48,11 +67,35 @@ public abstract class AbstractCacheStore<K, V> implements CacheStore<K, V> {
      */
     abstract Boolean putInternalIfAbsent(@NonNull K key, @NonNull CacheWrapper<V> cacheWrapper);
 
+    /**
+     * Puts the cache wrappers. Stores able to write in batches should override it, the default
+     * implementation puts them one by one.
+     *
+     * @param cacheWrappers cache wrappers keyed by the cache keys must not be null
+     */
+    void putAllInternal(@NonNull Map<K, CacheWrapper<V>> cacheWrappers) {
+        cacheWrappers.forEach(this::putInternal);
+    }
+
     @Override
     public Optional<V> get(K key) {
         Assert.notNull(key, "Cache key must not be blank");
 
-        return getInternal(key).map(cacheWrapper -> {
+        return unwrap(key, getInternal(key));
+    }
+
+    /**
+     * Unwraps the cache data, the key will be deleted if it has been expired.
+     *
+     * @param key key must not be null
+     * @param cacheWrapperOptional an optional cache wrapper got by the key
+     * @param <T> cache data type
+     * @return an optional cache data
+     */
+    @NonNull
+    <T> Optional<T> unwrap(@NonNull K key,
+        @NonNull Optional<CacheWrapper<T>> cacheWrapperOptional) {
+        Optional<T> value = cacheWrapperOptional.map(cacheWrapper -> {
             // Check expiration
             if (cacheWrapper.getExpireAt() != null
                 && cacheWrapper.getExpireAt().before(DateUtils.now())) {
@@ -68,6 +111,94 @@ public abstract class AbstractCacheStore<K, V> implements CacheStore<K, V> {
 
             return cacheWrapper.getData();
         });
+
+        if (value.isPresent()) {
+            stats.recordHit();
+        } else {
+            stats.recordMiss();
+        }
+        return value;
+    }
+
+    /**
+     * Gets the cache value, or loads and puts it if the key is absent. Concurrent loads of the
+     * same key are coalesced: only one caller runs the loader while the others wait for its
+     * result.
+     *
+     * @param key cache key must not be null
+     * @param loader value loader must not be null and must not return null
+     * @param timeout the key expiry time, if the expiry time is less than 1, the cache won't be
+     * expired
+     * @param timeUnit timeout unit
+     * @return cached or loaded value
+     */
+    @NonNull
+    public V getOrLoad(@NonNull K key, @NonNull Supplier<V> loader, long timeout,
+        @Nullable TimeUnit timeUnit) {
+        Assert.notNull(loader, "Cache loader must not be null");
+
+        return load(key, () -> get(key), () -> {
+            V value = loader.get();
+            putInternal(key, buildCacheWrapper(value, timeout, timeUnit));
+            return value;
+        });
+    }
+
+    /**
+     * Reads the cache, or runs the loader if the key is absent. If the key is being loaded by
+     * another caller, waits for that load instead of running the loader again.
+     *
+     * @param key key must not be null
+     * @param cacheReader reads the cached value
+     * @param loader loads the value and puts it into the cache
+     * @param <T> value type
+     * @return cached or loaded value, which is shared with the waiting callers
+     */
+    @SuppressWarnings("unchecked")
+    <T> T load(@NonNull K key, @NonNull Supplier<Optional<T>> cacheReader,
+        @NonNull Supplier<T> loader) {
+        Assert.notNull(key, "Cache key must not be blank");
+
+        Optional<T> cachedValue = cacheReader.get();
+        if (cachedValue.isPresent()) {
+            return cachedValue.get();
+        }
+
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> loadingFuture = loadingFutures.putIfAbsent(key, future);
+        if (loadingFuture != null) {
+            log.debug("Waiting for the loading of cache key: [{}]", key);
+            try {
+                return (T) loadingFuture.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+
+        try {
+            // Another load may have finished between the miss and the registration
+            T value = cacheReader.get().orElseGet(loader);
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loadingFutures.remove(key, future);
+        }
+    }
+
+    /**
+     * Gets hit, miss and eviction counters of this store.
+     *
+     * @return cache stats
+     */
+    @NonNull
+    public CacheStats getStats() {
+        return stats;
     }
 
     @Override
@@ -80,11 +211,59 @@ public abstract class AbstractCacheStore<K, V> implements CacheStore<K, V> {
         putInternal(key, buildCacheWrapper(value, 0, null));
     }
 
+    @Override
+    public Map<K, V> multiGet(Collection<K> keys) {
+        Assert.notNull(keys, "Cache keys must not be null");
+
+        Map<K, V> values = new LinkedHashMap<>();
+        keys.forEach(key -> get(key).ifPresent(value -> values.put(key, value)));
+        return values;
+    }
+
+    @Override
+    public void putAll(Map<K, V> entries, long timeout, TimeUnit timeUnit) {
+        putAllInternal(buildCacheWrappers(entries, timeout, timeUnit));
+    }
+
+    @Override
+    public void putAll(Map<K, V> entries) {
+        putAllInternal(buildCacheWrappers(entries, 0, null));
+    }
+
+    @Override
+    public void deleteAll(Collection<K> keys) {
+        Assert.notNull(keys, "Cache keys must not be null");
+
+        keys.forEach(this::delete);
+    }
+
     @Override
     public Boolean putIfAbsent(K key, V value, long timeout, TimeUnit timeUnit) {
         return putInternalIfAbsent(key, buildCacheWrapper(value, timeout, timeUnit));
     }
 
+    /**
+     * Checks whether the cache wrapper has been expired.
+     *
+     * @param cacheWrapper cache wrapper must not be null
+     * @param now current time must not be null
+     * @return true if the cache wrapper has been expired
+     */
+    static boolean isExpired(@NonNull CacheWrapper<?> cacheWrapper, @NonNull Date now) {
+        return cacheWrapper.getExpireAt() != null && cacheWrapper.getExpireAt().before(now);
+    }
+
+    @NonNull
+    private Map<K, CacheWrapper<V>> buildCacheWrappers(@NonNull Map<K, V> entries, long timeout,
+        @Nullable TimeUnit timeUnit) {
+        Assert.notNull(entries, "Cache entries must not be null");
+
+        Map<K, CacheWrapper<V>> cacheWrappers = new LinkedHashMap<>();
+        entries.forEach(
+            (key, value) -> cacheWrappers.put(key, buildCacheWrapper(value, timeout, timeUnit)));
+        return cacheWrappers;
+    }
+
     /**
      * Builds cache wrapper.
      *
@@ -92,10 +271,11 @@ public abstract class AbstractCacheStore<K, V> implements CacheStore<K, V> {
      * @param timeout the key expiry time, if the expiry time is less than 1, the cache won't be
      * expired
      * @param timeUnit timeout unit must
+     * @param <T> cache data type
      * @return cache wrapper
      */
     @NonNull
-    private CacheWrapper<V> buildCacheWrapper(@NonNull V value, long timeout,
+    <T> CacheWrapper<T> buildCacheWrapper(@NonNull T value, long timeout,
         @Nullable TimeUnit timeUnit) {
         Assert.notNull(value, "Cache value must not be null");
         Assert.isTrue(timeout >= 0, "Cache expiration timeout must not be less than 1");
@@ -109,7 +289,7 @@ public abstract class AbstractCacheStore<K, V> implements CacheStore<K, V> {
         }
 
         // Build cache wrapper
-        CacheWrapper<V> cacheWrapper = new CacheWrapper<>();
+        CacheWrapper<T> cacheWrapper = new CacheWrapper<>();
         cacheWrapper.setCreateAt(now);
         cacheWrapper.setExpireAt(expireAt);
         cacheWrapper.setData(value);
@@ -2,10 +2,21 @@ package run.halo.app.cache;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import run.halo.app.exception.ServiceException;
 import run.halo.app.utils.JsonUtils;
@@ -13,6 +24,10 @@ import run.halo.app.utils.JsonUtils;
 /**
  * String cache store.
  *
+ * <p>Besides strings, the store holds the objects put by {@link #putAny}. A value which can be
+ * copied into an immutable form is held as an {@link ObjectValue}, so the stores able to hold
+ * objects skip the json round-trip on every read. Other values are held as json strings.
+ *
  * @author johnniang
  */
 @Slf4j
@@ -29,33 +44,317 @@ public abstract class AbstractStringCacheStore extends AbstractCacheStore<String
         return Optional.ofNullable(cacheWrapper);
     }
 
-    public <T> void putAny(String key, T value) {
-        try {
-            put(key, JsonUtils.objectToJson(value));
-        } catch (JsonProcessingException e) {
-            throw new ServiceException("Failed to convert " + value + " to json", e);
+    /**
+     * Gets the cache wrapper whose data is either an {@link ObjectValue} or a json string.
+     *
+     * @param key key must not be null
+     * @return an optional cache wrapper
+     */
+    @NonNull
+    Optional<CacheWrapper<Object>> getObjectInternal(@NonNull String key) {
+        return getInternal(key).map(AbstractStringCacheStore::toObjectCacheWrapper);
+    }
+
+    /**
+     * Puts the cache wrapper whose data is either an {@link ObjectValue} or a json string.
+     * Stores which are not able to hold objects convert the data to json by default.
+     *
+     * @param key key must not be null
+     * @param cacheWrapper cache wrapper must not be null
+     */
+    void putObjectInternal(@NonNull String key, @NonNull CacheWrapper<Object> cacheWrapper) {
+        putInternal(key, toStringCacheWrapper(cacheWrapper));
+    }
+
+    /**
+     * Atomically computes the cache wrapper of the key. Stores must guard the computation
+     * against concurrent writes of the same key.
+     *
+     * @param key key must not be null
+     * @param remappingFunction receives the current unexpired cache wrapper, or null if absent,
+     * and returns the new cache wrapper, or null to delete the key. Returning the current cache
+     * wrapper itself leaves the key untouched
+     * @return the cache wrapper after the computation, or null if absent
+     */
+    @Nullable
+    abstract CacheWrapper<Object> computeInternal(@NonNull String key,
+        @NonNull UnaryOperator<CacheWrapper<Object>> remappingFunction);
+
+    @Override
+    Boolean putInternalIfAbsent(@NonNull String key, @NonNull CacheWrapper<String> cacheWrapper) {
+        Assert.hasText(key, "Cache key must not be blank");
+        Assert.notNull(cacheWrapper, "Cache wrapper must not be null");
+
+        CacheWrapper<Object> newCacheWrapper = toObjectCacheWrapper(cacheWrapper);
+        CacheWrapper<Object> result =
+            computeInternal(key, current -> current == null ? newCacheWrapper : current);
+        if (result != newCacheWrapper) {
+            log.warn("Failed to put the cache, because the key: [{}] has been present already",
+                key);
+            return false;
         }
+        return true;
+    }
+
+    /**
+     * Atomically adds the delta to the number of the key. An absent key starts from 0 and expires
+     * after the timeout, a present key keeps its expiry time.
+     *
+     * @param key key must not be null
+     * @param delta delta
+     * @param timeout the key expiry time, if the expiry time is less than 1, the cache won't be
+     * expired
+     * @param timeUnit timeout unit
+     * @return number after the increment
+     * @throws ServiceException if the value of the key is not a number
+     */
+    public long incrementBy(@NonNull String key, long delta, long timeout,
+        @Nullable TimeUnit timeUnit) {
+        Assert.hasText(key, "Cache key must not be blank");
+
+        CacheWrapper<Object> result = computeInternal(key, current -> {
+            if (current == null) {
+                return buildCacheWrapper(new ObjectValue(delta), timeout, timeUnit);
+            }
+            long value = toLong(key, current.getData()) + delta;
+            return new CacheWrapper<>(new ObjectValue(value), current.getExpireAt(),
+                current.getCreateAt());
+        });
+        return toLong(key, Objects.requireNonNull(result).getData());
+    }
+
+    /**
+     * Atomically sets the value if the current value equals the expected one.
+     *
+     * @param key key must not be null
+     * @param expected expected value, null if the key is expected to be absent
+     * @param value new value must not be null
+     * @param timeout the key expiry time, if the expiry time is less than 1, the cache won't be
+     * expired
+     * @param timeUnit timeout unit
+     * @return true if the value is set, false if the current value is not the expected one
+     */
+    public boolean compareAndSet(@NonNull String key, @Nullable String expected,
+        @NonNull String value, long timeout, @Nullable TimeUnit timeUnit) {
+        CacheWrapper<Object> newCacheWrapper =
+            toObjectCacheWrapper(buildCacheWrapper(value, timeout, timeUnit));
+        return compareAndSetInternal(key, expected == null, newCacheWrapper,
+            data -> Objects.equals(toJson(data), expected));
+    }
+
+    /**
+     * Atomically sets the value put by {@link #putAny} if the current value equals the expected
+     * one.
+     *
+     * @param key key must not be null
+     * @param expected expected value, null if the key is expected to be absent
+     * @param value new value must not be null
+     * @param timeout the key expiry time, if the expiry time is less than 1, the cache won't be
+     * expired
+     * @param timeUnit timeout unit
+     * @param <T> value type
+     * @return true if the value is set, false if the current value is not the expected one
+     */
+    public <T> boolean compareAndSetAny(@NonNull String key, @Nullable T expected,
+        @NonNull T value, long timeout, @Nullable TimeUnit timeUnit) {
+        CacheWrapper<Object> newCacheWrapper =
+            buildCacheWrapper(toCacheValue(value), timeout, timeUnit);
+        return compareAndSetInternal(key, expected == null, newCacheWrapper,
+            data -> expected != null && expected.equals(convertTo(data, expected.getClass())));
+    }
+
+    public <T> void putAny(String key, T value) {
+        putObjectInternal(key, buildCacheWrapper(toCacheValue(value), 0, null));
     }
 
     public <T> void putAny(@NonNull String key, @NonNull T value, long timeout,
         @NonNull TimeUnit timeUnit) {
+        putObjectInternal(key, buildCacheWrapper(toCacheValue(value), timeout, timeUnit));
+    }
+
+    /**
+     * Gets the value put by {@link #putAny}. The returned value may be shared with other
+     * readers, so collections and maps are unmodifiable.
+     *
+     * @param key key must not be null
+     * @param type value type must not be null
+     * @param <T> value type
+     * @return an optional value
+     */
+    public <T> Optional<T> getAny(String key, Class<T> type) {
+        Assert.notNull(type, "Type must not be null");
+
+        return unwrap(key, getObjectInternal(key)).map(data -> convertTo(data, type));
+    }
+
+    /**
+     * Gets the values put by {@link #putAny}.
+     *
+     * @param keys keys must not be null
+     * @param type value type must not be null
+     * @param <T> value type
+     * @return values of the present keys, in the iteration order of the given keys
+     */
+    @NonNull
+    public <T> Map<String, T> multiGetAny(@NonNull Collection<String> keys,
+        @NonNull Class<T> type) {
+        Assert.notNull(keys, "Cache keys must not be null");
+
+        Map<String, T> values = new LinkedHashMap<>();
+        keys.forEach(key -> getAny(key, type).ifPresent(value -> values.put(key, value)));
+        return values;
+    }
+
+    /**
+     * Lists the unexpired keys starting with the prefix.
+     *
+     * @param prefix key prefix must not be null
+     * @return keys in ascending order
+     */
+    @NonNull
+    public abstract List<String> listKeysByPrefix(@NonNull String prefix);
+
+    /**
+     * Deletes the keys starting with the prefix.
+     *
+     * @param prefix key prefix must not be blank
+     */
+    public void deleteByPrefix(@NonNull String prefix) {
+        Assert.hasText(prefix, "Cache key prefix must not be blank");
+
+        deleteAll(listKeysByPrefix(prefix));
+    }
+
+    /**
+     * Gets the value put by {@link #putAny}, or loads and puts it if the key is absent.
+     * Concurrent loads of the same key are coalesced: only one caller runs the loader while the
+     * others wait for its result. Like {@link #getAny}, the returned value may be shared with
+     * other readers.
+     *
+     * @param key key must not be null
+     * @param type value type must not be null
+     * @param loader value loader must not be null and must not return null
+     * @param timeout the key expiry time, if the expiry time is less than 1, the cache won't be
+     * expired
+     * @param timeUnit timeout unit
+     * @param <T> value type
+     * @return cached or loaded value
+     */
+    public <T> T getAnyOrLoad(@NonNull String key, @NonNull Class<T> type,
+        @NonNull Supplier<? extends T> loader, long timeout, @Nullable TimeUnit timeUnit) {
+        Assert.notNull(type, "Type must not be null");
+        Assert.notNull(loader, "Cache loader must not be null");
+
+        return load(key, () -> getAny(key, type), () -> {
+            Object cacheValue = toCacheValue(loader.get());
+            putObjectInternal(key, buildCacheWrapper(cacheValue, timeout, timeUnit));
+            // Hand out the cached copy rather than the loaded value to every caller
+            return convertTo(cacheValue, type);
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    static CacheWrapper<Object> toObjectCacheWrapper(CacheWrapper<String> cacheWrapper) {
+        return (CacheWrapper<Object>) (CacheWrapper<?>) cacheWrapper;
+    }
+
+    @SuppressWarnings("unchecked")
+    static CacheWrapper<String> toStringCacheWrapper(CacheWrapper<Object> cacheWrapper) {
+        if (cacheWrapper.getData() instanceof String) {
+            return (CacheWrapper<String>) (CacheWrapper<?>) cacheWrapper;
+        }
+        return new CacheWrapper<>(toJson(cacheWrapper.getData()), cacheWrapper.getExpireAt(),
+            cacheWrapper.getCreateAt());
+    }
+
+    /**
+     * Converts the cache data into json, which is what the string tier holds.
+     *
+     * @param data an object value or a json string
+     * @return json string
+     */
+    static String toJson(Object data) {
+        if (data instanceof String) {
+            return (String) data;
+        }
+        Object value = data instanceof ObjectValue ? ((ObjectValue) data).getValue() : data;
         try {
-            put(key, JsonUtils.objectToJson(value), timeout, timeUnit);
+            return JsonUtils.objectToJson(value);
         } catch (JsonProcessingException e) {
             throw new ServiceException("Failed to convert " + value + " to json", e);
         }
     }
 
-    public <T> Optional<T> getAny(String key, Class<T> type) {
-        Assert.notNull(type, "Type must not be null");
+    private boolean compareAndSetInternal(String key, boolean expectedAbsent,
+        CacheWrapper<Object> newCacheWrapper, Predicate<Object> expectation) {
+        Assert.hasText(key, "Cache key must not be blank");
 
-        return get(key).map(value -> {
-            try {
-                return JsonUtils.jsonToObject(value, type);
-            } catch (IOException e) {
-                log.error("Failed to convert json to type: " + type.getName(), e);
-                return null;
+        CacheWrapper<Object> result = computeInternal(key, current -> {
+            if (current == null) {
+                return expectedAbsent ? newCacheWrapper : null;
             }
+            return !expectedAbsent && expectation.test(current.getData()) ? newCacheWrapper
+                : current;
         });
+        return result == newCacheWrapper;
+    }
+
+    /**
+     * Lists the keys starting with the prefix from a sorted key index.
+     *
+     * @param keyIndex sorted key index
+     * @param prefix key prefix
+     * @param live tests whether the key is unexpired
+     * @return keys in ascending order
+     */
+    static List<String> listKeysByPrefix(NavigableSet<String> keyIndex, String prefix,
+        Predicate<String> live) {
+        List<String> keys = new ArrayList<>();
+        for (String key : keyIndex.tailSet(prefix, true)) {
+            if (!key.startsWith(prefix)) {
+                break;
+            }
+            if (live.test(key)) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    private static Object toCacheValue(Object value) {
+        Assert.notNull(value, "Cache value must not be null");
+
+        Object immutableValue = CacheValues.immutableCopyOf(value);
+        return immutableValue != null ? new ObjectValue(immutableValue) : toJson(value);
+    }
+
+    private static long toLong(String key, Object data) {
+        Object value = data instanceof ObjectValue ? ((ObjectValue) data).getValue() : data;
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        try {
+            return Long.parseLong(String.valueOf(value));
+        } catch (NumberFormatException e) {
+            throw new ServiceException("Cache value of key: " + key + " is not a number", e);
+        }
+    }
+
+    private <T> T convertTo(Object data, Class<T> type) {
+        if (data instanceof ObjectValue) {
+            Object value = ((ObjectValue) data).getValue();
+            if (type.isInstance(value)) {
+                return type.cast(value);
+            }
+            // e.g. an integer value requested as long
+            data = toJson(value);
+        }
+
+        try {
+            return JsonUtils.jsonToObject((String) data, type);
+        } catch (IOException e) {
+            log.error("Failed to convert json to type: " + type.getName(), e);
+            return null;
+        }
     }
 }
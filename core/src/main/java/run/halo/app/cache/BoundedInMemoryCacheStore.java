@@ -0,0 +1,549 @@
+package run.halo.app.cache;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import run.halo.app.utils.DateUtils;
+
+/**
+ * Bounded in-memory cache store.
+ *
+ * <p>Unlike {@link InMemoryCacheStore}, this store limits both the number of entries and
+ * their estimated weight in bytes. Entries are evicted with a W-TinyLFU policy: new entries
+ * enter a small LRU admission window, and entries leaving the window are only admitted into
+ * the segmented LRU main space if the {@link FrequencySketch} estimates them to be more
+ * popular than the main space victim. Therefore a burst of one-time keys (e.g. a crawler
+ * requesting many tokens) cannot flush out the frequently used entries.
+ *
+ * @author guqing
+ */
+@Slf4j
+public class BoundedInMemoryCacheStore extends AbstractStringCacheStore {
+
+    /**
+     * Cleaner schedule period. (ms)
+     */
+    private static final long PERIOD = 1000;
+
+    /**
+     * Estimated memory overhead of an entry, including the node, the wrapper and the map
+     * entry. (bytes)
+     */
+    private static final long ENTRY_OVERHEAD = 160;
+
+    /**
+     * Percentage of the maximum size used by the admission window.
+     */
+    private static final int WINDOW_PERCENTAGE = 1;
+
+    /**
+     * Percentage of the main space used by the protected segment.
+     */
+    private static final int PROTECTED_PERCENTAGE = 80;
+
+    private final ConcurrentHashMap<String, Node> cacheContainer = new ConcurrentHashMap<>();
+
+    /**
+     * Sorted key index of the cache container, for prefix operations.
+     */
+    private final ConcurrentSkipListSet<String> keyIndex = new ConcurrentSkipListSet<>();
+
+    /**
+     * Guards the eviction policy: the access order deques, the sketch and the weights.
+     */
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final NodeDeque window = new NodeDeque();
+
+    private final NodeDeque probation = new NodeDeque();
+
+    private final NodeDeque protectedDeque = new NodeDeque();
+
+    private final FrequencySketch sketch;
+
+    private final TimerWheel<String> expiryWheel = new TimerWheel<>(System.currentTimeMillis());
+
+    private final long maximumSize;
+
+    private final long maximumWeight;
+
+    private final long windowMaximum;
+
+    private final long protectedMaximum;
+
+    private long totalWeight;
+
+    private final Timer timer;
+
+    /**
+     * Creates a bounded in-memory cache store.
+     *
+     * @param maximumSize maximum number of entries, must be greater than 0
+     * @param maximumWeight maximum estimated weight of all entries in bytes, must be greater
+     * than 0
+     */
+    public BoundedInMemoryCacheStore(long maximumSize, long maximumWeight) {
+        Assert.isTrue(maximumSize > 0, "Cache maximum size must be greater than 0");
+        Assert.isTrue(maximumWeight > 0, "Cache maximum weight must be greater than 0");
+
+        this.maximumSize = maximumSize;
+        this.maximumWeight = maximumWeight;
+        this.windowMaximum = Math.max(1, maximumSize * WINDOW_PERCENTAGE / 100);
+        this.protectedMaximum = (maximumSize - windowMaximum) * PROTECTED_PERCENTAGE / 100;
+        this.sketch = new FrequencySketch(maximumSize);
+
+        // Run a cache store cleaner
+        timer = new Timer();
+        timer.scheduleAtFixedRate(new CacheExpiryCleaner(), 0, PERIOD);
+    }
+
+    @Override
+    @NonNull
+    Optional<CacheWrapper<String>> getInternal(@NonNull String key) {
+        return getObjectInternal(key).map(AbstractStringCacheStore::toStringCacheWrapper);
+    }
+
+    @Override
+    @NonNull
+    Optional<CacheWrapper<Object>> getObjectInternal(@NonNull String key) {
+        Assert.hasText(key, "Cache key must not be blank");
+
+        Node node = cacheContainer.get(key);
+        if (node == null) {
+            return Optional.empty();
+        }
+
+        // Reads never wait for the policy, an access is dropped if the lock is busy
+        if (evictionLock.tryLock()) {
+            try {
+                onAccess(node);
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+        return Optional.of(node.cacheWrapper);
+    }
+
+    @Override
+    void putInternal(@NonNull String key, @NonNull CacheWrapper<String> cacheWrapper) {
+        putObjectInternal(key, toObjectCacheWrapper(cacheWrapper));
+    }
+
+    @Override
+    void putObjectInternal(@NonNull String key, @NonNull CacheWrapper<Object> cacheWrapper) {
+        Assert.hasText(key, "Cache key must not be blank");
+        Assert.notNull(cacheWrapper, "Cache wrapper must not be null");
+
+        evictionLock.lock();
+        try {
+            doPut(key, cacheWrapper);
+        } finally {
+            evictionLock.unlock();
+        }
+
+        log.debug("Put [{}] cache wrapper: [{}]", key, cacheWrapper);
+    }
+
+    @Override
+    @Nullable
+    CacheWrapper<Object> computeInternal(@NonNull String key,
+        @NonNull UnaryOperator<CacheWrapper<Object>> remappingFunction) {
+        Assert.hasText(key, "Cache key must not be blank");
+        Assert.notNull(remappingFunction, "Remapping function must not be null");
+
+        evictionLock.lock();
+        try {
+            Node node = cacheContainer.get(key);
+            CacheWrapper<Object> current =
+                node == null || isExpired(node.cacheWrapper, DateUtils.now()) ? null
+                    : node.cacheWrapper;
+            CacheWrapper<Object> cacheWrapper = remappingFunction.apply(current);
+            if (cacheWrapper == current) {
+                return current;
+            }
+            if (cacheWrapper == null) {
+                cacheContainer.remove(key);
+                unlink(node);
+                return null;
+            }
+            doPut(key, cacheWrapper);
+            return cacheWrapper;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    void putAllInternal(@NonNull Map<String, CacheWrapper<String>> cacheWrappers) {
+        evictionLock.lock();
+        try {
+            cacheWrappers.forEach((key, cacheWrapper) -> {
+                Assert.hasText(key, "Cache key must not be blank");
+                doPut(key, toObjectCacheWrapper(cacheWrapper));
+            });
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public void delete(@NonNull String key) {
+        Assert.hasText(key, "Cache key must not be blank");
+
+        evictionLock.lock();
+        try {
+            Node node = cacheContainer.remove(key);
+            if (node != null) {
+                unlink(node);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+        log.debug("Removed key: [{}]", key);
+    }
+
+    @Override
+    public void deleteAll(@NonNull Collection<String> keys) {
+        Assert.notNull(keys, "Cache keys must not be null");
+
+        evictionLock.lock();
+        try {
+            keys.forEach(key -> {
+                Node node = cacheContainer.remove(key);
+                if (node != null) {
+                    unlink(node);
+                }
+            });
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    @NonNull
+    public List<String> listKeysByPrefix(@NonNull String prefix) {
+        Assert.notNull(prefix, "Cache key prefix must not be null");
+
+        Date now = DateUtils.now();
+        return listKeysByPrefix(keyIndex, prefix, key -> {
+            Node node = cacheContainer.get(key);
+            return node != null && !isExpired(node.cacheWrapper, now);
+        });
+    }
+
+    /**
+     * Gets the current number of entries.
+     *
+     * @return number of entries
+     */
+    public long size() {
+        return cacheContainer.size();
+    }
+
+    /**
+     * Gets the current estimated weight of all entries.
+     *
+     * @return weight in bytes
+     */
+    public long weight() {
+        evictionLock.lock();
+        try {
+            return totalWeight;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void preDestroy() {
+        log.debug("Cancelling all timer tasks");
+        timer.cancel();
+
+        evictionLock.lock();
+        try {
+            cacheContainer.clear();
+            keyIndex.clear();
+            window.clear();
+            probation.clear();
+            protectedDeque.clear();
+            expiryWheel.clear();
+            totalWeight = 0;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void doPut(String key, CacheWrapper<Object> cacheWrapper) {
+        long weight = weigh(key, cacheWrapper);
+        Node node = cacheContainer.get(key);
+        if (weight > maximumWeight) {
+            // Never admit an entry which cannot fit, it would flush the whole store
+            if (node != null) {
+                cacheContainer.remove(key);
+                unlink(node);
+            }
+            stats.recordEviction();
+            log.warn("Cache key: [{}] with weight [{}] exceeds the maximum weight [{}]", key,
+                weight, maximumWeight);
+            return;
+        }
+        if (node != null) {
+            totalWeight += weight - node.weight;
+            node.cacheWrapper = cacheWrapper;
+            node.weight = weight;
+            onAccess(node);
+        } else {
+            node = new Node(key, cacheWrapper, weight);
+            cacheContainer.put(key, node);
+            keyIndex.add(key);
+            totalWeight += weight;
+            sketch.increment(key);
+            window.addLast(node);
+        }
+        if (cacheWrapper.getExpireAt() == null) {
+            expiryWheel.cancel(key);
+        } else {
+            expiryWheel.schedule(key, cacheWrapper.getExpireAt().getTime());
+        }
+        evictEntries();
+    }
+
+    private void onAccess(Node node) {
+        if (node.deque == null) {
+            // Removed concurrently
+            return;
+        }
+        sketch.increment(node.key);
+        if (node.deque == probation) {
+            // Promote to the protected segment and demote its LRU entry if it overflows
+            probation.remove(node);
+            protectedDeque.addLast(node);
+            while (protectedDeque.size > protectedMaximum && protectedDeque.first != null) {
+                Node demoted = protectedDeque.first;
+                protectedDeque.remove(demoted);
+                probation.addLast(demoted);
+            }
+        } else {
+            node.deque.moveToLast(node);
+        }
+    }
+
+    /**
+     * Moves the overflow of the admission window into the main space, then evicts entries
+     * until the store fits its bounds again. A window candidate competes against the LRU
+     * victim of the probation segment and the less frequent of both is evicted.
+     */
+    private void evictEntries() {
+        int candidates = 0;
+        while (window.size > windowMaximum && window.first != null) {
+            Node node = window.first;
+            window.remove(node);
+            probation.addLast(node);
+            candidates++;
+        }
+
+        Node candidate = candidates > 0 ? probation.last : null;
+        Node victim = probation.first;
+        while (isOverflow()) {
+            if (candidate == null || victim == null) {
+                // No admission decision left, evict the LRU entry of the main space
+                Node evicted = firstOf(probation, protectedDeque, window);
+                if (evicted == null) {
+                    break;
+                }
+                if (evicted == candidate) {
+                    candidate = --candidates > 0 ? candidate.prev : null;
+                }
+                if (evicted == victim) {
+                    victim = victim.next;
+                }
+                evict(evicted);
+                continue;
+            }
+
+            if (victim == candidate) {
+                // Only one entry left to compare, nothing in the main space to protect
+                candidate = --candidates > 0 ? candidate.prev : null;
+                Node evicted = victim;
+                victim = victim.next;
+                evict(evicted);
+                continue;
+            }
+
+            if (admit(candidate.key, victim.key)) {
+                Node evicted = victim;
+                victim = victim.next;
+                evict(evicted);
+            } else {
+                Node evicted = candidate;
+                candidate = --candidates > 0 ? candidate.prev : null;
+                evict(evicted);
+            }
+        }
+    }
+
+    private boolean isOverflow() {
+        return cacheContainer.size() > maximumSize || totalWeight > maximumWeight;
+    }
+
+    private boolean admit(String candidateKey, String victimKey) {
+        int candidateFrequency = sketch.frequency(candidateKey);
+        int victimFrequency = sketch.frequency(victimKey);
+        if (candidateFrequency > victimFrequency) {
+            return true;
+        }
+        if (candidateFrequency <= 5) {
+            return false;
+        }
+        // Admit a warm candidate occasionally to defend against hash flooding
+        return (ThreadLocalRandom.current().nextInt() & 127) == 0;
+    }
+
+    private void evict(Node node) {
+        cacheContainer.remove(node.key, node);
+        unlink(node);
+        stats.recordEviction();
+        log.debug("Evicted the cache: [{}]", node.key);
+    }
+
+    private void unlink(Node node) {
+        if (node.deque != null) {
+            node.deque.remove(node);
+            keyIndex.remove(node.key);
+            totalWeight -= node.weight;
+            expiryWheel.cancel(node.key);
+        }
+    }
+
+    @Nullable
+    private static Node firstOf(NodeDeque... deques) {
+        for (NodeDeque deque : deques) {
+            if (deque.first != null) {
+                return deque.first;
+            }
+        }
+        return null;
+    }
+
+    private static long weigh(String key, CacheWrapper<Object> cacheWrapper) {
+        return ENTRY_OVERHEAD + 2L * key.length() + CacheValues.weigh(cacheWrapper.getData());
+    }
+
+    /**
+     * Cache entry linked into one of the access order deques.
+     */
+    private static final class Node {
+
+        private final String key;
+
+        private volatile CacheWrapper<Object> cacheWrapper;
+
+        private long weight;
+
+        private NodeDeque deque;
+
+        private Node prev;
+
+        private Node next;
+
+        private Node(String key, CacheWrapper<Object> cacheWrapper, long weight) {
+            this.key = key;
+            this.cacheWrapper = cacheWrapper;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Intrusive doubly-linked deque in access order, the first node is the LRU one.
+     */
+    private static final class NodeDeque {
+
+        private Node first;
+
+        private Node last;
+
+        private long size;
+
+        private void addLast(Node node) {
+            node.deque = this;
+            node.prev = last;
+            node.next = null;
+            if (last == null) {
+                first = node;
+            } else {
+                last.next = node;
+            }
+            last = node;
+            size++;
+        }
+
+        private void remove(Node node) {
+            if (node.prev == null) {
+                first = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                last = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            node.deque = null;
+            size--;
+        }
+
+        private void moveToLast(Node node) {
+            if (node != last) {
+                remove(node);
+                addLast(node);
+            }
+        }
+
+        private void clear() {
+            first = null;
+            last = null;
+            size = 0;
+        }
+    }
+
+    /**
+     * Cache cleaner, only visits the keys which are due according to the expiry index.
+     */
+    private class CacheExpiryCleaner extends TimerTask {
+
+        @Override
+        public void run() {
+            Date now = DateUtils.now();
+            expiryWheel.advance(now.getTime()).forEach(key -> {
+                evictionLock.lock();
+                try {
+                    // The key may have been put again after it was indexed
+                    Node node = cacheContainer.get(key);
+                    if (node != null && isExpired(node.cacheWrapper, now)) {
+                        cacheContainer.remove(key);
+                        unlink(node);
+                        log.debug("Deleted the cache: [{}] for expiration", key);
+                    }
+                } finally {
+                    evictionLock.unlock();
+                }
+            });
+        }
+    }
+}
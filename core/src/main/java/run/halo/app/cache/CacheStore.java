@@ -1,5 +1,7 @@
 package run.halo.app.cache;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import org.springframework.lang.NonNull;
@@ -42,6 +44,31 @@ public interface CacheStore<K, V> {
      */
     void put(@NonNull K key, @NonNull V value);
 
+    /**
+     * Gets by cache keys.
+     *
+     * @param keys cache keys must not be null
+     * @return values of the present keys, in the iteration order of the given keys
+     */
+    @NonNull
+    Map<K, V> multiGet(@NonNull Collection<K> keys);
+
+    /**
+     * Puts caches which will be expired, in a single batch if the store supports it.
+     *
+     * @param entries cache keys and values must not be null
+     * @param timeout the key expiration must not be less than 1
+     * @param timeUnit timeout unit must not be null
+     */
+    void putAll(@NonNull Map<K, V> entries, long timeout, @NonNull TimeUnit timeUnit);
+
+    /**
+     * Puts non-expired caches, in a single batch if the store supports it.
+     *
+     * @param entries cache keys and values must not be null
+     */
+    void putAll(@NonNull Map<K, V> entries);
+
     /**
      * Puts a cache which will be expired if the key is absent.
      *
@@ -61,4 +88,11 @@ public interface CacheStore<K, V> {
      */
     void delete(@NonNull K key);
 
+    /**
+     * Deletes keys, in a single batch if the store supports it.
+     *
+     * @param keys cache keys must not be null
+     */
+    void deleteAll(@NonNull Collection<K> keys);
+
 }
@@ -0,0 +1,140 @@
+package run.halo.app.cache;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.lang.Nullable;
+
+/**
+ * Cache value utilities.
+ *
+ * @author guqing
+ */
+final class CacheValues {
+
+    /**
+     * Estimated memory overhead of an object. (bytes)
+     */
+    private static final long OBJECT_OVERHEAD = 16;
+
+    /**
+     * Estimated memory overhead of a collection element or map entry. (bytes)
+     */
+    private static final long ELEMENT_OVERHEAD = 32;
+
+    private CacheValues() {
+    }
+
+    /**
+     * Copies the value into an immutable form which can be shared by all readers of a cache
+     * store. Scalars are returned as is, maps, sets and lists are copied into unmodifiable
+     * containers recursively.
+     *
+     * @param value value
+     * @return an immutable copy of the value, or null if the value is null or may not be held
+     * safely (e.g. a mutable bean), in which case it should be cached as json
+     */
+    @Nullable
+    static Object immutableCopyOf(@Nullable Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (isImmutableScalar(value)) {
+            return value;
+        }
+        if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            Map<Object, Object> copy = new LinkedHashMap<>(Math.max(16, map.size() * 4 / 3 + 1));
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                if (entry.getKey() == null || !isImmutableScalar(entry.getKey())) {
+                    return null;
+                }
+                Object element = entry.getValue();
+                Object elementCopy = immutableCopyOf(element);
+                if (element != null && elementCopy == null) {
+                    return null;
+                }
+                copy.put(entry.getKey(), elementCopy);
+            }
+            return Collections.unmodifiableMap(copy);
+        }
+        if (value instanceof Set) {
+            Set<Object> copy = copyElements((Set<?>) value,
+                new LinkedHashSet<>(Math.max(16, ((Set<?>) value).size() * 4 / 3 + 1)));
+            return copy == null ? null : Collections.unmodifiableSet(copy);
+        }
+        if (value instanceof List) {
+            List<Object> copy =
+                copyElements((List<?>) value, new ArrayList<>(((List<?>) value).size()));
+            return copy == null ? null : Collections.unmodifiableList(copy);
+        }
+        return null;
+    }
+
+    /**
+     * Estimates the retained size of a value held by a cache store.
+     *
+     * @param value cache value
+     * @return estimated size in bytes
+     */
+    static long weigh(@Nullable Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof ObjectValue) {
+            return OBJECT_OVERHEAD + weigh(((ObjectValue) value).getValue());
+        }
+        if (value instanceof CharSequence) {
+            return OBJECT_OVERHEAD + 2L * ((CharSequence) value).length();
+        }
+        if (value instanceof Map) {
+            long weight = OBJECT_OVERHEAD;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                weight += ELEMENT_OVERHEAD + weigh(entry.getKey()) + weigh(entry.getValue());
+            }
+            return weight;
+        }
+        if (value instanceof Collection) {
+            long weight = OBJECT_OVERHEAD;
+            for (Object element : (Collection<?>) value) {
+                weight += ELEMENT_OVERHEAD + weigh(element);
+            }
+            return weight;
+        }
+        return OBJECT_OVERHEAD;
+    }
+
+    private static boolean isImmutableScalar(Object value) {
+        return value instanceof String
+            || value instanceof Integer
+            || value instanceof Long
+            || value instanceof Boolean
+            || value instanceof Double
+            || value instanceof Float
+            || value instanceof Short
+            || value instanceof Byte
+            || value instanceof Character
+            || value instanceof BigDecimal
+            || value instanceof BigInteger
+            || value instanceof Enum;
+    }
+
+    @Nullable
+    private static <C extends Collection<Object>> C copyElements(Collection<?> source, C target) {
+        for (Object element : source) {
+            Object elementCopy = immutableCopyOf(element);
+            if (element != null && elementCopy == null) {
+                return null;
+            }
+            target.add(elementCopy);
+        }
+        return target;
+    }
+}
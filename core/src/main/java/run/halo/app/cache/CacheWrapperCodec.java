@@ -0,0 +1,172 @@
+package run.halo.app.cache;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Optional;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+/**
+ * Compact binary codec of the cache wrappers persisted by {@link LevelCacheStore}.
+ *
+ * <pre>
+ * +-------------+----------+---------------+---------------+---------+
+ * | version (1) | type (1) | expire at (8) | create at (8) | payload |
+ * +-------------+----------+---------------+---------------+---------+
+ * </pre>
+ *
+ * <p>Times are epoch milliseconds and 0 means absent, so the expiry time can be read from the
+ * fixed header without decoding the payload. Strings and json are encoded as UTF-8, integers,
+ * longs and booleans put by {@link AbstractStringCacheStore#putAny} are encoded as is.
+ *
+ * <p>Values written by older versions are json cache wrappers, they start with <code>{</code>
+ * and must be decoded by {@link AbstractStringCacheStore#jsonToCacheWrapper(String)}.
+ *
+ * @author guqing
+ */
+final class CacheWrapperCodec {
+
+    static final int HEADER_LENGTH = 18;
+
+    private static final byte VERSION = 1;
+
+    private static final byte LEGACY_JSON_PREFIX = '{';
+
+    /**
+     * Json string put by {@link AbstractCacheStore#put}.
+     */
+    private static final byte TYPE_JSON = 0;
+
+    private static final byte TYPE_STRING = 1;
+
+    private static final byte TYPE_INTEGER = 2;
+
+    private static final byte TYPE_LONG = 3;
+
+    private static final byte TYPE_BOOLEAN = 4;
+
+    private CacheWrapperCodec() {
+    }
+
+    /**
+     * Encodes the cache wrapper.
+     *
+     * @param cacheWrapper cache wrapper whose data is either an {@link ObjectValue} or a json
+     * string
+     * @return encoded bytes
+     */
+    @NonNull
+    static byte[] encode(@NonNull CacheWrapper<Object> cacheWrapper) {
+        Object data = cacheWrapper.getData();
+        Object value = data instanceof ObjectValue ? ((ObjectValue) data).getValue() : null;
+
+        byte type;
+        byte[] payload;
+        if (value instanceof String) {
+            type = TYPE_STRING;
+            payload = ((String) value).getBytes(StandardCharsets.UTF_8);
+        } else if (value instanceof Integer) {
+            type = TYPE_INTEGER;
+            payload = ByteBuffer.allocate(Integer.BYTES).putInt((Integer) value).array();
+        } else if (value instanceof Long) {
+            type = TYPE_LONG;
+            payload = ByteBuffer.allocate(Long.BYTES).putLong((Long) value).array();
+        } else if (value instanceof Boolean) {
+            type = TYPE_BOOLEAN;
+            payload = new byte[] {(byte) ((Boolean) value ? 1 : 0)};
+        } else {
+            type = TYPE_JSON;
+            payload = AbstractStringCacheStore.toJson(data).getBytes(StandardCharsets.UTF_8);
+        }
+
+        return ByteBuffer.allocate(HEADER_LENGTH + payload.length)
+            .put(VERSION)
+            .put(type)
+            .putLong(toMillis(cacheWrapper.getExpireAt()))
+            .putLong(toMillis(cacheWrapper.getCreateAt()))
+            .put(payload)
+            .array();
+    }
+
+    /**
+     * Decodes the cache wrapper.
+     *
+     * @param bytes encoded bytes
+     * @return an optional cache wrapper whose data is either an {@link ObjectValue} or a json
+     * string, or empty if the bytes are absent or malformed
+     */
+    @NonNull
+    static Optional<CacheWrapper<Object>> decode(@Nullable byte[] bytes) {
+        if (!isEncoded(bytes)) {
+            return Optional.empty();
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.get();
+        byte type = buffer.get();
+        Date expireAt = toDate(buffer.getLong());
+        Date createAt = toDate(buffer.getLong());
+
+        Object data;
+        switch (type) {
+            case TYPE_JSON:
+                data = new String(bytes, HEADER_LENGTH, bytes.length - HEADER_LENGTH,
+                    StandardCharsets.UTF_8);
+                break;
+            case TYPE_STRING:
+                data = new ObjectValue(new String(bytes, HEADER_LENGTH,
+                    bytes.length - HEADER_LENGTH, StandardCharsets.UTF_8));
+                break;
+            case TYPE_INTEGER:
+                data = new ObjectValue(buffer.getInt());
+                break;
+            case TYPE_LONG:
+                data = new ObjectValue(buffer.getLong());
+                break;
+            case TYPE_BOOLEAN:
+                data = new ObjectValue(buffer.get() != 0);
+                break;
+            default:
+                return Optional.empty();
+        }
+        return Optional.of(new CacheWrapper<>(data, expireAt, createAt));
+    }
+
+    /**
+     * Reads the expiry time from the header.
+     *
+     * @param bytes encoded bytes
+     * @return expiry time in milliseconds, or 0 if the cache never expires or the bytes are not
+     * encoded by this codec
+     */
+    static long decodeExpireAt(@Nullable byte[] bytes) {
+        if (!isEncoded(bytes)) {
+            return 0;
+        }
+        return ByteBuffer.wrap(bytes, 2, Long.BYTES).getLong();
+    }
+
+    /**
+     * Checks whether the bytes are a json cache wrapper written by an older version.
+     *
+     * @param bytes stored bytes
+     * @return true if the bytes are a legacy json cache wrapper
+     */
+    static boolean isLegacy(@Nullable byte[] bytes) {
+        return bytes != null && bytes.length > 0 && bytes[0] == LEGACY_JSON_PREFIX;
+    }
+
+    private static boolean isEncoded(@Nullable byte[] bytes) {
+        return bytes != null && bytes.length >= HEADER_LENGTH && bytes[0] == VERSION;
+    }
+
+    private static long toMillis(@Nullable Date date) {
+        return date == null ? 0 : date.getTime();
+    }
+
+    @Nullable
+    private static Date toDate(long millis) {
+        return millis == 0 ? null : new Date(millis);
+    }
+}
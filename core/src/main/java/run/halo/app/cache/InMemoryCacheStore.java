@@ -1,15 +1,19 @@
 package run.halo.app.cache;
 
+import java.util.Date;
+import java.util.List;
 import java.util.Optional;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.UnaryOperator;
 import javax.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
+import run.halo.app.utils.DateUtils;
 
 /**
  * In-memory cache store.
@@ -22,20 +26,26 @@ public class InMemoryCacheStore extends AbstractStringCacheStore {
     /**
      * Cleaner schedule period. (ms)
      */
-    private static final long PERIOD = 60 * 1000;
+    private static final long PERIOD = 1000;
 
     /**
-     * Cache container.
+     * Cache container, holding json strings and immutable objects.
      */
-    private static final ConcurrentHashMap<String, CacheWrapper<String>> CACHE_CONTAINER =
+    private static final ConcurrentHashMap<String, CacheWrapper<Object>> CACHE_CONTAINER =
         new ConcurrentHashMap<>();
 
-    private final Timer timer;
+    /**
+     * Sorted key index of the cache container, for prefix operations.
+     */
+    private static final ConcurrentSkipListSet<String> KEY_INDEX = new ConcurrentSkipListSet<>();
 
     /**
-     * Lock.
+     * Expiry index of the cache container.
      */
-    private final Lock lock = new ReentrantLock();
+    private static final TimerWheel<String> EXPIRY_WHEEL =
+        new TimerWheel<>(System.currentTimeMillis());
+
+    private final Timer timer;
 
     public InMemoryCacheStore() {
         // Run a cache store cleaner
@@ -46,6 +56,12 @@ public class InMemoryCacheStore extends AbstractStringCacheStore {
     @Override
     @NonNull
     Optional<CacheWrapper<String>> getInternal(@NonNull String key) {
+        return getObjectInternal(key).map(AbstractStringCacheStore::toStringCacheWrapper);
+    }
+
+    @Override
+    @NonNull
+    Optional<CacheWrapper<Object>> getObjectInternal(@NonNull String key) {
         Assert.hasText(key, "Cache key must not be blank");
 
         return Optional.ofNullable(CACHE_CONTAINER.get(key));
@@ -53,51 +69,77 @@ public class InMemoryCacheStore extends AbstractStringCacheStore {
 
     @Override
     void putInternal(@NonNull String key, @NonNull CacheWrapper<String> cacheWrapper) {
-        Assert.hasText(key, "Cache key must not be blank");
-        Assert.notNull(cacheWrapper, "Cache wrapper must not be null");
-
-        // Put the cache wrapper
-        CacheWrapper<String> putCacheWrapper = CACHE_CONTAINER.put(key, cacheWrapper);
-
-        log.debug("Put [{}] cache result: [{}], original cache wrapper: [{}]", key, putCacheWrapper,
-            cacheWrapper);
+        putObjectInternal(key, toObjectCacheWrapper(cacheWrapper));
     }
 
     @Override
-    Boolean putInternalIfAbsent(@NonNull String key, @NonNull CacheWrapper<String> cacheWrapper) {
+    void putObjectInternal(@NonNull String key, @NonNull CacheWrapper<Object> cacheWrapper) {
         Assert.hasText(key, "Cache key must not be blank");
         Assert.notNull(cacheWrapper, "Cache wrapper must not be null");
 
-        log.debug("Preparing to put key: [{}], value: [{}]", key, cacheWrapper);
+        // Put the cache wrapper and index its key and expiry time within the same bin lock
+        CACHE_CONTAINER.compute(key, (k, previous) -> {
+            KEY_INDEX.add(k);
+            scheduleExpiry(k, cacheWrapper);
+            return cacheWrapper;
+        });
 
-        lock.lock();
-        try {
-            // Get the value before
-            Optional<String> valueOptional = get(key);
+        log.debug("Put [{}] cache wrapper: [{}]", key, cacheWrapper);
+    }
 
-            if (valueOptional.isPresent()) {
-                log.warn("Failed to put the cache, because the key: [{}] has been present already",
-                    key);
-                return false;
+    @Override
+    @Nullable
+    CacheWrapper<Object> computeInternal(@NonNull String key,
+        @NonNull UnaryOperator<CacheWrapper<Object>> remappingFunction) {
+        Assert.hasText(key, "Cache key must not be blank");
+        Assert.notNull(remappingFunction, "Remapping function must not be null");
+
+        Date now = DateUtils.now();
+        CacheWrapper<Object> result = CACHE_CONTAINER.compute(key, (k, previous) -> {
+            CacheWrapper<Object> current =
+                previous == null || isExpired(previous, now) ? null : previous;
+            CacheWrapper<Object> cacheWrapper = remappingFunction.apply(current);
+            if (cacheWrapper == current) {
+                return previous;
             }
-
-            // Put the cache wrapper
-            putInternal(key, cacheWrapper);
-            log.debug("Put successfully");
-            return true;
-        } finally {
-            lock.unlock();
-        }
+            if (cacheWrapper == null) {
+                KEY_INDEX.remove(k);
+                EXPIRY_WHEEL.cancel(k);
+                return null;
+            }
+            KEY_INDEX.add(k);
+            scheduleExpiry(k, cacheWrapper);
+            return cacheWrapper;
+        });
+        // An expired cache wrapper left untouched is absent
+        return result == null || isExpired(result, now) ? null : result;
     }
 
     @Override
     public void delete(@NonNull String key) {
         Assert.hasText(key, "Cache key must not be blank");
 
-        CACHE_CONTAINER.remove(key);
+        CACHE_CONTAINER.computeIfPresent(key, (k, current) -> {
+            KEY_INDEX.remove(k);
+            EXPIRY_WHEEL.cancel(k);
+            return null;
+        });
         log.debug("Removed key: [{}]", key);
     }
 
+    @Override
+    @NonNull
+    public List<String> listKeysByPrefix(@NonNull String prefix) {
+        Assert.notNull(prefix, "Cache key prefix must not be null");
+
+        Date now = DateUtils.now();
+        return listKeysByPrefix(KEY_INDEX, prefix, key -> {
+            CacheWrapper<Object> cacheWrapper = CACHE_CONTAINER.get(key);
+            return cacheWrapper != null && (cacheWrapper.getExpireAt() == null
+                || cacheWrapper.getExpireAt().after(now));
+        });
+    }
+
     @PreDestroy
     public void preDestroy() {
         log.debug("Cancelling all timer tasks");
@@ -107,20 +149,41 @@ public class InMemoryCacheStore extends AbstractStringCacheStore {
 
     private void clear() {
         CACHE_CONTAINER.clear();
+        KEY_INDEX.clear();
+        EXPIRY_WHEEL.clear();
+    }
+
+    private static void scheduleExpiry(String key, CacheWrapper<Object> cacheWrapper) {
+        Date expireAt = cacheWrapper.getExpireAt();
+        if (expireAt == null) {
+            EXPIRY_WHEEL.cancel(key);
+        } else {
+            EXPIRY_WHEEL.schedule(key, expireAt.getTime());
+        }
     }
 
     /**
-     * Cache cleaner.
+     * Cache cleaner, only visits the keys which are due according to the expiry index.
      *
      * @author johnniang
      * @date 03/28/19
      */
-    private class CacheExpiryCleaner extends TimerTask {
+    private static class CacheExpiryCleaner extends TimerTask {
 
         @Override
         public void run() {
-            CACHE_CONTAINER.keySet().forEach(key -> {
-                if (!InMemoryCacheStore.this.get(key).isPresent()) {
+            Date now = DateUtils.now();
+            EXPIRY_WHEEL.advance(now.getTime()).forEach(key -> {
+                // The key may have been put again after it was indexed
+                CacheWrapper<Object> remaining = CACHE_CONTAINER.computeIfPresent(key,
+                    (k, current) -> {
+                        if (current.getExpireAt() != null && !current.getExpireAt().after(now)) {
+                            KEY_INDEX.remove(k);
+                            return null;
+                        }
+                        return current;
+                    });
+                if (remaining == null) {
                     log.debug("Deleted the cache: [{}] for expiration", key);
                 }
             });
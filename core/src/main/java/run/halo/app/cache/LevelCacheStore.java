@@ -1,14 +1,21 @@
 package run.halo.app.cache;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.UnaryOperator;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
@@ -19,13 +26,14 @@ import org.iq80.leveldb.Options;
 import org.iq80.leveldb.WriteBatch;
 import org.iq80.leveldb.impl.Iq80DBFactory;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
-import org.springframework.util.StringUtils;
 import run.halo.app.config.properties.HaloProperties;
-import run.halo.app.utils.JsonUtils;
+import run.halo.app.utils.DateUtils;
 
 /**
  * level-db cache store
+ * Values are persisted with {@link CacheWrapperCodec}.
  * Create by Pencilso on 2020/1/9 7:20 下午
  */
 @Slf4j
@@ -33,10 +41,30 @@ public class LevelCacheStore extends AbstractStringCacheStore {
     /**
      * Cleaner schedule period. (ms)
      */
-    private static final long PERIOD = 60 * 1000;
+    private static final long PERIOD = 1000;
+
+    private static final int LOCK_STRIPES = 64;
 
     private static DB LEVEL_DB;
 
+    /**
+     * Striped locks serializing the writes of a key, so that read-modify-write operations are
+     * atomic.
+     */
+    private static final Lock[] LOCKS = new Lock[LOCK_STRIPES];
+
+    /**
+     * Expiry index of the level-db keys, rebuilt at startup.
+     */
+    private static final TimerWheel<String> EXPIRY_WHEEL =
+        new TimerWheel<>(System.currentTimeMillis());
+
+    static {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            LOCKS[i] = new ReentrantLock();
+        }
+    }
+
     private Timer timer;
 
     public LevelCacheStore(HaloProperties haloProperties) {
@@ -56,6 +84,7 @@ public class LevelCacheStore extends AbstractStringCacheStore {
             options.createIfMissing(true);
             //open leveldb store folder
             LEVEL_DB = factory.open(folder, options);
+            buildExpiryIndex();
             timer = new Timer();
             timer.scheduleAtFixedRate(new CacheExpiryCleaner(), 0, PERIOD);
         } catch (Exception ex) {
@@ -79,44 +108,243 @@ public class LevelCacheStore extends AbstractStringCacheStore {
     @Override
     @NonNull
     Optional<CacheWrapper<String>> getInternal(@NonNull String key) {
+        return getObjectInternal(key).map(AbstractStringCacheStore::toStringCacheWrapper);
+    }
+
+    @Override
+    @NonNull
+    Optional<CacheWrapper<Object>> getObjectInternal(@NonNull String key) {
         Assert.hasText(key, "Cache key must not be blank");
-        byte[] bytes = LEVEL_DB.get(stringToBytes(key));
-        if (bytes != null) {
-            String valueJson = bytesToString(bytes);
-            return StringUtils.isEmpty(valueJson) ? Optional.empty() :
-                jsonToCacheWrapper(valueJson);
-        }
-        return Optional.empty();
+        return decodeCacheWrapper(LEVEL_DB.get(stringToBytes(key)));
     }
 
     @Override
     void putInternal(@NonNull String key, @NonNull CacheWrapper<String> cacheWrapper) {
-        putInternalIfAbsent(key, cacheWrapper);
+        putObjectInternal(key, toObjectCacheWrapper(cacheWrapper));
     }
 
     @Override
-    Boolean putInternalIfAbsent(@NonNull String key, @NonNull CacheWrapper<String> cacheWrapper) {
+    void putObjectInternal(@NonNull String key, @NonNull CacheWrapper<Object> cacheWrapper) {
         Assert.hasText(key, "Cache key must not be blank");
         Assert.notNull(cacheWrapper, "Cache wrapper must not be null");
+        Lock lock = lockOf(key);
+        lock.lock();
         try {
-            LEVEL_DB.put(
-                stringToBytes(key),
-                stringToBytes(JsonUtils.objectToJson(cacheWrapper))
-            );
-            return true;
-        } catch (JsonProcessingException e) {
-            log.warn("Put cache fail json2object key: [{}] value:[{}]", key, cacheWrapper);
+            LEVEL_DB.put(stringToBytes(key), CacheWrapperCodec.encode(cacheWrapper));
+            scheduleExpiry(key, toMillis(cacheWrapper.getExpireAt()));
+        } finally {
+            lock.unlock();
         }
         log.debug("Cache key: [{}], original cache wrapper: [{}]", key, cacheWrapper);
-        return false;
+    }
+
+    @Override
+    @Nullable
+    CacheWrapper<Object> computeInternal(@NonNull String key,
+        @NonNull UnaryOperator<CacheWrapper<Object>> remappingFunction) {
+        Assert.hasText(key, "Cache key must not be blank");
+        Assert.notNull(remappingFunction, "Remapping function must not be null");
+        Lock lock = lockOf(key);
+        lock.lock();
+        try {
+            Date now = DateUtils.now();
+            CacheWrapper<Object> current = getObjectInternal(key)
+                .filter(cacheWrapper -> !isExpired(cacheWrapper, now))
+                .orElse(null);
+            CacheWrapper<Object> cacheWrapper = remappingFunction.apply(current);
+            if (cacheWrapper == current) {
+                return current;
+            }
+            if (cacheWrapper == null) {
+                delete(key);
+            } else {
+                putObjectInternal(key, cacheWrapper);
+            }
+            return cacheWrapper;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    void putAllInternal(@NonNull Map<String, CacheWrapper<String>> cacheWrappers) {
+        WriteBatch writeBatch = LEVEL_DB.createWriteBatch();
+        cacheWrappers.forEach((key, cacheWrapper) -> {
+            Assert.hasText(key, "Cache key must not be blank");
+            writeBatch.put(stringToBytes(key),
+                CacheWrapperCodec.encode(toObjectCacheWrapper(cacheWrapper)));
+        });
+        List<Lock> locks = lockAll(cacheWrappers.keySet());
+        try {
+            LEVEL_DB.write(writeBatch);
+            cacheWrappers.forEach(
+                (key, cacheWrapper) -> scheduleExpiry(key, toMillis(cacheWrapper.getExpireAt())));
+        } finally {
+            unlockAll(locks);
+        }
+        log.debug("Cache keys: [{}] put in a batch", cacheWrappers.keySet());
     }
 
     @Override
     public void delete(@NonNull String key) {
-        LEVEL_DB.delete(stringToBytes(key));
+        Lock lock = lockOf(key);
+        lock.lock();
+        try {
+            LEVEL_DB.delete(stringToBytes(key));
+            EXPIRY_WHEEL.cancel(key);
+        } finally {
+            lock.unlock();
+        }
         log.debug("cache remove key: [{}]", key);
     }
 
+    @Override
+    public void deleteAll(@NonNull Collection<String> keys) {
+        Assert.notNull(keys, "Cache keys must not be null");
+
+        WriteBatch writeBatch = LEVEL_DB.createWriteBatch();
+        keys.forEach(key -> writeBatch.delete(stringToBytes(key)));
+        List<Lock> locks = lockAll(keys);
+        try {
+            LEVEL_DB.write(writeBatch);
+            keys.forEach(EXPIRY_WHEEL::cancel);
+        } finally {
+            unlockAll(locks);
+        }
+        log.debug("cache remove keys: [{}]", keys);
+    }
+
+    @Override
+    @NonNull
+    public List<String> listKeysByPrefix(@NonNull String prefix) {
+        Assert.notNull(prefix, "Cache key prefix must not be null");
+
+        List<String> keys = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        forEachByPrefix(prefix, (key, value) -> {
+            long expireAt = decodeExpireAt(value);
+            if (expireAt == 0 || expireAt > now) {
+                keys.add(key);
+            }
+        });
+        return keys;
+    }
+
+    @Override
+    public void deleteByPrefix(@NonNull String prefix) {
+        Assert.hasText(prefix, "Cache key prefix must not be blank");
+
+        // Collect the keys in a single pass and delete them in a single batch
+        List<String> keys = new ArrayList<>();
+        forEachByPrefix(prefix, (key, value) -> keys.add(key));
+        deleteAll(keys);
+        log.debug("cache remove [{}] keys by prefix: [{}]", keys.size(), prefix);
+    }
+
+    /**
+     * Iterates the keys starting with the prefix in key order, seeking to the first one.
+     */
+    private void forEachByPrefix(String prefix, BiConsumer<String, byte[]> action) {
+        byte[] prefixBytes = stringToBytes(prefix);
+        try (DBIterator iterator = LEVEL_DB.iterator()) {
+            iterator.seek(prefixBytes);
+            while (iterator.hasNext()) {
+                Map.Entry<byte[], byte[]> next = iterator.next();
+                if (!startsWith(next.getKey(), prefixBytes)) {
+                    break;
+                }
+                action.accept(bytesToString(next.getKey()), next.getValue());
+            }
+        } catch (IOException e) {
+            log.error("close leveldb iterator error ", e);
+        }
+    }
+
+    private static Lock lockOf(String key) {
+        return LOCKS[stripeOf(key)];
+    }
+
+    /**
+     * Locks the stripes of the keys in stripe order, so that batches never deadlock.
+     */
+    private static List<Lock> lockAll(Collection<String> keys) {
+        BitSet stripes = new BitSet(LOCK_STRIPES);
+        keys.forEach(key -> stripes.set(stripeOf(key)));
+        List<Lock> locks = new ArrayList<>(stripes.cardinality());
+        stripes.stream().forEach(stripe -> {
+            LOCKS[stripe].lock();
+            locks.add(LOCKS[stripe]);
+        });
+        return locks;
+    }
+
+    private static void unlockAll(List<Lock> locks) {
+        locks.forEach(Lock::unlock);
+    }
+
+    private static int stripeOf(String key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return hash & (LOCK_STRIPES - 1);
+    }
+
+    private static boolean startsWith(byte[] bytes, byte[] prefix) {
+        if (bytes.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Indexes the expiry time of all persisted keys, the only full scan of the store.
+     */
+    private void buildExpiryIndex() throws IOException {
+        try (DBIterator iterator = LEVEL_DB.iterator()) {
+            iterator.seekToFirst();
+            while (iterator.hasNext()) {
+                Map.Entry<byte[], byte[]> next = iterator.next();
+                scheduleExpiry(bytesToString(next.getKey()), decodeExpireAt(next.getValue()));
+            }
+        }
+        log.debug("Indexed [{}] expirable level-db cache keys", EXPIRY_WHEEL.size());
+    }
+
+    private void scheduleExpiry(String key, long expireAt) {
+        if (expireAt == 0) {
+            EXPIRY_WHEEL.cancel(key);
+        } else {
+            EXPIRY_WHEEL.schedule(key, expireAt);
+        }
+    }
+
+    private Optional<CacheWrapper<Object>> decodeCacheWrapper(byte[] bytes) {
+        if (CacheWrapperCodec.isLegacy(bytes)) {
+            // Written as json by an older version
+            return jsonToCacheWrapper(bytesToString(bytes))
+                .map(AbstractStringCacheStore::toObjectCacheWrapper);
+        }
+        return CacheWrapperCodec.decode(bytes);
+    }
+
+    private long decodeExpireAt(byte[] bytes) {
+        if (CacheWrapperCodec.isLegacy(bytes)) {
+            return decodeCacheWrapper(bytes)
+                .map(CacheWrapper::getExpireAt)
+                .map(LevelCacheStore::toMillis)
+                .orElse(0L);
+        }
+        return CacheWrapperCodec.decodeExpireAt(bytes);
+    }
+
+    private static long toMillis(Date date) {
+        return date == null ? 0 : date.getTime();
+    }
+
 
     private byte[] stringToBytes(String str) {
         return str.getBytes(Charset.defaultCharset());
@@ -126,40 +354,37 @@ public class LevelCacheStore extends AbstractStringCacheStore {
         return new String(bytes, Charset.defaultCharset());
     }
 
+    /**
+     * Cache cleaner, only decodes the keys which are due according to the expiry index.
+     */
     private class CacheExpiryCleaner extends TimerTask {
 
         @Override
         public void run() {
-            //batch
-            WriteBatch writeBatch = LEVEL_DB.createWriteBatch();
-
-            DBIterator iterator = LEVEL_DB.iterator();
             long currentTimeMillis = System.currentTimeMillis();
-            while (iterator.hasNext()) {
-                Map.Entry<byte[], byte[]> next = iterator.next();
-                if (next.getKey() == null || next.getValue() == null) {
-                    continue;
-                }
+            List<String> dueKeys = EXPIRY_WHEEL.advance(currentTimeMillis);
+            if (dueKeys.isEmpty()) {
+                return;
+            }
 
-                String valueJson = bytesToString(next.getValue());
-                Optional<CacheWrapper<String>> stringCacheWrapper =
-                    StringUtils.isEmpty(valueJson) ? Optional.empty() :
-                        jsonToCacheWrapper(valueJson);
-                if (stringCacheWrapper.isPresent()) {
-                    //get expireat time
-                    long expireAtTime = stringCacheWrapper.map(CacheWrapper::getExpireAt)
-                        .map(Date::getTime)
-                        .orElse(0L);
+            //batch
+            WriteBatch writeBatch = LEVEL_DB.createWriteBatch();
+            List<Lock> locks = lockAll(dueKeys);
+            try {
+                for (String key : dueKeys) {
+                    byte[] keyBytes = stringToBytes(key);
+                    // The key may have been put again after it was indexed
+                    long expireAtTime = decodeExpireAt(LEVEL_DB.get(keyBytes));
                     //if expire
-                    if (expireAtTime != 0 && currentTimeMillis > expireAtTime) {
-                        writeBatch.delete(next.getKey());
-                        log.debug("deleted the cache: [{}] for expiration",
-                            bytesToString(next.getKey()));
+                    if (expireAtTime != 0 && currentTimeMillis >= expireAtTime) {
+                        writeBatch.delete(keyBytes);
+                        log.debug("deleted the cache: [{}] for expiration", key);
                     }
                 }
+                LEVEL_DB.write(writeBatch);
+            } finally {
+                unlockAll(locks);
             }
-            LEVEL_DB.write(writeBatch);
         }
     }
 }
-
@@ -0,0 +1,596 @@
+package run.halo.app.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+import java.util.function.UnaryOperator;
+import java.util.zip.CRC32;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import run.halo.app.config.properties.HaloProperties;
+import run.halo.app.exception.ServiceException;
+import run.halo.app.utils.DateUtils;
+
+/**
+ * Memory-mapped file cache store.
+ *
+ * <p>Cache entries are appended as records to a memory-mapped file under the work directory,
+ * so their bytes live in the page cache instead of the heap. The record offsets are indexed
+ * by an {@link OffHeapHashIndex} which is rebuilt by replaying the file at startup, hence the
+ * cache survives restarts. Values are encoded by {@link CacheWrapperCodec}.
+ *
+ * <pre>
+ * file:   | magic (4) | version (4) | record | record | ... |
+ * record: | length (4) | crc32 (4) | type (1) | key length (4) | key | value |
+ * </pre>
+ *
+ * <p>Overwritten, deleted and expired records are reclaimed by compaction, which rewrites the
+ * live records into a new file. It runs when the file is full or mostly garbage, and the file
+ * grows if the live records do not fit after compaction.
+ *
+ * @author guqing
+ */
+@Slf4j
+public class MappedFileCacheStore extends AbstractStringCacheStore {
+
+    /**
+     * Cleaner schedule period. (ms)
+     */
+    private static final long PERIOD = 1000;
+
+    private static final String CACHE_FOLDER = ".mmapcache";
+
+    private static final String DATA_FILE = "cache.dat";
+
+    private static final String COMPACT_FILE = "cache.dat.compact";
+
+    private static final int MAGIC = 0x48414c4f;
+
+    private static final int VERSION = 1;
+
+    private static final int FILE_HEADER_LENGTH = 8;
+
+    private static final int RECORD_HEADER_LENGTH = 13;
+
+    private static final byte RECORD_PUT = 1;
+
+    private static final byte RECORD_DELETE = 2;
+
+    private static final long MAX_CAPACITY = Integer.MAX_VALUE;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final TimerWheel<String> expiryWheel = new TimerWheel<>(System.currentTimeMillis());
+
+    private final long initialCapacity;
+
+    private Path folder;
+
+    private FileChannel channel;
+
+    private MappedByteBuffer buffer;
+
+    private OffHeapHashIndex index;
+
+    private int writePosition;
+
+    /**
+     * Bytes of overwritten and deleted records.
+     */
+    private long garbageBytes;
+
+    private Timer timer;
+
+    public MappedFileCacheStore(HaloProperties haloProperties) {
+        super.haloProperties = haloProperties;
+        this.initialCapacity =
+            Math.min(haloProperties.getCacheMappedFileSize().toBytes(), MAX_CAPACITY);
+    }
+
+    @PostConstruct
+    public void init() {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            folder = Paths.get(haloProperties.getWorkDir(), CACHE_FOLDER);
+            Files.createDirectories(folder);
+            Files.deleteIfExists(folder.resolve(COMPACT_FILE));
+
+            channel = FileChannel.open(folder.resolve(DATA_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long capacity = Math.min(Math.max(channel.size(), initialCapacity), MAX_CAPACITY);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            recover();
+        } catch (IOException e) {
+            throw new ServiceException("Failed to open the mapped file cache store", e);
+        } finally {
+            writeLock.unlock();
+        }
+
+        timer = new Timer();
+        timer.scheduleAtFixedRate(new CacheExpiryCleaner(), 0, PERIOD);
+    }
+
+    @PreDestroy
+    public void preDestroy() {
+        if (timer != null) {
+            timer.cancel();
+        }
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            log.error("close mapped file cache error ", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    @NonNull
+    Optional<CacheWrapper<String>> getInternal(@NonNull String key) {
+        return getObjectInternal(key).map(AbstractStringCacheStore::toStringCacheWrapper);
+    }
+
+    @Override
+    @NonNull
+    Optional<CacheWrapper<Object>> getObjectInternal(@NonNull String key) {
+        Assert.hasText(key, "Cache key must not be blank");
+
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            long offset = index.get(hash(key), matcherOf(keyBytes));
+            if (offset < 0) {
+                return Optional.empty();
+            }
+            return CacheWrapperCodec.decode(readValue((int) offset));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    void putInternal(@NonNull String key, @NonNull CacheWrapper<String> cacheWrapper) {
+        putObjectInternal(key, toObjectCacheWrapper(cacheWrapper));
+    }
+
+    @Override
+    void putObjectInternal(@NonNull String key, @NonNull CacheWrapper<Object> cacheWrapper) {
+        Assert.hasText(key, "Cache key must not be blank");
+        Assert.notNull(cacheWrapper, "Cache wrapper must not be null");
+
+        byte[] value = CacheWrapperCodec.encode(cacheWrapper);
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            doPut(key, value, cacheWrapper.getExpireAt());
+        } finally {
+            writeLock.unlock();
+        }
+        log.debug("Put [{}] cache wrapper: [{}]", key, cacheWrapper);
+    }
+
+    @Override
+    @Nullable
+    CacheWrapper<Object> computeInternal(@NonNull String key,
+        @NonNull UnaryOperator<CacheWrapper<Object>> remappingFunction) {
+        Assert.hasText(key, "Cache key must not be blank");
+        Assert.notNull(remappingFunction, "Remapping function must not be null");
+
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            long offset = index.get(hash(key), matcherOf(keyBytes));
+            Date now = DateUtils.now();
+            CacheWrapper<Object> current = offset < 0 ? null
+                : CacheWrapperCodec.decode(readValue((int) offset))
+                    .filter(cacheWrapper -> !isExpired(cacheWrapper, now))
+                    .orElse(null);
+            CacheWrapper<Object> cacheWrapper = remappingFunction.apply(current);
+            if (cacheWrapper == current) {
+                return current;
+            }
+            if (cacheWrapper == null) {
+                doDelete(key);
+            } else {
+                doPut(key, CacheWrapperCodec.encode(cacheWrapper), cacheWrapper.getExpireAt());
+            }
+            return cacheWrapper;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void delete(@NonNull String key) {
+        Assert.hasText(key, "Cache key must not be blank");
+
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            doDelete(key);
+        } finally {
+            writeLock.unlock();
+        }
+        log.debug("Removed key: [{}]", key);
+    }
+
+    @Override
+    void putAllInternal(@NonNull Map<String, CacheWrapper<String>> cacheWrappers) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            cacheWrappers.forEach((key, cacheWrapper) -> {
+                Assert.hasText(key, "Cache key must not be blank");
+                doPut(key, CacheWrapperCodec.encode(toObjectCacheWrapper(cacheWrapper)),
+                    cacheWrapper.getExpireAt());
+            });
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void deleteAll(@NonNull Collection<String> keys) {
+        Assert.notNull(keys, "Cache keys must not be null");
+
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            keys.forEach(this::doDelete);
+        } finally {
+            writeLock.unlock();
+        }
+        log.debug("Removed keys: [{}]", keys);
+    }
+
+    /**
+     * Lists the unexpired keys starting with the prefix. The index is not sorted, so this scans
+     * all the keys.
+     *
+     * @param prefix key prefix must not be null
+     * @return keys in ascending order
+     */
+    @Override
+    @NonNull
+    public List<String> listKeysByPrefix(@NonNull String prefix) {
+        Assert.notNull(prefix, "Cache key prefix must not be null");
+
+        List<String> keys = new ArrayList<>();
+        long now = DateUtils.now().getTime();
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            index.forEach(offset -> {
+                String key = readKey((int) offset);
+                if (key.startsWith(prefix) && !isExpired(readValue((int) offset), now)) {
+                    keys.add(key);
+                }
+            });
+        } finally {
+            readLock.unlock();
+        }
+        Collections.sort(keys);
+        return keys;
+    }
+
+    /**
+     * Rewrites the live records into a new file, reclaiming the space of overwritten, deleted
+     * and expired records.
+     */
+    public void compact() {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            doCompact(0);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void doPut(String key, byte[] value, Date expireAt) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        int offset = append(RECORD_PUT, keyBytes, value);
+        long previous = index.put(hash(key), offset, matcherOf(keyBytes));
+        if (previous >= 0) {
+            garbageBytes += buffer.getInt((int) previous);
+        }
+
+        if (expireAt == null) {
+            expiryWheel.cancel(key);
+        } else {
+            expiryWheel.schedule(key, expireAt.getTime());
+        }
+    }
+
+    private void doDelete(String key) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        long previous = index.remove(hash(key), matcherOf(keyBytes));
+        expiryWheel.cancel(key);
+        if (previous < 0) {
+            return;
+        }
+
+        garbageBytes += buffer.getInt((int) previous);
+        // The tombstone keeps the key deleted after a restart, until the next compaction
+        int offset = append(RECORD_DELETE, keyBytes, new byte[0]);
+        garbageBytes += buffer.getInt(offset);
+    }
+
+    /**
+     * Appends a record, compacting or growing the file if it is full.
+     *
+     * @return offset of the record
+     */
+    private int append(byte type, byte[] keyBytes, byte[] value) {
+        int length = RECORD_HEADER_LENGTH + keyBytes.length + value.length;
+        if ((long) writePosition + length > buffer.capacity()) {
+            doCompact(length);
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(length)
+            .putInt(length)
+            .putInt(0)
+            .put(type)
+            .putInt(keyBytes.length)
+            .put(keyBytes)
+            .put(value);
+        CRC32 crc32 = new CRC32();
+        crc32.update(record.array(), 8, length - 8);
+        record.putInt(4, (int) crc32.getValue());
+
+        int offset = writePosition;
+        ByteBuffer target = buffer.duplicate();
+        target.position(offset);
+        target.put(record.array());
+        writePosition += length;
+        if (writePosition + Integer.BYTES <= buffer.capacity()) {
+            // Marks the end of the records
+            buffer.putInt(writePosition, 0);
+        }
+        return offset;
+    }
+
+    /**
+     * Rewrites the live and unexpired records into a new file, which is grown until the given
+     * number of bytes can be appended.
+     */
+    private void doCompact(int reserved) {
+        long now = DateUtils.now().getTime();
+        Path compactPath = folder.resolve(COMPACT_FILE);
+        try {
+            // Measure the live records first to size the new file
+            long[] liveBytes = {FILE_HEADER_LENGTH};
+            index.forEach(offset -> liveBytes[0] += buffer.getInt((int) offset));
+            long capacity = buffer.capacity();
+            while (liveBytes[0] + reserved > capacity && capacity < MAX_CAPACITY) {
+                capacity = Math.min(capacity * 2, MAX_CAPACITY);
+            }
+            if (liveBytes[0] + reserved > capacity) {
+                throw new ServiceException("The mapped file cache store is full");
+            }
+
+            FileChannel compactChannel = FileChannel.open(compactPath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+            MappedByteBuffer compactBuffer =
+                compactChannel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            compactBuffer.putInt(0, MAGIC);
+            compactBuffer.putInt(4, VERSION);
+
+            OffHeapHashIndex compactIndex = new OffHeapHashIndex(index.size());
+            int[] position = {FILE_HEADER_LENGTH};
+            index.forEach(offset -> {
+                int recordOffset = (int) offset;
+                int length = buffer.getInt(recordOffset);
+                String key = readKey(recordOffset);
+                if (isExpired(readValue(recordOffset), now)) {
+                    expiryWheel.cancel(key);
+                    return;
+                }
+                ByteBuffer source = buffer.duplicate();
+                source.position(recordOffset).limit(recordOffset + length);
+                ByteBuffer target = compactBuffer.duplicate();
+                target.position(position[0]);
+                target.put(source);
+                compactIndex.put(hash(key), position[0], matcherOf(compactBuffer, key));
+                position[0] += length;
+            });
+            if (position[0] + Integer.BYTES <= capacity) {
+                compactBuffer.putInt(position[0], 0);
+            }
+            compactBuffer.force();
+
+            Files.move(compactPath, folder.resolve(DATA_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel.close();
+            log.info("Compacted the mapped file cache store from [{}] to [{}] bytes",
+                writePosition, position[0]);
+
+            channel = compactChannel;
+            buffer = compactBuffer;
+            index = compactIndex;
+            writePosition = position[0];
+            garbageBytes = 0;
+        } catch (IOException e) {
+            throw new ServiceException("Failed to compact the mapped file cache store", e);
+        }
+    }
+
+    /**
+     * Replays the records of the file into the index, stopping at the first torn record.
+     */
+    private void recover() {
+        index = new OffHeapHashIndex(1024);
+        writePosition = FILE_HEADER_LENGTH;
+        garbageBytes = 0;
+
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            if (buffer.getInt(0) != 0) {
+                log.warn("Discarded the mapped file cache store with an unknown format");
+            }
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(FILE_HEADER_LENGTH, 0);
+            return;
+        }
+
+        int position = FILE_HEADER_LENGTH;
+        while (position + RECORD_HEADER_LENGTH <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length < RECORD_HEADER_LENGTH || (long) position + length > buffer.capacity()
+                || !isIntact(position, length)) {
+                break;
+            }
+            String key = readKey(position);
+            byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            long previous;
+            if (buffer.get(position + 8) == RECORD_PUT) {
+                previous = index.put(hash(key), position, matcherOf(keyBytes));
+                long expireAt = CacheWrapperCodec.decodeExpireAt(readValue(position));
+                if (expireAt == 0) {
+                    expiryWheel.cancel(key);
+                } else {
+                    expiryWheel.schedule(key, expireAt);
+                }
+            } else {
+                previous = index.remove(hash(key), matcherOf(keyBytes));
+                expiryWheel.cancel(key);
+                garbageBytes += length;
+            }
+            if (previous >= 0) {
+                garbageBytes += buffer.getInt((int) previous);
+            }
+            position += length;
+        }
+        writePosition = position;
+        log.info("Recovered [{}] keys of the mapped file cache store, [{}] of [{}] bytes used",
+            index.size(), writePosition, buffer.capacity());
+    }
+
+    private boolean isIntact(int position, int length) {
+        byte[] bytes = new byte[length - 8];
+        ByteBuffer source = buffer.duplicate();
+        source.position(position + 8);
+        source.get(bytes);
+        CRC32 crc32 = new CRC32();
+        crc32.update(bytes);
+        return (int) crc32.getValue() == buffer.getInt(position + 4);
+    }
+
+    private String readKey(int offset) {
+        byte[] keyBytes = new byte[buffer.getInt(offset + 9)];
+        ByteBuffer source = buffer.duplicate();
+        source.position(offset + RECORD_HEADER_LENGTH);
+        source.get(keyBytes);
+        return new String(keyBytes, StandardCharsets.UTF_8);
+    }
+
+    private byte[] readValue(int offset) {
+        int keyLength = buffer.getInt(offset + 9);
+        byte[] value = new byte[buffer.getInt(offset) - RECORD_HEADER_LENGTH - keyLength];
+        ByteBuffer source = buffer.duplicate();
+        source.position(offset + RECORD_HEADER_LENGTH + keyLength);
+        source.get(value);
+        return value;
+    }
+
+    private LongPredicate matcherOf(byte[] keyBytes) {
+        return matcherOf(buffer, keyBytes);
+    }
+
+    private static LongPredicate matcherOf(ByteBuffer buffer, String key) {
+        return matcherOf(buffer, key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static LongPredicate matcherOf(ByteBuffer buffer, byte[] keyBytes) {
+        return offset -> {
+            int recordOffset = (int) offset;
+            if (buffer.getInt(recordOffset + 9) != keyBytes.length) {
+                return false;
+            }
+            for (int i = 0; i < keyBytes.length; i++) {
+                if (buffer.get(recordOffset + RECORD_HEADER_LENGTH + i) != keyBytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    private static boolean isExpired(byte[] value, long now) {
+        long expireAt = CacheWrapperCodec.decodeExpireAt(value);
+        return expireAt != 0 && expireAt <= now;
+    }
+
+    private static int hash(String key) {
+        int hash = key.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Cache cleaner, deletes due keys and compacts the file once it is mostly garbage.
+     */
+    private class CacheExpiryCleaner extends TimerTask {
+
+        @Override
+        public void run() {
+            long now = System.currentTimeMillis();
+            Lock writeLock = lock.writeLock();
+            for (String key : expiryWheel.advance(now)) {
+                writeLock.lock();
+                try {
+                    // The key may have been put again after it was indexed
+                    byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+                    long offset = index.get(hash(key), matcherOf(keyBytes));
+                    if (offset >= 0 && isExpired(readValue((int) offset), now)) {
+                        doDelete(key);
+                        log.debug("Deleted the cache: [{}] for expiration", key);
+                    }
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+
+            writeLock.lock();
+            try {
+                if (garbageBytes > writePosition / 2 && writePosition > buffer.capacity() / 2) {
+                    doCompact(0);
+                }
+            } catch (ServiceException e) {
+                log.error("Failed to compact the mapped file cache store", e);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+}
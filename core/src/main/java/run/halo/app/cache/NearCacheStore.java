@@ -0,0 +1,213 @@
+package run.halo.app.cache;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import run.halo.app.config.properties.HaloProperties;
+import run.halo.app.utils.DateUtils;
+
+/**
+ * Two-tier cache store: a bounded on-heap near cache in front of the level-db cache store.
+ *
+ * <p>Writes and deletes go through to level-db, which keeps the cache across restarts, and
+ * then update the near cache. Near cache entries inherit the expiry time of the level-db
+ * entries, and misses are cached as absent markers for a short while, so hot keys and hot
+ * misses are both served from memory.
+ *
+ * <p>Filling the near cache on a miss and writing a key are serialized by a striped lock, so a
+ * stale level-db read can never overwrite a newer value in the near cache. Hits are lock-free.
+ *
+ * @author guqing
+ */
+@Slf4j
+public class NearCacheStore extends AbstractStringCacheStore {
+
+    /**
+     * Time to live of an absent marker. (ms)
+     */
+    private static final long ABSENT_TTL = TimeUnit.MINUTES.toMillis(1);
+
+    private static final int LOCK_STRIPES = 64;
+
+    /**
+     * Marker data of a key known to be absent from level-db.
+     */
+    private static final Object ABSENT = new Object() {
+        @Override
+        public String toString() {
+            return "ABSENT";
+        }
+    };
+
+    private final BoundedInMemoryCacheStore nearCacheStore;
+
+    private final LevelCacheStore levelCacheStore;
+
+    private final Lock[] locks = new Lock[LOCK_STRIPES];
+
+    public NearCacheStore(HaloProperties haloProperties) {
+        super.haloProperties = haloProperties;
+        this.nearCacheStore =
+            new BoundedInMemoryCacheStore(haloProperties.getCacheNearMaximumSize(),
+                haloProperties.getCacheNearMaximumWeight().toBytes());
+        this.levelCacheStore = new LevelCacheStore(haloProperties);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        levelCacheStore.init();
+    }
+
+    @PreDestroy
+    public void preDestroy() {
+        nearCacheStore.preDestroy();
+        levelCacheStore.preDestroy();
+    }
+
+    @Override
+    @NonNull
+    Optional<CacheWrapper<String>> getInternal(@NonNull String key) {
+        return getObjectInternal(key).map(AbstractStringCacheStore::toStringCacheWrapper);
+    }
+
+    @Override
+    @NonNull
+    Optional<CacheWrapper<Object>> getObjectInternal(@NonNull String key) {
+        Assert.hasText(key, "Cache key must not be blank");
+
+        Optional<CacheWrapper<Object>> nearCacheWrapper = getNear(key);
+        if (nearCacheWrapper.isPresent()) {
+            return filterAbsent(nearCacheWrapper.get());
+        }
+
+        Lock lock = lockOf(key);
+        lock.lock();
+        try {
+            // Filled by another reader or writer while waiting
+            nearCacheWrapper = getNear(key);
+            if (nearCacheWrapper.isPresent()) {
+                return filterAbsent(nearCacheWrapper.get());
+            }
+
+            Optional<CacheWrapper<Object>> cacheWrapper = levelCacheStore.getObjectInternal(key);
+            if (cacheWrapper.isPresent()) {
+                // The near entry inherits the expiry time of the level-db entry
+                nearCacheStore.putObjectInternal(key, cacheWrapper.get());
+            } else {
+                putAbsent(key);
+            }
+            return cacheWrapper;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    void putInternal(@NonNull String key, @NonNull CacheWrapper<String> cacheWrapper) {
+        putObjectInternal(key, toObjectCacheWrapper(cacheWrapper));
+    }
+
+    @Override
+    void putObjectInternal(@NonNull String key, @NonNull CacheWrapper<Object> cacheWrapper) {
+        Assert.hasText(key, "Cache key must not be blank");
+        Assert.notNull(cacheWrapper, "Cache wrapper must not be null");
+
+        Lock lock = lockOf(key);
+        lock.lock();
+        try {
+            levelCacheStore.putObjectInternal(key, cacheWrapper);
+            nearCacheStore.putObjectInternal(key, cacheWrapper);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    @Nullable
+    CacheWrapper<Object> computeInternal(@NonNull String key,
+        @NonNull UnaryOperator<CacheWrapper<Object>> remappingFunction) {
+        Assert.hasText(key, "Cache key must not be blank");
+        Assert.notNull(remappingFunction, "Remapping function must not be null");
+
+        Lock lock = lockOf(key);
+        lock.lock();
+        try {
+            Date now = DateUtils.now();
+            CacheWrapper<Object> current = getObjectInternal(key)
+                .filter(cacheWrapper -> !isExpired(cacheWrapper, now))
+                .orElse(null);
+            CacheWrapper<Object> cacheWrapper = remappingFunction.apply(current);
+            if (cacheWrapper == current) {
+                return current;
+            }
+            if (cacheWrapper == null) {
+                delete(key);
+            } else {
+                putObjectInternal(key, cacheWrapper);
+            }
+            return cacheWrapper;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void delete(@NonNull String key) {
+        Assert.hasText(key, "Cache key must not be blank");
+
+        Lock lock = lockOf(key);
+        lock.lock();
+        try {
+            levelCacheStore.delete(key);
+            putAbsent(key);
+        } finally {
+            lock.unlock();
+        }
+        log.debug("Removed key: [{}]", key);
+    }
+
+    @Override
+    @NonNull
+    public List<String> listKeysByPrefix(@NonNull String prefix) {
+        // The near cache only holds a subset of the keys
+        return levelCacheStore.listKeysByPrefix(prefix);
+    }
+
+    /**
+     * Gets the near cache entry, skipping expired absent markers.
+     */
+    private Optional<CacheWrapper<Object>> getNear(String key) {
+        return nearCacheStore.getObjectInternal(key)
+            .filter(cacheWrapper -> cacheWrapper.getData() != ABSENT
+                || cacheWrapper.getExpireAt().after(DateUtils.now()));
+    }
+
+    private Optional<CacheWrapper<Object>> filterAbsent(CacheWrapper<Object> cacheWrapper) {
+        return cacheWrapper.getData() == ABSENT ? Optional.empty() : Optional.of(cacheWrapper);
+    }
+
+    private void putAbsent(String key) {
+        Date now = DateUtils.now();
+        nearCacheStore.putObjectInternal(key,
+            new CacheWrapper<>(ABSENT, new Date(now.getTime() + ABSENT_TTL), now));
+    }
+
+    private Lock lockOf(String key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return locks[hash & (LOCK_STRIPES - 1)];
+    }
+}
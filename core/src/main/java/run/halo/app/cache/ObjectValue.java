@@ -0,0 +1,49 @@
+package run.halo.app.cache;
+
+import java.io.Serializable;
+import java.util.Objects;
+import org.springframework.lang.NonNull;
+import org.springframework.util.Assert;
+
+/**
+ * Immutable value put by {@link AbstractStringCacheStore#putAny}, held by cache stores as is
+ * instead of its json string.
+ *
+ * @author guqing
+ * @see CacheValues#immutableCopyOf(Object)
+ */
+final class ObjectValue implements Serializable {
+
+    private final Object value;
+
+    ObjectValue(@NonNull Object value) {
+        Assert.notNull(value, "Object value must not be null");
+        this.value = value;
+    }
+
+    @NonNull
+    Object getValue() {
+        return value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return Objects.equals(value, ((ObjectValue) o).value);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(value);
+    }
+
+    @Override
+    public String toString() {
+        return "ObjectValue{value=" + value + "}";
+    }
+}
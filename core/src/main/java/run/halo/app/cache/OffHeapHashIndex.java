@@ -0,0 +1,182 @@
+package run.halo.app.cache;
+
+import java.nio.ByteBuffer;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+
+/**
+ * Open-addressing hash index stored in a direct buffer, mapping key hashes to record offsets.
+ *
+ * <p>Each slot holds the record offset plus one (0 marks an empty slot and -1 a removed one)
+ * and the key hash. Keys themselves are not stored: a candidate slot is confirmed by a key
+ * matcher which compares the key of the record at the offset. Collisions are resolved by
+ * linear probing and the table doubles once 70% of its slots are used.
+ *
+ * <p>This class is not thread-safe, callers must guard it with their own lock.
+ *
+ * @author guqing
+ */
+final class OffHeapHashIndex {
+
+    private static final int SLOT_LENGTH = 16;
+
+    private static final long EMPTY = 0;
+
+    private static final long REMOVED = -1;
+
+    private static final int MAX_SLOTS = 1 << 26;
+
+    private ByteBuffer slots;
+
+    private int mask;
+
+    private int size;
+
+    /**
+     * Number of live and removed slots.
+     */
+    private int used;
+
+    OffHeapHashIndex(int expectedSize) {
+        allocate(ceilingPowerOfTwo(Math.max(16, expectedSize * 2)));
+    }
+
+    /**
+     * Gets the offset of the record of the key.
+     *
+     * @param hash key hash
+     * @param matcher tests whether the record at an offset belongs to the key
+     * @return record offset, or -1 if absent
+     */
+    long get(int hash, LongPredicate matcher) {
+        for (int index = hash & mask; ; index = (index + 1) & mask) {
+            long stored = slots.getLong(index * SLOT_LENGTH);
+            if (stored == EMPTY) {
+                return -1;
+            }
+            if (stored != REMOVED && slots.getInt(index * SLOT_LENGTH + 8) == hash
+                && matcher.test(stored - 1)) {
+                return stored - 1;
+            }
+        }
+    }
+
+    /**
+     * Puts the offset of the record of the key.
+     *
+     * @param hash key hash
+     * @param offset record offset, must not be negative
+     * @param matcher tests whether the record at an offset belongs to the key
+     * @return previous record offset, or -1 if absent
+     */
+    long put(int hash, long offset, LongPredicate matcher) {
+        int removedIndex = -1;
+        for (int index = hash & mask; ; index = (index + 1) & mask) {
+            long stored = slots.getLong(index * SLOT_LENGTH);
+            if (stored == EMPTY) {
+                if (removedIndex < 0) {
+                    used++;
+                    removedIndex = index;
+                }
+                writeSlot(removedIndex, hash, offset);
+                size++;
+                if (used > (mask + 1) * 7L / 10) {
+                    resize();
+                }
+                return -1;
+            }
+            if (stored == REMOVED) {
+                if (removedIndex < 0) {
+                    removedIndex = index;
+                }
+            } else if (slots.getInt(index * SLOT_LENGTH + 8) == hash
+                && matcher.test(stored - 1)) {
+                writeSlot(index, hash, offset);
+                return stored - 1;
+            }
+        }
+    }
+
+    /**
+     * Removes the key.
+     *
+     * @param hash key hash
+     * @param matcher tests whether the record at an offset belongs to the key
+     * @return removed record offset, or -1 if absent
+     */
+    long remove(int hash, LongPredicate matcher) {
+        for (int index = hash & mask; ; index = (index + 1) & mask) {
+            long stored = slots.getLong(index * SLOT_LENGTH);
+            if (stored == EMPTY) {
+                return -1;
+            }
+            if (stored != REMOVED && slots.getInt(index * SLOT_LENGTH + 8) == hash
+                && matcher.test(stored - 1)) {
+                slots.putLong(index * SLOT_LENGTH, REMOVED);
+                size--;
+                return stored - 1;
+            }
+        }
+    }
+
+    /**
+     * Performs the action for the offset of every record in the index.
+     *
+     * @param action action
+     */
+    void forEach(LongConsumer action) {
+        for (int index = 0; index <= mask; index++) {
+            long stored = slots.getLong(index * SLOT_LENGTH);
+            if (stored != EMPTY && stored != REMOVED) {
+                action.accept(stored - 1);
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void writeSlot(int index, int hash, long offset) {
+        slots.putLong(index * SLOT_LENGTH, offset + 1);
+        slots.putInt(index * SLOT_LENGTH + 8, hash);
+    }
+
+    private void resize() {
+        ByteBuffer previous = slots;
+        int previousSlots = mask + 1;
+        int newSlots = size * 2 > previousSlots ? previousSlots * 2 : previousSlots;
+        if (newSlots > MAX_SLOTS) {
+            throw new IllegalStateException("Off-heap hash index is full");
+        }
+
+        // Rehash live slots only, removed slots are dropped
+        allocate(newSlots);
+        for (int i = 0; i < previousSlots; i++) {
+            long stored = previous.getLong(i * SLOT_LENGTH);
+            if (stored == EMPTY || stored == REMOVED) {
+                continue;
+            }
+            int hash = previous.getInt(i * SLOT_LENGTH + 8);
+            int index = hash & mask;
+            while (slots.getLong(index * SLOT_LENGTH) != EMPTY) {
+                index = (index + 1) & mask;
+            }
+            slots.putLong(index * SLOT_LENGTH, stored);
+            slots.putInt(index * SLOT_LENGTH + 8, hash);
+            size++;
+            used++;
+        }
+    }
+
+    private void allocate(int slotCount) {
+        slots = ByteBuffer.allocateDirect(slotCount * SLOT_LENGTH);
+        mask = slotCount - 1;
+        size = 0;
+        used = 0;
+    }
+
+    private static int ceilingPowerOfTwo(int value) {
+        return 1 << -Integer.numberOfLeadingZeros(value - 1);
+    }
+}
@@ -0,0 +1,399 @@
+package run.halo.app.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.GZIPOutputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import run.halo.app.config.properties.HaloProperties;
+
+/**
+ * Cache of rendered content pages, storing gzip compressed bodies.
+ *
+ * <p>While a page is being rendered, the models and template directives record what it depends
+ * on into the current request, and changes evict the pages depending on them. A page recording
+ * nothing is assumed to depend on the post list. Side effects of rendering, such as publishing
+ * visit events, are recorded as hit actions and run again whenever the page is hit. Pages are
+ * also evicted when they expire or when the compressed size of all pages exceeds the maximum
+ * weight.
+ *
+ * <p>Every eviction starts a new generation, and a page rendered in an earlier generation is
+ * never put, so that a page rendered concurrently with a change cannot outlive the eviction.
+ *
+ * @author guqing
+ */
+@Slf4j
+@Component
+public class PageCache {
+
+    /**
+     * Dependency on the list of posts, including their counts and archives.
+     */
+    public static final String POSTS_DEPENDENCY = "posts";
+
+    private static final String POST_DEPENDENCY_PREFIX = "post:";
+
+    private static final String DEPENDENCIES_ATTRIBUTE =
+        PageCache.class.getName() + ".DEPENDENCIES";
+
+    private static final String UNCACHEABLE_ATTRIBUTE = PageCache.class.getName() + ".UNCACHEABLE";
+
+    private static final String HIT_ACTIONS_ATTRIBUTE = PageCache.class.getName() + ".HIT_ACTIONS";
+
+    private final Map<String, CachedPage> pages = new ConcurrentHashMap<>();
+
+    private final Map<String, Set<String>> dependentKeys = new ConcurrentHashMap<>();
+
+    private final AtomicLong weight = new AtomicLong();
+
+    /**
+     * Puts hold the read lock, evictions hold the write lock.
+     */
+    private final ReadWriteLock generationLock = new ReentrantReadWriteLock();
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final long maximumWeight;
+
+    private final long timeout;
+
+    public PageCache(HaloProperties haloProperties) {
+        this.maximumWeight = haloProperties.getPageCacheMaximumWeight().toBytes();
+        this.timeout = haloProperties.getPageCacheTimeout().toMillis();
+    }
+
+    /**
+     * Builds the dependency on a post or a sheet.
+     *
+     * @param postId post id must not be null
+     * @return dependency
+     */
+    @NonNull
+    public static String postDependency(@NonNull Integer postId) {
+        Assert.notNull(postId, "Post id must not be null");
+
+        return POST_DEPENDENCY_PREFIX + postId;
+    }
+
+    /**
+     * Records a dependency of the page being rendered in the current request.
+     *
+     * @param dependency dependency must not be blank
+     */
+    @SuppressWarnings("unchecked")
+    public static void addDependency(@NonNull String dependency) {
+        Assert.hasText(dependency, "Dependency must not be blank");
+
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return;
+        }
+        Set<String> dependencies = (Set<String>) attributes
+            .getAttribute(DEPENDENCIES_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (dependencies == null) {
+            dependencies = new LinkedHashSet<>();
+            attributes.setAttribute(DEPENDENCIES_ATTRIBUTE, dependencies,
+                RequestAttributes.SCOPE_REQUEST);
+        }
+        dependencies.add(dependency);
+    }
+
+    /**
+     * Records a dependency on a post or a sheet of the page being rendered in the current
+     * request.
+     *
+     * @param postId post id must not be null
+     */
+    public static void addPostDependency(@NonNull Integer postId) {
+        addDependency(postDependency(postId));
+    }
+
+    /**
+     * Records an action to run whenever the page being rendered in the current request is hit.
+     *
+     * @param hitAction hit action must not be null
+     */
+    @SuppressWarnings("unchecked")
+    public static void addHitAction(@NonNull Runnable hitAction) {
+        Assert.notNull(hitAction, "Hit action must not be null");
+
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return;
+        }
+        List<Runnable> hitActions = (List<Runnable>) attributes
+            .getAttribute(HIT_ACTIONS_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (hitActions == null) {
+            hitActions = new ArrayList<>();
+            attributes
+                .setAttribute(HIT_ACTIONS_ATTRIBUTE, hitActions, RequestAttributes.SCOPE_REQUEST);
+        }
+        hitActions.add(hitAction);
+    }
+
+    /**
+     * Marks the page being rendered in the current request as uncacheable, because it differs
+     * from visitor to visitor.
+     */
+    public static void markUncacheable() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes
+                .setAttribute(UNCACHEABLE_ATTRIBUTE, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    /**
+     * Gets the recorded dependencies of the page rendered in the given request attributes.
+     *
+     * @param attributes request attributes must not be null
+     * @return dependencies, or the post list if nothing is recorded
+     */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    public static Set<String> getDependencies(@NonNull RequestAttributes attributes) {
+        Set<String> dependencies = (Set<String>) attributes
+            .getAttribute(DEPENDENCIES_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (dependencies == null || dependencies.isEmpty()) {
+            return Collections.singleton(POSTS_DEPENDENCY);
+        }
+        return dependencies;
+    }
+
+    /**
+     * Gets the recorded hit actions of the page rendered in the given request attributes.
+     *
+     * @param attributes request attributes must not be null
+     * @return hit actions
+     */
+    @NonNull
+    @SuppressWarnings("unchecked")
+    public static List<Runnable> getHitActions(@NonNull RequestAttributes attributes) {
+        List<Runnable> hitActions = (List<Runnable>) attributes
+            .getAttribute(HIT_ACTIONS_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        return hitActions == null ? Collections.emptyList() : hitActions;
+    }
+
+    /**
+     * Checks whether the page rendered in the given request attributes is marked uncacheable.
+     *
+     * @param attributes request attributes must not be null
+     * @return true if uncacheable
+     */
+    public static boolean isUncacheable(@NonNull RequestAttributes attributes) {
+        return attributes
+            .getAttribute(UNCACHEABLE_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) != null;
+    }
+
+    /**
+     * Gets the current generation, which should be taken before rendering a page to put.
+     *
+     * @return current generation
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Gets a page.
+     *
+     * @param key page key must not be blank
+     * @return an optional page
+     */
+    @NonNull
+    public Optional<CachedPage> get(@NonNull String key) {
+        CachedPage page = pages.get(key);
+        if (page == null) {
+            return Optional.empty();
+        }
+        if (page.expireAt < System.currentTimeMillis()) {
+            remove(key, page);
+            return Optional.empty();
+        }
+        return Optional.of(page);
+    }
+
+    /**
+     * Compresses and puts a page, unless anything has been evicted since the given generation.
+     *
+     * @param key page key must not be blank
+     * @param contentType content type of the page
+     * @param body uncompressed body must not be null
+     * @param dependencies dependencies of the page must not be empty
+     * @param hitActions hit actions of the page must not be null
+     * @param renderGeneration generation taken before rendering the page
+     */
+    public void put(@NonNull String key, @Nullable String contentType, @NonNull byte[] body,
+        @NonNull Set<String> dependencies, @NonNull List<Runnable> hitActions,
+        long renderGeneration) {
+        Assert.hasText(key, "Page key must not be blank");
+        Assert.notNull(body, "Page body must not be null");
+        Assert.notEmpty(dependencies, "Page dependencies must not be empty");
+        Assert.notNull(hitActions, "Hit actions must not be null");
+
+        CachedPage page;
+        try {
+            page = new CachedPage(contentType, compress(body), new LinkedHashSet<>(dependencies),
+                new ArrayList<>(hitActions), System.currentTimeMillis() + timeout);
+        } catch (IOException e) {
+            log.warn("Failed to compress page: [{}]", key, e);
+            return;
+        }
+        if (page.body.length > maximumWeight) {
+            return;
+        }
+
+        generationLock.readLock().lock();
+        try {
+            if (generation.get() != renderGeneration) {
+                log.debug("Skipped putting stale page: [{}]", key);
+                return;
+            }
+            page.dependencies.forEach(dependency -> dependentKeys
+                .computeIfAbsent(dependency, d -> ConcurrentHashMap.newKeySet()).add(key));
+            CachedPage previousPage = pages.put(key, page);
+            weight.addAndGet(page.body.length);
+            if (previousPage != null) {
+                weight.addAndGet(-previousPage.body.length);
+            }
+        } finally {
+            generationLock.readLock().unlock();
+        }
+
+        // Evict arbitrary pages until the weight is under the maximum
+        Iterator<Map.Entry<String, CachedPage>> iterator = pages.entrySet().iterator();
+        while (weight.get() > maximumWeight && iterator.hasNext()) {
+            Map.Entry<String, CachedPage> entry = iterator.next();
+            remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Evicts the pages depending on the given dependency.
+     *
+     * @param dependency dependency must not be blank
+     */
+    public void evict(@NonNull String dependency) {
+        Assert.hasText(dependency, "Dependency must not be blank");
+
+        generationLock.writeLock().lock();
+        try {
+            generation.incrementAndGet();
+            Set<String> keys = dependentKeys.remove(dependency);
+            if (keys != null) {
+                keys.forEach(key -> {
+                    CachedPage page = pages.get(key);
+                    if (page != null) {
+                        remove(key, page);
+                    }
+                });
+            }
+        } finally {
+            generationLock.writeLock().unlock();
+        }
+        log.debug("Evicted pages depending on: [{}]", dependency);
+    }
+
+    /**
+     * Evicts all pages.
+     */
+    public void evictAll() {
+        generationLock.writeLock().lock();
+        try {
+            generation.incrementAndGet();
+            pages.clear();
+            dependentKeys.clear();
+            weight.set(0);
+        } finally {
+            generationLock.writeLock().unlock();
+        }
+        log.debug("Evicted all pages");
+    }
+
+    private void remove(String key, CachedPage page) {
+        if (pages.remove(key, page)) {
+            weight.addAndGet(-page.body.length);
+            page.dependencies.forEach(dependency -> {
+                Set<String> keys = dependentKeys.get(dependency);
+                if (keys != null) {
+                    keys.remove(key);
+                }
+            });
+        }
+    }
+
+    @NonNull
+    private static byte[] compress(@NonNull byte[] body) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(body);
+        }
+        return compressed.toByteArray();
+    }
+
+    /**
+     * Cached page.
+     *
+     * @author guqing
+     */
+    public static final class CachedPage {
+
+        private final String contentType;
+
+        private final byte[] body;
+
+        private final Set<String> dependencies;
+
+        private final List<Runnable> hitActions;
+
+        private final long expireAt;
+
+        private CachedPage(String contentType, byte[] body, Set<String> dependencies,
+            List<Runnable> hitActions, long expireAt) {
+            this.contentType = contentType;
+            this.body = body;
+            this.dependencies = dependencies;
+            this.hitActions = hitActions;
+            this.expireAt = expireAt;
+        }
+
+        /**
+         * Runs the hit actions of the page in the current request.
+         */
+        public void hit() {
+            hitActions.forEach(Runnable::run);
+        }
+
+        @Nullable
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * Gets the gzip compressed body.
+         *
+         * @return compressed body
+         */
+        @NonNull
+        public byte[] getBody() {
+            return body;
+        }
+    }
+}
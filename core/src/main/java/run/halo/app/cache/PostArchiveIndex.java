@@ -0,0 +1,205 @@
+package run.halo.app.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.BeanUtils;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import run.halo.app.model.entity.Post;
+
+/**
+ * In-memory index of the published posts for the archives.
+ *
+ * <p>The posts are held as compact copies without the original and the format content, which
+ * carry the summary generated at copy time instead, sorted by create time descending, so that
+ * the posts of every year and month of the archives are contiguous and in archive order. The
+ * index is maintained incrementally from the post lifecycle and from every visit and like
+ * increase, including the buffered likes once they are flushed. Rebuilding it fills a new
+ * snapshot, which replaces the current one once it is complete.
+ *
+ * @author guqing
+ */
+@Slf4j
+@Component
+public class PostArchiveIndex {
+
+    private static final Comparator<ArchiveKey> ARCHIVE_ORDER =
+        Comparator.comparingLong((ArchiveKey key) -> key.createTime)
+            .thenComparingInt(key -> key.id)
+            .reversed();
+
+    private volatile Snapshot snapshot = new Snapshot();
+
+    private volatile boolean built;
+
+    /**
+     * Whether the index has been built.
+     *
+     * @return true if the index has been built
+     */
+    public boolean isBuilt() {
+        return built;
+    }
+
+    /**
+     * Lists the compact copies of the published posts in archive order.
+     *
+     * @return a list of compact posts
+     */
+    @NonNull
+    public List<Post> list() {
+        return new ArrayList<>(snapshot.posts.values());
+    }
+
+    /**
+     * Indexes a published post, replacing its previous copy.
+     *
+     * @param post post must not be null
+     * @param summary summary of the post must not be null
+     */
+    public synchronized void put(@NonNull Post post, @NonNull String summary) {
+        Assert.notNull(post, "Post must not be null");
+        Assert.notNull(post.getId(), "Post id must not be null");
+        Assert.notNull(post.getCreateTime(), "Post create time must not be null");
+        Assert.notNull(summary, "Summary must not be null");
+
+        snapshot.put(post, summary);
+    }
+
+    /**
+     * Removes a post.
+     *
+     * @param postId post id must not be null
+     */
+    public synchronized void remove(@NonNull Integer postId) {
+        Assert.notNull(postId, "Post id must not be null");
+
+        Snapshot current = snapshot;
+        ArchiveKey key = current.keys.remove(postId);
+        if (key != null) {
+            current.posts.remove(key);
+        }
+    }
+
+    /**
+     * Replaces all the indexed posts, loading the published posts in batches.
+     *
+     * @param batchLoader loader of the next batch of published posts after an id, returning an
+     * empty list once all posts have been loaded, must not be null
+     * @param summarizer summarizer of the posts must not be null
+     */
+    public synchronized void rebuild(@NonNull Function<Integer, List<Post>> batchLoader,
+        @NonNull Function<Post, String> summarizer) {
+        Assert.notNull(batchLoader, "Batch loader must not be null");
+        Assert.notNull(summarizer, "Summarizer must not be null");
+
+        Snapshot rebuilt = new Snapshot();
+        List<Post> batch = batchLoader.apply(0);
+        while (!batch.isEmpty()) {
+            batch.forEach(post -> rebuilt.put(post, summarizer.apply(post)));
+            int lastId = batch.stream().mapToInt(Post::getId).max().getAsInt();
+            batch = batchLoader.apply(lastId);
+        }
+        snapshot = rebuilt;
+        built = true;
+
+        log.debug("Indexed [{}] posts for archives", rebuilt.posts.size());
+    }
+
+    /**
+     * Increases the visits of the indexed posts.
+     *
+     * @param visits visit deltas keyed by post id must not be null
+     */
+    public synchronized void increaseVisits(@NonNull Map<Integer, Long> visits) {
+        Assert.notNull(visits, "Visits must not be null");
+
+        visits.forEach((postId, delta) -> {
+            Post post = get(postId);
+            if (post != null) {
+                post.setVisits(post.getVisits() + delta);
+            }
+        });
+    }
+
+    /**
+     * Increases the likes of the indexed posts.
+     *
+     * @param likes likes deltas keyed by post id must not be null
+     */
+    public synchronized void increaseLikes(@NonNull Map<Integer, Long> likes) {
+        Assert.notNull(likes, "Likes must not be null");
+
+        likes.forEach((postId, delta) -> {
+            Post post = get(postId);
+            if (post != null) {
+                post.setLikes(post.getLikes() + delta);
+            }
+        });
+    }
+
+    private Post get(Integer postId) {
+        Snapshot current = snapshot;
+        ArchiveKey key = current.keys.get(postId);
+        return key == null ? null : current.posts.get(key);
+    }
+
+    private static class Snapshot {
+
+        private final NavigableMap<ArchiveKey, Post> posts =
+            new ConcurrentSkipListMap<>(ARCHIVE_ORDER);
+
+        private final Map<Integer, ArchiveKey> keys = new ConcurrentHashMap<>();
+
+        private void put(Post post, String summary) {
+            Post compactPost = new Post();
+            BeanUtils.copyProperties(post, compactPost, "originalContent", "formatContent");
+            // The summary cannot be generated from the copy without the format content
+            compactPost.setGeneratedSummary(summary);
+
+            ArchiveKey key = new ArchiveKey(post.getCreateTime().getTime(), post.getId());
+            ArchiveKey previousKey = keys.put(post.getId(), key);
+            if (previousKey != null && !previousKey.equals(key)) {
+                posts.remove(previousKey);
+            }
+            posts.put(key, compactPost);
+        }
+    }
+
+    private static class ArchiveKey {
+
+        private final long createTime;
+
+        private final int id;
+
+        private ArchiveKey(long createTime, int id) {
+            this.createTime = createTime;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ArchiveKey)) {
+                return false;
+            }
+            ArchiveKey that = (ArchiveKey) o;
+            return createTime == that.createTime && id == that.id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(createTime) + id;
+        }
+    }
+}
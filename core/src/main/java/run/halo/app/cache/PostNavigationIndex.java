@@ -0,0 +1,171 @@
+package run.halo.app.cache;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import run.halo.app.model.dto.post.BasePostSimpleDTO;
+
+/**
+ * In-memory index of the published posts in the default post order, resolving the previous and
+ * the next post of a post.
+ *
+ * <p>The index is an immutable snapshot, built lazily and replaced as a whole once it has been
+ * invalidated, so that lookups never lock. Visits and other counters of the cached neighbour
+ * dtos go stale, so the snapshot also expires after a timeout.
+ *
+ * @author guqing
+ */
+@Slf4j
+@Component
+public class PostNavigationIndex {
+
+    private static final long TIMEOUT = TimeUnit.MINUTES.toMillis(5);
+
+    private final Object lock = new Object();
+
+    private volatile PostNavigation navigation;
+
+    private long generation;
+
+    /**
+     * Gets the navigation of the published posts, building it if it is absent or expired.
+     *
+     * @param indexSort current index sort property must not be blank
+     * @param loader loader of the published post ids in the default post order must not be null
+     * @return post navigation
+     */
+    @NonNull
+    public PostNavigation get(@NonNull String indexSort, @NonNull Supplier<List<Integer>> loader) {
+        Assert.hasText(indexSort, "Index sort must not be blank");
+        Assert.notNull(loader, "Loader must not be null");
+
+        PostNavigation current = navigation;
+        if (current != null && current.isValid(indexSort)) {
+            return current;
+        }
+
+        long loadingGeneration;
+        synchronized (lock) {
+            loadingGeneration = generation;
+        }
+
+        PostNavigation built = new PostNavigation(indexSort, loader.get());
+        log.debug("Built post navigation of [{}] posts sorted by [{}]", built.ids.length,
+            indexSort);
+
+        synchronized (lock) {
+            // Never store a navigation loaded before an invalidation
+            if (loadingGeneration == generation) {
+                navigation = built;
+            }
+        }
+        return built;
+    }
+
+    /**
+     * Invalidates the navigation, which will be built again on the next lookup.
+     */
+    public void invalidate() {
+        synchronized (lock) {
+            generation++;
+            navigation = null;
+        }
+    }
+
+    /**
+     * Navigation snapshot of the published posts.
+     */
+    public static class PostNavigation {
+
+        private final String indexSort;
+
+        private final long expireAt;
+
+        private final Integer[] ids;
+
+        private final Map<Integer, Integer> positions;
+
+        private final Map<Integer, BasePostSimpleDTO> simples = new ConcurrentHashMap<>();
+
+        private PostNavigation(String indexSort, List<Integer> ids) {
+            this.indexSort = indexSort;
+            this.expireAt = System.currentTimeMillis() + TIMEOUT;
+            this.ids = ids.toArray(new Integer[0]);
+            this.positions = new HashMap<>(this.ids.length * 4 / 3 + 1);
+            for (int i = 0; i < this.ids.length; i++) {
+                positions.put(this.ids[i], i);
+            }
+        }
+
+        private boolean isValid(String indexSort) {
+            return this.indexSort.equals(indexSort) && System.currentTimeMillis() < expireAt;
+        }
+
+        /**
+         * Whether the post is a navigable published post.
+         *
+         * @param postId post id must not be null
+         * @return true if the post is indexed
+         */
+        public boolean contains(@NonNull Integer postId) {
+            return positions.containsKey(postId);
+        }
+
+        /**
+         * Gets the id of the previous post, which is listed before the post.
+         *
+         * @param postId post id must not be null
+         * @return an optional previous post id
+         */
+        @NonNull
+        public Optional<Integer> getPrevId(@NonNull Integer postId) {
+            return getId(postId, -1);
+        }
+
+        /**
+         * Gets the id of the next post, which is listed after the post.
+         *
+         * @param postId post id must not be null
+         * @return an optional next post id
+         */
+        @NonNull
+        public Optional<Integer> getNextId(@NonNull Integer postId) {
+            return getId(postId, 1);
+        }
+
+        /**
+         * Gets the cached simple dto of a post, converting it on the first lookup.
+         *
+         * @param postId post id must not be null
+         * @param converter converter of the post id to the simple dto, returning null if the
+         * post does not exist, must not be null
+         * @return an optional simple post dto
+         */
+        @NonNull
+        public Optional<BasePostSimpleDTO> getSimple(@NonNull Integer postId,
+            @NonNull Function<Integer, BasePostSimpleDTO> converter) {
+            return Optional.ofNullable(simples.computeIfAbsent(postId, converter));
+        }
+
+        private Optional<Integer> getId(Integer postId, int offset) {
+            Integer position = positions.get(postId);
+            if (position == null) {
+                return Optional.empty();
+            }
+            int neighbour = position + offset;
+            if (neighbour < 0 || neighbour >= ids.length) {
+                return Optional.empty();
+            }
+            return Optional.of(ids[neighbour]);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package run.halo.app.cache;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import run.halo.app.model.projection.PostLocationProjection;
+import run.halo.app.utils.DateUtils;
+
+/**
+ * In-memory index resolving post permalinks to post ids.
+ *
+ * <p>Slugs are unique, so all the permalink types containing a slug are resolved by the slug,
+ * and the year, month and day of the permalink are matched against the create time of the
+ * indexed post, as the full paths of the posts are built.
+ *
+ * @author guqing
+ */
+@Slf4j
+@Component
+public class PostPermalinkIndex {
+
+    private final Map<String, PostPermalink> permalinks = new ConcurrentHashMap<>();
+
+    private final Map<Integer, String> slugs = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the permalink of a post by slug.
+     *
+     * @param slug post slug must not be null
+     * @return post permalink, null if the slug is not indexed
+     */
+    @Nullable
+    public PostPermalink get(@NonNull String slug) {
+        Assert.notNull(slug, "Slug must not be null");
+
+        return permalinks.get(slug);
+    }
+
+    /**
+     * Indexes the permalink of a post, replacing the permalink of its previous slug.
+     *
+     * @param id post id must not be null
+     * @param slug post slug must not be null
+     * @param createTime post create time must not be null
+     * @return indexed post permalink
+     */
+    @NonNull
+    public synchronized PostPermalink put(@NonNull Integer id, @NonNull String slug,
+        @NonNull Date createTime) {
+        Assert.notNull(id, "Post id must not be null");
+        Assert.notNull(slug, "Slug must not be null");
+        Assert.notNull(createTime, "Create time must not be null");
+
+        String previousSlug = slugs.put(id, slug);
+        if (previousSlug != null && !previousSlug.equals(slug)) {
+            permalinks.remove(previousSlug);
+        }
+        PostPermalink permalink = new PostPermalink(id, createTime);
+        permalinks.put(slug, permalink);
+        return permalink;
+    }
+
+    /**
+     * Removes the permalink of a post.
+     *
+     * @param id post id must not be null
+     */
+    public synchronized void remove(@NonNull Integer id) {
+        Assert.notNull(id, "Post id must not be null");
+
+        String slug = slugs.remove(id);
+        if (slug != null) {
+            permalinks.remove(slug);
+        }
+    }
+
+    /**
+     * Replaces all the indexed permalinks.
+     *
+     * @param locations post locations must not be null
+     */
+    public synchronized void rebuild(@NonNull Collection<PostLocationProjection> locations) {
+        Assert.notNull(locations, "Post locations must not be null");
+
+        permalinks.clear();
+        slugs.clear();
+        locations.forEach(location -> put(location.getId(), location.getSlug(),
+            location.getCreateTime()));
+
+        log.debug("Indexed permalinks of [{}] posts", locations.size());
+    }
+
+    /**
+     * Permalink of an indexed post.
+     */
+    @Getter
+    public static class PostPermalink {
+
+        private final Integer id;
+
+        private final int year;
+
+        private final int month;
+
+        private final int day;
+
+        private PostPermalink(Integer id, Date createTime) {
+            this.id = id;
+            this.year = DateUtils.year(createTime);
+            this.month = DateUtils.month(createTime) + 1;
+            this.day = DateUtils.dayOfMonth(createTime);
+        }
+
+        /**
+         * Whether the permalink matches the date parts of a url.
+         *
+         * @param year year, null to match any year
+         * @param month month starting from 1, null to match any month
+         * @param day day of month, null to match any day
+         * @return true if all the given date parts match
+         */
+        public boolean matches(@Nullable Integer year, @Nullable Integer month,
+            @Nullable Integer day) {
+            return (year == null || year == this.year)
+                && (month == null || month == this.month)
+                && (day == null || day == this.day);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package run.halo.app.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.lang.NonNull;
+
+/**
+ * Hierarchical timer wheel indexing the expiry time of cache keys.
+ *
+ * <p>Keys are hashed into the buckets of five wheels whose bucket spans are about 1 second,
+ * 1 minute, 1 hour, 1.5 days and 25 days. Advancing the wheel only visits the buckets whose
+ * time has elapsed, expiring their keys or cascading them into a finer wheel. Therefore the
+ * amortized cost of finding expired keys is proportional to the number of expired keys rather
+ * than to the size of the cache.
+ *
+ * <p>The wheel is an index only: callers must still check the real expiry time of a returned
+ * key before removing it, since the key may have been updated in the meantime.
+ *
+ * @param <K> cache key type
+ * @author guqing
+ */
+final class TimerWheel<K> {
+
+    private static final int[] BUCKETS = {64, 64, 32, 16, 1};
+
+    /**
+     * Spans of a bucket of each wheel in milliseconds, all powers of two.
+     */
+    private static final long[] SPANS = {
+        1L << 10, // 1.02s
+        1L << 16, // 1.09m
+        1L << 22, // 1.17h
+        1L << 27, // 1.55d
+        1L << 31, // 24.86d
+        1L << 31, // 24.86d
+    };
+
+    private static final long[] SHIFT = {
+        Long.numberOfTrailingZeros(SPANS[0]),
+        Long.numberOfTrailingZeros(SPANS[1]),
+        Long.numberOfTrailingZeros(SPANS[2]),
+        Long.numberOfTrailingZeros(SPANS[3]),
+        Long.numberOfTrailingZeros(SPANS[4]),
+    };
+
+    private final Entry<K>[][] wheel;
+
+    private final Map<K, Entry<K>> entries = new HashMap<>();
+
+    /**
+     * Time of the last advance in milliseconds.
+     */
+    private long time;
+
+    @SuppressWarnings("unchecked")
+    TimerWheel(long now) {
+        this.time = now;
+        this.wheel = new Entry[BUCKETS.length][];
+        for (int i = 0; i < BUCKETS.length; i++) {
+            wheel[i] = new Entry[BUCKETS[i]];
+            for (int j = 0; j < BUCKETS[i]; j++) {
+                wheel[i][j] = Entry.sentinel();
+            }
+        }
+    }
+
+    /**
+     * Schedules the key to expire at the given time, replacing its previous schedule.
+     *
+     * @param key key must not be null
+     * @param expireAt expiry time in milliseconds
+     */
+    synchronized void schedule(@NonNull K key, long expireAt) {
+        Entry<K> entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry<>(key);
+            entries.put(key, entry);
+        } else {
+            entry.unlink();
+        }
+        entry.expireAt = expireAt;
+        link(entry);
+    }
+
+    /**
+     * Removes the key from the index.
+     *
+     * @param key key must not be null
+     */
+    synchronized void cancel(@NonNull K key) {
+        Entry<K> entry = entries.remove(key);
+        if (entry != null) {
+            entry.unlink();
+        }
+    }
+
+    /**
+     * Advances the wheel to the given time and removes the keys which are due.
+     *
+     * @param now current time in milliseconds
+     * @return keys whose expiry time is not after the given time
+     */
+    @NonNull
+    synchronized List<K> advance(long now) {
+        long previousTime = time;
+        if (now <= previousTime) {
+            return Collections.emptyList();
+        }
+        time = now;
+
+        List<K> expired = new ArrayList<>();
+        for (int i = 0; i < SHIFT.length; i++) {
+            long previousTicks = previousTime >>> SHIFT[i];
+            long currentTicks = now >>> SHIFT[i];
+            long delta = currentTicks - previousTicks;
+            if (delta <= 0) {
+                break;
+            }
+            expire(i, previousTicks, delta, expired);
+        }
+        return expired;
+    }
+
+    /**
+     * Gets the number of scheduled keys.
+     *
+     * @return number of scheduled keys
+     */
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Removes all keys from the index.
+     */
+    synchronized void clear() {
+        entries.values().forEach(Entry::unlink);
+        entries.clear();
+    }
+
+    private void expire(int index, long previousTicks, long delta, List<K> expired) {
+        Entry<K>[] buckets = wheel[index];
+        int mask = buckets.length - 1;
+        int steps = (int) Math.min(1 + delta, buckets.length);
+        int start = (int) (previousTicks & mask);
+        int end = start + steps;
+        for (int i = start; i < end; i++) {
+            Entry<K> sentinel = buckets[i & mask];
+            Entry<K> entry = sentinel.next;
+            // Detach the whole bucket first, rescheduled entries may land in it again
+            sentinel.next = sentinel;
+            sentinel.prev = sentinel;
+            while (entry != sentinel) {
+                Entry<K> next = entry.next;
+                entry.prev = null;
+                entry.next = null;
+                if (entry.expireAt > time) {
+                    link(entry);
+                } else {
+                    entries.remove(entry.key);
+                    expired.add(entry.key);
+                }
+                entry = next;
+            }
+        }
+    }
+
+    private void link(Entry<K> entry) {
+        Entry<K> sentinel = findBucket(entry.expireAt);
+        entry.prev = sentinel.prev;
+        entry.next = sentinel;
+        sentinel.prev.next = entry;
+        sentinel.prev = entry;
+    }
+
+    private Entry<K> findBucket(long expireAt) {
+        // Already due keys go to the current bucket, which is visited by the next advance
+        long target = Math.max(expireAt, time);
+        long duration = target - time;
+        int length = wheel.length - 1;
+        for (int i = 0; i < length; i++) {
+            if (duration < SPANS[i + 1]) {
+                long ticks = target >>> SHIFT[i];
+                int index = (int) (ticks & (wheel[i].length - 1));
+                return wheel[i][index];
+            }
+        }
+        return wheel[length][0];
+    }
+
+    private static final class Entry<K> {
+
+        private final K key;
+
+        private long expireAt;
+
+        private Entry<K> prev;
+
+        private Entry<K> next;
+
+        private Entry(K key) {
+            this.key = key;
+        }
+
+        private static <K> Entry<K> sentinel() {
+            Entry<K> sentinel = new Entry<>(null);
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            return sentinel;
+        }
+
+        private void unlink() {
+            if (prev != null) {
+                prev.next = next;
+                next.prev = prev;
+                prev = null;
+                next = null;
+            }
+        }
+    }
+}
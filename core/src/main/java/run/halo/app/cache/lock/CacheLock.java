@@ -38,12 +38,27 @@ public @interface CacheLock {
     String value() default "";
 
     /**
-     * Expired time, default is 5.
+     * Expired time, default is 5. Without auto deletion, it is the period in which the permits
+     * are refilled.
      *
      * @return expired time
      */
     long expired() default 5;
 
+    /**
+     * Maximum number of invocations allowed at once without auto deletion, default is 1.
+     *
+     * @return burst size
+     */
+    int burst() default 1;
+
+    /**
+     * Number of invocations refilled in the expired time without auto deletion, default is 1.
+     *
+     * @return refilled permits
+     */
+    int permits() default 1;
+
     /**
      * Time unit, default is TimeUnit.SECONDS.
      *
@@ -59,7 +74,9 @@ public @interface CacheLock {
     String delimiter() default ":";
 
     /**
-     * Whether delete cache after method invocation.
+     * Whether delete cache after method invocation. If true, the lock only rejects concurrent
+     * invocations; otherwise invocations are rate limited by a token bucket of burst size,
+     * refilled with permits every expired time.
      *
      * @return true if delete cache after method invocation; false otherwise
      */
@@ -1,23 +1,26 @@
 package run.halo.app.cache.lock;
 
-import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.StringUtils;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.lang.NonNull;
-import org.springframework.util.Assert;
-import run.halo.app.cache.AbstractStringCacheStore;
 import run.halo.app.exception.FrequentAccessException;
-import run.halo.app.exception.ServiceException;
-import run.halo.app.utils.ServletUtils;
 
 /**
  * Interceptor for cache lock annotation.
  *
+ * <p>Locks are held locally: a method with auto deletion rejects concurrent invocations of the
+ * same key, other methods are rate limited by a token bucket per key. Neither touches the cache
+ * store, and the key builder of a method is compiled on its first invocation.
+ *
  * @author johnniang
  * @date 3/28/19
  */
@@ -26,102 +29,66 @@ import run.halo.app.utils.ServletUtils;
 @Configuration
 public class CacheLockInterceptor {
 
-    private static final String CACHE_LOCK_PREFIX = "cache_lock_";
+    /**
+     * Idle bucket eviction period. (ms)
+     */
+    private static final long EVICTION_PERIOD = 60 * 1000;
+
+    private final ConcurrentHashMap<Method, CacheLockKeyBuilder> keyBuilders =
+        new ConcurrentHashMap<>();
+
+    private final TokenBucketTable tokenBuckets = new TokenBucketTable();
 
-    private static final String CACHE_LOCK_VALUE = "locked";
+    private final Set<String> lockedKeys = ConcurrentHashMap.newKeySet();
 
-    private final AbstractStringCacheStore cacheStore;
+    private final Timer timer;
 
-    public CacheLockInterceptor(AbstractStringCacheStore cacheStore) {
-        this.cacheStore = cacheStore;
+    public CacheLockInterceptor() {
+        timer = new Timer();
+        timer.scheduleAtFixedRate(new TimerTask() {
+            @Override
+            public void run() {
+                tokenBuckets.evictIdle();
+            }
+        }, EVICTION_PERIOD, EVICTION_PERIOD);
+    }
+
+    @PreDestroy
+    public void preDestroy() {
+        timer.cancel();
     }
 
     @Around("@annotation(run.halo.app.cache.lock.CacheLock)")
     public Object interceptCacheLock(ProceedingJoinPoint joinPoint) throws Throwable {
-        // Get method signature
-        MethodSignature methodSignature = (MethodSignature) joinPoint.getSignature();
-
-        log.debug("Starting locking: [{}]", methodSignature.toString());
-
-        // Get cache lock
-        CacheLock cacheLock = methodSignature.getMethod().getAnnotation(CacheLock.class);
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        CacheLockKeyBuilder keyBuilder = keyBuilders.get(method);
+        if (keyBuilder == null) {
+            keyBuilder = keyBuilders.computeIfAbsent(method, CacheLockKeyBuilder::compile);
+        }
 
         // Build cache lock key
-        String cacheLockKey = buildCacheLockKey(cacheLock, joinPoint);
+        String cacheLockKey = keyBuilder.build(joinPoint.getArgs());
 
         log.debug("Built lock key: [{}]", cacheLockKey);
 
-
-        try {
-            // Get from cache
-            Boolean cacheResult = cacheStore
-                .putIfAbsent(cacheLockKey, CACHE_LOCK_VALUE, cacheLock.expired(),
-                    cacheLock.timeUnit());
-
-            if (cacheResult == null) {
-                throw new ServiceException("Unknown reason of cache " + cacheLockKey)
-                    .setErrorData(cacheLockKey);
-            }
-
-            if (!cacheResult) {
+        if (!keyBuilder.getCacheLock().autoDelete()) {
+            if (!tokenBuckets.tryAcquire(cacheLockKey, keyBuilder.getEmissionInterval(),
+                keyBuilder.getBurstTolerance())) {
                 throw new FrequentAccessException("访问过于频繁，请稍后再试！").setErrorData(cacheLockKey);
             }
-
-            // Proceed the method
             return joinPoint.proceed();
-        } finally {
-            // Delete the cache
-            if (cacheLock.autoDelete()) {
-                cacheStore.delete(cacheLockKey);
-                log.debug("Deleted the cache lock: [{}]", cacheLock);
-            }
         }
-    }
-
-    private String buildCacheLockKey(@NonNull CacheLock cacheLock,
-        @NonNull ProceedingJoinPoint joinPoint) {
-        Assert.notNull(cacheLock, "Cache lock must not be null");
-        Assert.notNull(joinPoint, "Proceeding join point must not be null");
-
-        // Get the method
-        MethodSignature methodSignature = (MethodSignature) joinPoint.getSignature();
-
-        // Build the cache lock key
-        StringBuilder cacheKeyBuilder = new StringBuilder(CACHE_LOCK_PREFIX);
-
-        String delimiter = cacheLock.delimiter();
 
-        if (StringUtils.isNotBlank(cacheLock.prefix())) {
-            cacheKeyBuilder.append(cacheLock.prefix());
-        } else {
-            cacheKeyBuilder.append(methodSignature.getMethod().toString());
+        if (!lockedKeys.add(cacheLockKey)) {
+            throw new FrequentAccessException("访问过于频繁，请稍后再试！").setErrorData(cacheLockKey);
         }
-
-        // Handle cache lock key building
-        Annotation[][] parameterAnnotations = methodSignature.getMethod().getParameterAnnotations();
-
-        for (int i = 0; i < parameterAnnotations.length; i++) {
-            log.debug("Parameter annotation[{}] = {}", i, parameterAnnotations[i]);
-
-            for (int j = 0; j < parameterAnnotations[i].length; j++) {
-                Annotation annotation = parameterAnnotations[i][j];
-                log.debug("Parameter annotation[{}][{}]: {}", i, j, annotation);
-                if (annotation instanceof CacheParam) {
-                    // Get current argument
-                    Object arg = joinPoint.getArgs()[i];
-                    log.debug("Cache param args: [{}]", arg);
-
-                    // Append to the cache key
-                    cacheKeyBuilder.append(delimiter).append(arg.toString());
-                }
-            }
-        }
-
-        if (cacheLock.traceRequest()) {
-            // Append http request info
-            cacheKeyBuilder.append(delimiter).append(ServletUtils.getRequestIp());
+        try {
+            // Proceed the method
+            return joinPoint.proceed();
+        } finally {
+            // Release the lock
+            lockedKeys.remove(cacheLockKey);
+            log.debug("Released the cache lock: [{}]", cacheLockKey);
         }
-
-        return cacheKeyBuilder.toString();
     }
 }
@@ -0,0 +1,116 @@
+package run.halo.app.cache.lock;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.lang.NonNull;
+import org.springframework.util.Assert;
+import run.halo.app.utils.ServletUtils;
+
+/**
+ * Cache lock key builder compiled once per method, so that invocations neither read annotations
+ * nor call {@link Method#toString()}.
+ *
+ * @author guqing
+ */
+final class CacheLockKeyBuilder {
+
+    private static final String CACHE_LOCK_PREFIX = "cache_lock_";
+
+    private static final int[] NO_PARAMETERS = new int[0];
+
+    private final CacheLock cacheLock;
+
+    private final String prefix;
+
+    private final String delimiter;
+
+    private final int[] cacheParamIndexes;
+
+    private final long emissionInterval;
+
+    private final long burstTolerance;
+
+    private CacheLockKeyBuilder(CacheLock cacheLock, String prefix, int[] cacheParamIndexes) {
+        this.cacheLock = cacheLock;
+        this.prefix = prefix;
+        this.delimiter = cacheLock.delimiter();
+        this.cacheParamIndexes = cacheParamIndexes;
+        this.emissionInterval =
+            Math.max(1, cacheLock.timeUnit().toNanos(cacheLock.expired()) / cacheLock.permits());
+        this.burstTolerance = emissionInterval * (cacheLock.burst() - 1);
+    }
+
+    /**
+     * Compiles the key builder of the method.
+     *
+     * @param method method annotated with {@link CacheLock} must not be null
+     * @return cache lock key builder
+     */
+    @NonNull
+    static CacheLockKeyBuilder compile(@NonNull Method method) {
+        Assert.notNull(method, "Method must not be null");
+
+        // Merged annotation resolves the alias of prefix and value
+        CacheLock cacheLock = AnnotatedElementUtils.findMergedAnnotation(method, CacheLock.class);
+        Assert.notNull(cacheLock, "Method " + method + " is not annotated with cache lock");
+        Assert.isTrue(cacheLock.burst() > 0, "Cache lock burst must be greater than 0");
+        Assert.isTrue(cacheLock.permits() > 0, "Cache lock permits must be greater than 0");
+
+        String prefix = CACHE_LOCK_PREFIX
+            + (StringUtils.isNotBlank(cacheLock.prefix()) ? cacheLock.prefix() : method.toString());
+
+        List<Integer> indexes = new ArrayList<>();
+        Annotation[][] parameterAnnotations = method.getParameterAnnotations();
+        for (int i = 0; i < parameterAnnotations.length; i++) {
+            for (Annotation annotation : parameterAnnotations[i]) {
+                if (annotation instanceof CacheParam) {
+                    indexes.add(i);
+                }
+            }
+        }
+        int[] cacheParamIndexes = indexes.isEmpty() ? NO_PARAMETERS
+            : indexes.stream().mapToInt(Integer::intValue).toArray();
+
+        return new CacheLockKeyBuilder(cacheLock, prefix, cacheParamIndexes);
+    }
+
+    /**
+     * Builds the cache lock key of an invocation.
+     *
+     * @param args invocation arguments
+     * @return cache lock key
+     */
+    @NonNull
+    String build(@NonNull Object[] args) {
+        if (cacheParamIndexes.length == 0 && !cacheLock.traceRequest()) {
+            return prefix;
+        }
+
+        StringBuilder cacheKeyBuilder = new StringBuilder(prefix.length() + 64).append(prefix);
+        for (int index : cacheParamIndexes) {
+            cacheKeyBuilder.append(delimiter).append(args[index]);
+        }
+        if (cacheLock.traceRequest()) {
+            // Append http request info
+            cacheKeyBuilder.append(delimiter).append(ServletUtils.getRequestIp());
+        }
+        return cacheKeyBuilder.toString();
+    }
+
+    @NonNull
+    CacheLock getCacheLock() {
+        return cacheLock;
+    }
+
+    long getEmissionInterval() {
+        return emissionInterval;
+    }
+
+    long getBurstTolerance() {
+        return burstTolerance;
+    }
+}
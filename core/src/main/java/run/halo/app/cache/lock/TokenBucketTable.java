@@ -0,0 +1,63 @@
+package run.halo.app.cache.lock;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.lang.NonNull;
+
+/**
+ * Local token buckets keyed by cache lock key.
+ *
+ * <p>Each bucket is a single theoretical arrival time updated by compare-and-set (the generic
+ * cell rate algorithm), which behaves as a token bucket: a permit is refilled every emission
+ * interval and at most <code>burst</code> permits are available at once. Acquiring a permit
+ * never locks and never allocates once the bucket exists.
+ *
+ * <p>A bucket whose arrival time has passed is full and equivalent to an absent one, so idle
+ * buckets are evicted by {@link #evictIdle()}.
+ *
+ * @author guqing
+ */
+final class TokenBucketTable {
+
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * Tries to acquire a permit.
+     *
+     * @param key bucket key must not be null
+     * @param emissionInterval nanoseconds to refill a permit
+     * @param burstTolerance nanoseconds of permits which can be taken ahead, i.e. the emission
+     * interval times burst minus one
+     * @return true if a permit is acquired, false if the bucket is empty
+     */
+    boolean tryAcquire(@NonNull String key, long emissionInterval, long burstTolerance) {
+        long now = System.nanoTime();
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+
+        for (; ; ) {
+            long arrivalTime = bucket.get();
+            long start = arrivalTime - now > 0 ? arrivalTime : now;
+            if (start - now > burstTolerance) {
+                return false;
+            }
+            if (bucket.compareAndSet(arrivalTime, start + emissionInterval)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Evicts the full buckets.
+     */
+    void evictIdle() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+    }
+
+    int size() {
+        return buckets.size();
+    }
+}
@@ -18,8 +18,11 @@ import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.client.RestTemplate;
 import run.halo.app.cache.AbstractStringCacheStore;
+import run.halo.app.cache.BoundedInMemoryCacheStore;
 import run.halo.app.cache.InMemoryCacheStore;
 import run.halo.app.cache.LevelCacheStore;
+import run.halo.app.cache.MappedFileCacheStore;
+import run.halo.app.cache.NearCacheStore;
 import run.halo.app.config.attributeconverter.AttributeConverterAutoGenerateConfiguration;
 import run.halo.app.config.properties.HaloProperties;
 import run.halo.app.repository.base.BaseRepositoryImpl;
@@ -70,6 +73,17 @@ public class HaloConfiguration {
             case "level":
                 stringCacheStore = new LevelCacheStore(this.haloProperties);
                 break;
+            case "bounded":
+                stringCacheStore =
+                    new BoundedInMemoryCacheStore(haloProperties.getCacheMaximumSize(),
+                        haloProperties.getCacheMaximumWeight().toBytes());
+                break;
+            case "near":
+                stringCacheStore = new NearCacheStore(this.haloProperties);
+                break;
+            case "mmap":
+                stringCacheStore = new MappedFileCacheStore(this.haloProperties);
+                break;
             case "memory":
             default:
                 //memory or default
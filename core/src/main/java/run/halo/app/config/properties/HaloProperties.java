@@ -8,6 +8,7 @@ import static run.halo.app.utils.HaloUtils.ensureSuffix;
 import java.time.Duration;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 import run.halo.app.model.enums.Mode;
 
 
@@ -74,6 +75,50 @@ public class HaloProperties {
      * cache store impl
      * memory
      * level
+     * bounded
+     * near (level-db with an on-heap near cache)
+     * mmap (memory-mapped file under the work dir)
      */
     private String cache = "memory";
+
+    /**
+     * Maximum number of entries of the bounded cache store.
+     */
+    private long cacheMaximumSize = 10000;
+
+    /**
+     * Maximum estimated weight of all entries of the bounded cache store.
+     */
+    private DataSize cacheMaximumWeight = DataSize.ofMegabytes(64);
+
+    /**
+     * Maximum number of entries of the near cache in front of level-db.
+     */
+    private long cacheNearMaximumSize = 1000;
+
+    /**
+     * Maximum estimated weight of all entries of the near cache in front of level-db.
+     */
+    private DataSize cacheNearMaximumWeight = DataSize.ofMegabytes(16);
+
+    /**
+     * Initial size of the file of the memory-mapped cache store, the file grows when full.
+     */
+    private DataSize cacheMappedFileSize = DataSize.ofMegabytes(64);
+
+    /**
+     * Cache the rendered content pages of anonymous visitors.
+     */
+    private boolean pageCacheEnabled = false;
+
+    /**
+     * Maximum compressed size of all pages in the page cache.
+     */
+    private DataSize pageCacheMaximumWeight = DataSize.ofMegabytes(32);
+
+    /**
+     * Expiration of a page in the page cache, which bounds the staleness of visit and like
+     * counters on cached pages.
+     */
+    private Duration pageCacheTimeout = Duration.ofMinutes(10);
 }
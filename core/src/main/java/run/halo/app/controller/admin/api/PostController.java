@@ -35,6 +35,8 @@ import run.halo.app.model.params.PostQuery;
 import run.halo.app.model.vo.PostDetailVO;
 import run.halo.app.service.OptionService;
 import run.halo.app.service.PostService;
+import run.halo.app.service.SearchService;
+import run.halo.app.service.VisitorSketchService;
 import run.halo.app.utils.HaloUtils;
 
 /**
@@ -55,12 +57,20 @@ public class PostController {
 
     private final OptionService optionService;
 
+    private final VisitorSketchService visitorSketchService;
+
+    private final SearchService searchService;
+
     public PostController(PostService postService,
         AbstractStringCacheStore cacheStore,
-        OptionService optionService) {
+        OptionService optionService,
+        VisitorSketchService visitorSketchService,
+        SearchService searchService) {
         this.postService = postService;
         this.cacheStore = cacheStore;
         this.optionService = optionService;
+        this.visitorSketchService = visitorSketchService;
+        this.searchService = searchService;
     }
 
     @GetMapping
@@ -106,6 +116,13 @@ public class PostController {
         return postService.convertToDetailVo(post, true);
     }
 
+    @GetMapping("{postId:\\d+}/visitors")
+    @ApiOperation("Gets estimated unique visitors of a post")
+    public Long visitors(@PathVariable("postId") Integer postId) {
+        postService.mustExistById(postId);
+        return visitorSketchService.countVisitors(postId);
+    }
+
     @PutMapping("{postId:\\d+}/likes")
     @ApiOperation("Likes a post")
     public void likes(@PathVariable("postId") Integer postId) {
@@ -177,6 +194,12 @@ public class PostController {
         return postService.removeByIds(ids);
     }
 
+    @PostMapping("search/index")
+    @ApiOperation("Rebuilds the search index of posts and sheets")
+    public void rebuildSearchIndex() {
+        searchService.rebuild();
+    }
+
     @GetMapping(value = {"preview/{postId:\\d+}", "{postId:\\d+}/preview"})
     @ApiOperation("Gets a post preview link")
     public String preview(@PathVariable("postId") Integer postId)
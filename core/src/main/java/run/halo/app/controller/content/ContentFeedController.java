@@ -2,41 +2,30 @@ package run.halo.app.controller.content;
 
 import static org.springframework.data.domain.Sort.Direction.DESC;
 
-import freemarker.template.Template;
-import freemarker.template.TemplateException;
 import java.io.IOException;
-import java.sql.Timestamp;
-import java.text.SimpleDateFormat;
-import java.util.List;
-import java.util.Locale;
-import java.util.OptionalLong;
+import java.util.Collections;
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.RegExUtils;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.MediaType;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
-import org.springframework.ui.freemarker.FreeMarkerTemplateUtils;
-import org.springframework.util.Assert;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.ResponseBody;
-import org.springframework.web.servlet.view.freemarker.FreeMarkerConfigurer;
-import run.halo.app.model.dto.CategoryDTO;
-import run.halo.app.model.entity.Category;
+import org.springframework.web.context.request.WebRequest;
+import run.halo.app.exception.NotFoundException;
 import run.halo.app.model.entity.Post;
 import run.halo.app.model.enums.PostStatus;
-import run.halo.app.model.vo.PostDetailVO;
-import run.halo.app.service.CategoryService;
-import run.halo.app.service.OptionService;
-import run.halo.app.service.PostCategoryService;
+import run.halo.app.model.support.Feed;
+import run.halo.app.service.FeedService;
 import run.halo.app.service.PostService;
+import run.halo.app.service.ThemeService;
 
 /**
  * @author ryanwang
@@ -48,246 +37,158 @@ public class ContentFeedController {
 
     private static final String UTF_8_SUFFIX = ";charset=UTF-8";
 
-    private static final String XML_INVALID_CHAR = "[\\x00-\\x1F\\x7F]";
-
     private static final String XML_MEDIA_TYPE = MediaType.APPLICATION_XML_VALUE + UTF_8_SUFFIX;
 
-    private static final String LAST_MODIFIED_HEADER = "Last-Modified";
-
     private final PostService postService;
 
-    private final CategoryService categoryService;
-
-    private final PostCategoryService postCategoryService;
+    private final FeedService feedService;
 
-    private final OptionService optionService;
-
-    private final FreeMarkerConfigurer freeMarker;
+    private final ThemeService themeService;
 
     public ContentFeedController(PostService postService,
-        CategoryService categoryService,
-        PostCategoryService postCategoryService,
-        OptionService optionService,
-        FreeMarkerConfigurer freeMarker) {
+        FeedService feedService,
+        ThemeService themeService) {
         this.postService = postService;
-        this.categoryService = categoryService;
-        this.postCategoryService = postCategoryService;
-        this.optionService = optionService;
-        this.freeMarker = freeMarker;
+        this.feedService = feedService;
+        this.themeService = themeService;
     }
 
     /**
      * Get post rss.
      *
-     * @param model model
-     * @return rss xml content
-     * @throws IOException       throw IOException
-     * @throws TemplateException throw TemplateException
+     * @param request web request
+     * @return rss xml content, null if not modified
      */
     @GetMapping(value = {"feed", "feed.xml", "rss", "rss.xml"}, produces = XML_MEDIA_TYPE)
     @ResponseBody
-    public String feed(Model model, HttpServletResponse response)
-        throws IOException, TemplateException {
-        List<PostDetailVO> posts = buildPosts(buildPostPageable(optionService.getRssPageSize()));
-        model.addAttribute("posts", posts);
-        Timestamp lastModified = this.getLastModifiedTime(posts);
-        this.lastModified2ResponseHeader(response, lastModified);
-        model.addAttribute("lastModified", lastModified);
-        Template template = freeMarker.getConfiguration().getTemplate("common/web/rss.ftl");
-        return FreeMarkerTemplateUtils.processTemplateIntoString(template, model);
+    public byte[] feed(WebRequest request) {
+        return write(request, feedService.getRss());
     }
 
     /**
      * Get category post rss.
      *
-     * @param model model
      * @param slug slug
-     * @return rss xml content
-     * @throws IOException       throw IOException
-     * @throws TemplateException throw TemplateException
+     * @param request web request
+     * @return rss xml content, null if not modified
      */
     @GetMapping(value = {"feed/categories/{slug}",
         "feed/categories/{slug}.xml"}, produces = XML_MEDIA_TYPE)
     @ResponseBody
-    public String feed(Model model, @PathVariable(name = "slug") String slug,
-        HttpServletResponse response)
-        throws IOException, TemplateException {
-        Category category = categoryService.getBySlugOfNonNull(slug);
-        CategoryDTO categoryDTO = categoryService.convertTo(category);
-        List<PostDetailVO> posts =
-            buildCategoryPosts(buildPostPageable(optionService.getRssPageSize()), categoryDTO);
-        model.addAttribute("category", categoryDTO);
-        model.addAttribute("posts", posts);
-        Timestamp lastModified = this.getLastModifiedTime(posts);
-        this.lastModified2ResponseHeader(response, lastModified);
-        model.addAttribute("lastModified", lastModified);
-        Template template = freeMarker.getConfiguration().getTemplate("common/web/rss.ftl");
-        return FreeMarkerTemplateUtils.processTemplateIntoString(template, model);
+    public byte[] feed(@PathVariable(name = "slug") String slug, WebRequest request) {
+        return write(request, feedService.getRss(slug));
     }
 
     /**
      * Get atom.xml
      *
-     * @param model model
-     * @return atom xml content
-     * @throws IOException       IOException
-     * @throws TemplateException TemplateException
+     * @param request web request
+     * @return atom xml content, null if not modified
      */
     @GetMapping(value = {"atom", "atom.xml"}, produces = XML_MEDIA_TYPE)
     @ResponseBody
-    public String atom(Model model, HttpServletResponse response)
-        throws IOException, TemplateException {
-        List<PostDetailVO> posts = buildPosts(buildPostPageable(optionService.getRssPageSize()));
-        model.addAttribute("posts", posts);
-        Timestamp lastModified = this.getLastModifiedTime(posts);
-        this.lastModified2ResponseHeader(response, lastModified);
-        model.addAttribute("lastModified", lastModified);
-        Template template = freeMarker.getConfiguration().getTemplate("common/web/atom.ftl");
-        return FreeMarkerTemplateUtils.processTemplateIntoString(template, model);
+    public byte[] atom(WebRequest request) {
+        return write(request, feedService.getAtom());
     }
 
     /**
      * Get category posts atom.xml
      *
-     * @param model model
      * @param slug slug
-     * @return atom xml content
-     * @throws IOException       throw IOException
-     * @throws TemplateException throw TemplateException
+     * @param request web request
+     * @return atom xml content, null if not modified
      */
     @GetMapping(value = {"atom/categories/{slug}",
         "atom/categories/{slug}.xml"}, produces = XML_MEDIA_TYPE)
     @ResponseBody
-    public String atom(Model model, @PathVariable(name = "slug") String slug,
-        HttpServletResponse response)
-        throws IOException, TemplateException {
-        Category category = categoryService.getBySlugOfNonNull(slug);
-        CategoryDTO categoryDTO = categoryService.convertTo(category);
-        List<PostDetailVO> posts =
-            buildCategoryPosts(buildPostPageable(optionService.getRssPageSize()), categoryDTO);
-        model.addAttribute("category", categoryDTO);
-        model.addAttribute("posts", posts);
-        Timestamp lastModified = this.getLastModifiedTime(posts);
-        this.lastModified2ResponseHeader(response, lastModified);
-        model.addAttribute("lastModified", lastModified);
-        Template template = freeMarker.getConfiguration().getTemplate("common/web/atom.ftl");
-        return FreeMarkerTemplateUtils.processTemplateIntoString(template, model);
+    public byte[] atom(@PathVariable(name = "slug") String slug, WebRequest request) {
+        return write(request, feedService.getAtom(slug));
     }
 
     /**
      * Get sitemap.xml.
      *
-     * @param model model
-     * @return sitemap xml content.
-     * @throws IOException       IOException
-     * @throws TemplateException TemplateException
+     * @param request web request
+     * @return sitemap xml content, null if not modified
      */
     @GetMapping(value = {"sitemap", "sitemap.xml"}, produces = XML_MEDIA_TYPE)
     @ResponseBody
-    public String sitemapXml(Model model,
-        @PageableDefault(size = Integer.MAX_VALUE, sort = "createTime", direction = DESC)
-            Pageable pageable) throws IOException, TemplateException {
-        model.addAttribute("posts", buildPosts(pageable));
-        Template template = freeMarker.getConfiguration().getTemplate("common/web/sitemap_xml.ftl");
-        return FreeMarkerTemplateUtils.processTemplateIntoString(template, model);
+    public byte[] sitemapXml(WebRequest request) {
+        return write(request, feedService.getSitemap());
     }
 
     /**
-     * Get sitemap.html.
+     * Get the sitemap of the home page, categories and tags, referenced by the sitemap index.
      *
-     * @param model model
-     * @return template path: common/web/sitemap_html
+     * @param request web request
+     * @return sitemap xml content, null if not modified
      */
-    @GetMapping(value = "sitemap.html")
-    public String sitemapHtml(Model model,
-        @PageableDefault(size = Integer.MAX_VALUE, sort = "createTime", direction = DESC)
-            Pageable pageable) {
-        model.addAttribute("posts", buildPosts(pageable));
-        return "common/web/sitemap_html";
+    @GetMapping(value = "sitemap-taxonomies.xml", produces = XML_MEDIA_TYPE)
+    @ResponseBody
+    public byte[] sitemapTaxonomiesXml(WebRequest request) {
+        return write(request, feedService.getSitemapTaxonomies());
     }
 
     /**
-     * Get robots.txt
+     * Get a sitemap chunk of posts and sheets, referenced by the sitemap index.
      *
-     * @param model model
-     * @return robots.txt content
-     * @throws IOException       IOException
-     * @throws TemplateException TemplateException
+     * @param chunk chunk number, starting from 1
+     * @param response http servlet response
+     * @throws IOException IOException
      */
-    @GetMapping(value = "robots.txt", produces = MediaType.TEXT_PLAIN_VALUE)
-    @ResponseBody
-    public String robots(Model model) throws IOException, TemplateException {
-        Template template = freeMarker.getConfiguration().getTemplate("common/web/robots.ftl");
-        return FreeMarkerTemplateUtils.processTemplateIntoString(template, model);
+    @GetMapping(value = "sitemap-posts-{chunk:\\d+}.xml")
+    public void sitemapPostsXml(@PathVariable("chunk") Integer chunk,
+        HttpServletResponse response) throws IOException {
+        if (chunk < 1) {
+            throw new NotFoundException("Sitemap chunk does not exist: " + chunk);
+        }
+        response.setContentType(XML_MEDIA_TYPE);
+        feedService.writeSitemap(chunk, response.getWriter());
     }
 
     /**
-     * Builds page info for post.
+     * Get sitemap.html.
      *
-     * @param size page size
-     * @return page info
+     * @param model model
+     * @return template path: common/web/sitemap_html
      */
-    @NonNull
-    private Pageable buildPostPageable(int size) {
-        return PageRequest.of(0, size, Sort.by(DESC, "createTime"));
+    @GetMapping(value = "sitemap.html")
+    public String sitemapHtml(Model model,
+        @PageableDefault(size = Integer.MAX_VALUE, sort = "createTime", direction = DESC)
+            Pageable pageable) {
+        Page<Post> postPage = postService.pageBy(PostStatus.PUBLISHED, pageable);
+        model.addAttribute("posts", postService.convertToDetailVo(postPage).getContent());
+        return "common/web/sitemap_html";
     }
 
     /**
-     * Build posts.
+     * Get robots.txt
      *
-     * @param pageable pageable
-     * @return list of post detail vo
+     * @param request http servlet request
+     * @param response http servlet response
+     * @throws IOException IOException
      */
-    private List<PostDetailVO> buildPosts(@NonNull Pageable pageable) {
-        Assert.notNull(pageable, "Pageable must not be null");
-
-        Page<Post> postPage = postService.pageBy(PostStatus.PUBLISHED, pageable);
-        Page<PostDetailVO> posts = postService.convertToDetailVo(postPage);
-        posts.getContent().forEach(postDetailVO -> {
-            postDetailVO.setFormatContent(
-                RegExUtils.replaceAll(postDetailVO.getFormatContent(), XML_INVALID_CHAR, ""));
-            postDetailVO
-                .setSummary(RegExUtils.replaceAll(postDetailVO.getSummary(), XML_INVALID_CHAR, ""));
-        });
-        return posts.getContent();
+    @GetMapping(value = "robots.txt")
+    public void robots(HttpServletRequest request, HttpServletResponse response)
+        throws IOException {
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE + UTF_8_SUFFIX);
+        themeService.processTemplate("common/web/robots.ftl", Collections.emptyMap(), request,
+            response, false);
     }
 
     /**
-     * Build category posts.
+     * Writes a feed, unless it is not modified since the conditional headers of the request.
      *
-     * @param pageable pageable must not be null.
-     * @param category category
-     * @return list of post detail vo.
+     * @param request web request
+     * @param feed feed
+     * @return feed content, null if not modified
      */
-    private List<PostDetailVO> buildCategoryPosts(@NonNull Pageable pageable,
-        @NonNull CategoryDTO category) {
-        Assert.notNull(pageable, "Pageable must not be null");
-        Assert.notNull(category, "Category slug must not be null");
-
-        Page<Post> postPage =
-            postCategoryService.pagePostBy(category.getId(), PostStatus.PUBLISHED, pageable);
-        Page<PostDetailVO> posts = postService.convertToDetailVo(postPage);
-        posts.getContent().forEach(postDetailVO -> {
-            postDetailVO.setFormatContent(
-                RegExUtils.replaceAll(postDetailVO.getFormatContent(), XML_INVALID_CHAR, ""));
-            postDetailVO
-                .setSummary(RegExUtils.replaceAll(postDetailVO.getSummary(), XML_INVALID_CHAR, ""));
-        });
-        return posts.getContent();
-    }
-
-    private Timestamp getLastModifiedTime(List<PostDetailVO> posts) {
-        OptionalLong lastModifiedTimestamp =
-            posts.stream().mapToLong(post -> post.getEditTime().getTime()).max();
-        if (lastModifiedTimestamp.isEmpty()) {
-            return new Timestamp(System.currentTimeMillis());
+    @Nullable
+    private byte[] write(@NonNull WebRequest request, @NonNull Feed feed) {
+        if (request.checkNotModified(feed.getETag(), feed.getLastModified())) {
+            // The response has been completed with 304
+            return null;
         }
-        return new Timestamp(lastModifiedTimestamp.getAsLong());
-    }
-
-    private void lastModified2ResponseHeader(HttpServletResponse response, Timestamp time) {
-        SimpleDateFormat dateFormat =
-            new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.ENGLISH);
-        response.setHeader(LAST_MODIFIED_HEADER, dateFormat.format(time));
+        return feed.getContent();
     }
 }
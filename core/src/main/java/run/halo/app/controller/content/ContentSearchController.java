@@ -2,7 +2,6 @@ package run.halo.app.controller.content;
 
 import static org.springframework.data.domain.Sort.Direction.DESC;
 
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -14,8 +13,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.util.HtmlUtils;
-import run.halo.app.model.entity.Post;
-import run.halo.app.model.vo.PostListVO;
+import run.halo.app.model.vo.PostSearchResultVO;
 import run.halo.app.service.OptionService;
 import run.halo.app.service.PostService;
 import run.halo.app.service.ThemeService;
@@ -48,12 +46,17 @@ public class ContentSearchController {
      *
      * @param model model
      * @param keyword keyword
+     * @param categoryId category id to filter by
+     * @param tagId tag id to filter by
      * @return template path : themes/{theme}/search.ftl
      */
     @GetMapping
     public String search(Model model,
-        @RequestParam(value = "keyword") String keyword) {
-        return this.search(model, HtmlUtils.htmlEscape(keyword), 1, Sort.by(DESC, "createTime"));
+        @RequestParam(value = "keyword") String keyword,
+        @RequestParam(value = "categoryId", required = false) Integer categoryId,
+        @RequestParam(value = "tagId", required = false) Integer tagId) {
+        return this.search(model, HtmlUtils.htmlEscape(keyword), categoryId, tagId, 1,
+            Sort.by(DESC, "createTime"));
     }
 
     /**
@@ -61,21 +64,25 @@ public class ContentSearchController {
      *
      * @param model model
      * @param keyword keyword
+     * @param categoryId category id to filter by
+     * @param tagId tag id to filter by
      * @return template path :themes/{theme}/search.ftl
      */
     @GetMapping(value = "page/{page}")
     public String search(Model model,
         @RequestParam(value = "keyword") String keyword,
+        @RequestParam(value = "categoryId", required = false) Integer categoryId,
+        @RequestParam(value = "tagId", required = false) Integer tagId,
         @PathVariable(value = "page") Integer page,
         @SortDefault(sort = "createTime", direction = DESC) Sort sort) {
         final Pageable pageable = PageRequest.of(page - 1, optionService.getPostPageSize(), sort);
-        final Page<Post> postPage = postService.pageBy(keyword, pageable);
-
-        final Page<PostListVO> posts = postService.convertToListVo(postPage);
+        final PostSearchResultVO result = postService.search(keyword, categoryId, tagId, pageable);
 
         model.addAttribute("is_search", true);
         model.addAttribute("keyword", keyword);
-        model.addAttribute("posts", posts);
+        model.addAttribute("posts", result.getPosts());
+        model.addAttribute("search_categories", result.getCategories());
+        model.addAttribute("search_tags", result.getTags());
         model.addAttribute("meta_keywords", optionService.getSeoKeywords());
         model.addAttribute("meta_description", optionService.getSeoDescription());
         return themeService.render("search");
@@ -35,6 +35,7 @@ import run.halo.app.model.vo.BaseCommentWithParentVO;
 import run.halo.app.model.vo.CommentWithHasChildrenVO;
 import run.halo.app.model.vo.PostDetailVO;
 import run.halo.app.model.vo.PostListVO;
+import run.halo.app.model.vo.PostSearchResultVO;
 import run.halo.app.service.OptionService;
 import run.halo.app.service.PostCommentService;
 import run.halo.app.service.PostService;
@@ -96,6 +97,15 @@ public class PostController {
         return postService.convertToSimple(postPage);
     }
 
+    @GetMapping("search")
+    @ApiOperation("Searches posts by keyword with highlighted snippets and facets")
+    public PostSearchResultVO search(@RequestParam(value = "keyword") String keyword,
+        @RequestParam(value = "categoryId", required = false) Integer categoryId,
+        @RequestParam(value = "tagId", required = false) Integer tagId,
+        @PageableDefault(sort = "createTime", direction = DESC) Pageable pageable) {
+        return postService.search(keyword, categoryId, tagId, pageable);
+    }
+
     @GetMapping("{postId:\\d+}")
     @ApiOperation("Gets a post")
     public PostDetailVO getBy(@PathVariable("postId") Integer postId,
@@ -13,6 +13,7 @@ import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Component;
 import org.springframework.ui.Model;
 import run.halo.app.cache.AbstractStringCacheStore;
+import run.halo.app.cache.PageCache;
 import run.halo.app.exception.ForbiddenException;
 import run.halo.app.exception.NotFoundException;
 import run.halo.app.model.entity.Category;
@@ -87,6 +88,11 @@ public class PostModel {
     }
 
     public String content(Post post, String token, Model model) {
+        if (PostStatus.INTIMATE.equals(post.getStatus())) {
+            // Private articles are never served from the page cache
+            PageCache.markUncacheable();
+        }
+
         if (PostStatus.RECYCLE.equals(post.getStatus())) {
             // Articles in the recycle bin are not allowed to be accessed.
             throw new NotFoundException("查询不到该文章的信息");
@@ -116,20 +122,31 @@ public class PostModel {
             return "common/template/" + POST_PASSWORD_TEMPLATE;
         }
 
+        // The format content is rendered when the post is published or saved
         post = postService.getById(post.getId());
 
-        if (post.getEditorType().equals(PostEditorType.MARKDOWN)) {
-            post.setFormatContent(MarkdownUtils.renderHtml(post.getOriginalContent()));
-        } else {
-            post.setFormatContent(post.getOriginalContent());
+        if (StringUtils.isNotBlank(token)) {
+            // render the draft content to html when preview post
+            if (post.getEditorType().equals(PostEditorType.MARKDOWN)) {
+                post.setFormatContent(MarkdownUtils.renderHtml(post.getOriginalContent()));
+            } else {
+                post.setFormatContent(post.getOriginalContent());
+            }
         }
 
-        postService.publishVisitEvent(post.getId());
-
-        postService.getPrevPost(post).ifPresent(
-            prevPost -> model.addAttribute("prevPost", postService.convertToDetailVo(prevPost)));
-        postService.getNextPost(post).ifPresent(
-            nextPost -> model.addAttribute("nextPost", postService.convertToDetailVo(nextPost)));
+        Integer postId = post.getId();
+        postService.publishVisitEvent(postId);
+        PageCache.addHitAction(() -> postService.publishVisitEvent(postId));
+        PageCache.addPostDependency(postId);
+
+        postService.getPrevPostSimple(post).ifPresent(prevPost -> {
+            PageCache.addPostDependency(prevPost.getId());
+            model.addAttribute("prevPost", prevPost);
+        });
+        postService.getNextPostSimple(post).ifPresent(nextPost -> {
+            PageCache.addPostDependency(nextPost.getId());
+            model.addAttribute("nextPost", nextPost);
+        });
 
         List<Category> categories = postCategoryService.listCategoriesBy(post.getId(), false);
         List<Tag> tags = postTagService.listTagsBy(post.getId());
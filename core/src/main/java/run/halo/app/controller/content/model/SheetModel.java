@@ -5,6 +5,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Component;
 import org.springframework.ui.Model;
 import run.halo.app.cache.AbstractStringCacheStore;
+import run.halo.app.cache.PageCache;
 import run.halo.app.exception.ForbiddenException;
 import run.halo.app.model.entity.Sheet;
 import run.halo.app.model.entity.SheetMeta;
@@ -76,7 +77,10 @@ public class SheetModel {
             }
         }
 
-        sheetService.publishVisitEvent(sheet.getId());
+        Integer sheetId = sheet.getId();
+        sheetService.publishVisitEvent(sheetId);
+        PageCache.addHitAction(() -> sheetService.publishVisitEvent(sheetId));
+        PageCache.addPostDependency(sheetId);
 
         SheetDetailVO sheetDetailVO = sheetService.convertToDetailVo(sheet);
 
@@ -11,6 +11,7 @@ import java.io.IOException;
 import java.util.Map;
 import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Component;
+import run.halo.app.cache.PageCache;
 import run.halo.app.model.entity.PostComment;
 import run.halo.app.model.enums.CommentStatus;
 import run.halo.app.model.support.HaloConst;
@@ -35,6 +36,7 @@ public class CommentTagDirective implements TemplateDirectiveModel {
     @Override
     public void execute(Environment env, Map params, TemplateModel[] loopVars,
         TemplateDirectiveBody body) throws TemplateException, IOException {
+        PageCache.addDependency(PageCache.POSTS_DEPENDENCY);
         final DefaultObjectWrapperBuilder builder =
             new DefaultObjectWrapperBuilder(Configuration.VERSION_2_3_25);
 
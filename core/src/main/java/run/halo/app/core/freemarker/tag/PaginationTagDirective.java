@@ -14,6 +14,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import org.springframework.stereotype.Component;
+import run.halo.app.cache.PageCache;
 import run.halo.app.model.support.HaloConst;
 import run.halo.app.model.support.Pagination;
 import run.halo.app.model.support.RainbowPage;
@@ -38,6 +39,7 @@ public class PaginationTagDirective implements TemplateDirectiveModel {
     @Override
     public void execute(Environment env, Map params, TemplateModel[] loopVars,
         TemplateDirectiveBody body) throws TemplateException, IOException {
+        PageCache.addDependency(PageCache.POSTS_DEPENDENCY);
         final DefaultObjectWrapperBuilder builder =
             new DefaultObjectWrapperBuilder(Configuration.VERSION_2_3_25);
         if (params.containsKey(HaloConst.METHOD_KEY)) {
@@ -14,6 +14,7 @@ import java.util.List;
 import java.util.Map;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Component;
+import run.halo.app.cache.PageCache;
 import run.halo.app.model.entity.Tag;
 import run.halo.app.model.support.HaloConst;
 import run.halo.app.service.PostTagService;
@@ -43,6 +44,7 @@ public class TagTagDirective implements TemplateDirectiveModel {
     @Override
     public void execute(Environment env, Map params, TemplateModel[] loopVars,
         TemplateDirectiveBody body) throws TemplateException, IOException {
+        PageCache.addDependency(PageCache.POSTS_DEPENDENCY);
         final DefaultObjectWrapperBuilder builder =
             new DefaultObjectWrapperBuilder(Configuration.VERSION_2_3_25);
 
@@ -2,6 +2,7 @@ package run.halo.app.event.post;
 
 import org.springframework.context.ApplicationEvent;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 
 /**
@@ -14,6 +15,8 @@ public abstract class AbstractVisitEvent extends ApplicationEvent {
 
     private final Integer id;
 
+    private final Long visitorHash;
+
     /**
      * Create a new ApplicationEvent.
      *
@@ -21,14 +24,32 @@ public abstract class AbstractVisitEvent extends ApplicationEvent {
      * @param id id
      */
     public AbstractVisitEvent(@NonNull Object source, @NonNull Integer id) {
+        this(source, id, null);
+    }
+
+    /**
+     * Create a new ApplicationEvent.
+     *
+     * @param source the object on which the event initially occurred (never {@code null})
+     * @param id id
+     * @param visitorHash visitor hash, null if the visitor is unknown
+     */
+    public AbstractVisitEvent(@NonNull Object source, @NonNull Integer id,
+        @Nullable Long visitorHash) {
         super(source);
 
         Assert.notNull(id, "Id must not be null");
         this.id = id;
+        this.visitorHash = visitorHash;
     }
 
     @NonNull
     public Integer getId() {
         return id;
     }
+
+    @Nullable
+    public Long getVisitorHash() {
+        return visitorHash;
+    }
 }
@@ -0,0 +1,34 @@
+package run.halo.app.event.post;
+
+import org.springframework.context.ApplicationEvent;
+import org.springframework.lang.NonNull;
+import org.springframework.util.Assert;
+import run.halo.app.model.entity.BasePost;
+
+/**
+ * Post updated event, published when a post or a sheet is created, updated or removed.
+ *
+ * @author guqing
+ */
+public class PostUpdatedEvent extends ApplicationEvent {
+
+    private final BasePost post;
+
+    /**
+     * Create a new ApplicationEvent.
+     *
+     * @param source the object on which the event initially occurred (never {@code null})
+     * @param post updated post
+     */
+    public PostUpdatedEvent(Object source, @NonNull BasePost post) {
+        super(source);
+
+        Assert.notNull(post, "Post must not be null");
+        this.post = post;
+    }
+
+    @NonNull
+    public BasePost getPost() {
+        return post;
+    }
+}
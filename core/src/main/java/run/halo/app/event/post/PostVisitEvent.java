@@ -1,6 +1,7 @@
 package run.halo.app.event.post;
 
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import run.halo.app.utils.ServiceUtils;
 
@@ -22,4 +23,16 @@ public class PostVisitEvent extends AbstractVisitEvent {
         super(source, postId);
         Assert.isTrue(!ServiceUtils.isEmptyId(postId), "Post id must not be empty");
     }
+
+    /**
+     * Create a new ApplicationEvent.
+     *
+     * @param source the object on which the event initially occurred (never {@code null})
+     * @param postId post id must not be null
+     * @param visitorHash visitor hash, null if the visitor is unknown
+     */
+    public PostVisitEvent(Object source, @NonNull Integer postId, @Nullable Long visitorHash) {
+        super(source, postId, visitorHash);
+        Assert.isTrue(!ServiceUtils.isEmptyId(postId), "Post id must not be empty");
+    }
 }
@@ -17,4 +17,15 @@ public class SheetVisitEvent extends AbstractVisitEvent {
     public SheetVisitEvent(Object source, Integer sheetId) {
         super(source, sheetId);
     }
+
+    /**
+     * Create a new ApplicationEvent.
+     *
+     * @param source the object on which the event initially occurred (never {@code null})
+     * @param sheetId sheet id must not be null
+     * @param visitorHash visitor hash, null if the visitor is unknown
+     */
+    public SheetVisitEvent(Object source, Integer sheetId, Long visitorHash) {
+        super(source, sheetId, visitorHash);
+    }
 }
@@ -0,0 +1,212 @@
+package run.halo.app.filter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import run.halo.app.cache.PageCache;
+import run.halo.app.cache.PageCache.CachedPage;
+import run.halo.app.config.properties.HaloProperties;
+import run.halo.app.model.support.HaloConst;
+import run.halo.app.service.ThemeService;
+import run.halo.app.utils.HaloUtils;
+
+/**
+ * Filter serving content pages from the page cache.
+ *
+ * <p>Only GET requests of anonymous visitors are cached: requests with a preview token or an
+ * admin token always reach the controllers. Writes to the admin api evict all pages, except the
+ * writes to posts and sheets, which evict their dependent pages by events.
+ *
+ * @author guqing
+ */
+@Slf4j
+@Component
+@Order(-2)
+public class PageCacheFilter extends OncePerRequestFilter {
+
+    private static final String ADMIN_API_PATTERN = "/api/admin/**";
+
+    private static final String POST_ADMIN_API_PATTERN = "/api/admin/{type:posts|sheets}/**";
+
+    private static final String COMMENT_ADMIN_API_PATTERN = "/api/admin/*/comments/**";
+
+    private static final String GZIP_ENCODING = "gzip";
+
+    private final AntPathMatcher antPathMatcher = new AntPathMatcher();
+
+    private final String[] excludeUrlPatterns;
+
+    private final HaloProperties haloProperties;
+
+    private final PageCache pageCache;
+
+    private final ThemeService themeService;
+
+    public PageCacheFilter(HaloProperties haloProperties, PageCache pageCache,
+        ThemeService themeService) {
+        this.haloProperties = haloProperties;
+        this.pageCache = pageCache;
+        this.themeService = themeService;
+
+        this.excludeUrlPatterns = new String[] {
+            HaloUtils.ensureBoth(haloProperties.getAdminPath(), "/") + "**",
+            "/api/**",
+            "/install",
+            "/version",
+            "/js/**",
+            "/css/**",
+            "/themes/**",
+            HaloUtils.ensureBoth(haloProperties.getUploadUrlPrefix(), "/") + "**",
+            // Feeds are served from generated bytes with their own conditional requests
+            "/feed",
+            "/feed.xml",
+            "/rss",
+            "/rss.xml",
+            "/feed/categories/**",
+            "/atom",
+            "/atom.xml",
+            "/atom/categories/**",
+            "/sitemap",
+            "/sitemap.xml",
+            "/sitemap-taxonomies.xml",
+            // Sitemaps listing the posts are too large to be buffered and cached whole
+            "/sitemap-posts-*.xml",
+            "/sitemap.html"
+        };
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !haloProperties.isPageCacheEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+        @NonNull HttpServletResponse response, @NonNull FilterChain filterChain)
+        throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+
+        if (!HttpMethod.GET.matches(request.getMethod())) {
+            filterChain.doFilter(request, response);
+            if (response.getStatus() < 400 && isEvictingAllPath(path)) {
+                pageCache.evictAll();
+            }
+            return;
+        }
+
+        if (!isCacheable(request, path)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String key = buildKey(request, path);
+        Optional<CachedPage> cachedPage = pageCache.get(key);
+        if (cachedPage.isPresent()) {
+            log.debug("Hit cached page: [{}]", key);
+            writeCachedPage(request, response, cachedPage.get());
+            return;
+        }
+
+        long generation = pageCache.getGeneration();
+        ContentCachingResponseWrapper responseWrapper =
+            new ContentCachingResponseWrapper(response);
+        try {
+            filterChain.doFilter(request, responseWrapper);
+
+            RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+            if (attributes != null
+                && responseWrapper.getStatus() == HttpServletResponse.SC_OK
+                && isCacheableContentType(responseWrapper.getContentType())
+                && responseWrapper.getHeader(HttpHeaders.CONTENT_ENCODING) == null
+                && !PageCache.isUncacheable(attributes)) {
+                pageCache.put(key, responseWrapper.getContentType(),
+                    responseWrapper.getContentAsByteArray(),
+                    PageCache.getDependencies(attributes), PageCache.getHitActions(attributes),
+                    generation);
+            }
+        } finally {
+            responseWrapper.copyBodyToResponse();
+        }
+    }
+
+    private boolean isEvictingAllPath(String path) {
+        if (!antPathMatcher.match(ADMIN_API_PATTERN, path)) {
+            return false;
+        }
+        // Posts and sheets evict their dependent pages by events
+        return !antPathMatcher.match(POST_ADMIN_API_PATTERN, path)
+            || antPathMatcher.match(COMMENT_ADMIN_API_PATTERN, path);
+    }
+
+    private boolean isCacheable(HttpServletRequest request, String path) {
+        for (String excludeUrlPattern : excludeUrlPatterns) {
+            if (antPathMatcher.match(excludeUrlPattern, path)) {
+                return false;
+            }
+        }
+        return request.getParameter("token") == null
+            && request.getParameter(HaloConst.ADMIN_TOKEN_QUERY_NAME) == null
+            && request.getHeader(HaloConst.ADMIN_TOKEN_HEADER_NAME) == null;
+    }
+
+    private boolean isCacheableContentType(String contentType) {
+        if (StringUtils.isBlank(contentType)) {
+            return false;
+        }
+        MediaType mediaType = MediaType.parseMediaType(contentType);
+        return MediaType.TEXT_HTML.includes(mediaType)
+            || MediaType.TEXT_XML.includes(mediaType)
+            || MediaType.APPLICATION_XML.includes(mediaType);
+    }
+
+    private String buildKey(HttpServletRequest request, String path) {
+        StringBuilder key = new StringBuilder(themeService.getActivatedThemeId())
+            .append(':')
+            .append(path);
+        if (request.getQueryString() != null) {
+            key.append('?').append(request.getQueryString());
+        }
+        return key.toString();
+    }
+
+    private void writeCachedPage(HttpServletRequest request, HttpServletResponse response,
+        CachedPage cachedPage) throws IOException {
+        cachedPage.hit();
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        if (cachedPage.getContentType() != null) {
+            response.setContentType(cachedPage.getContentType());
+        }
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        byte[] body = cachedPage.getBody();
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (StringUtils.containsIgnoreCase(acceptEncoding, GZIP_ENCODING)) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP_ENCODING);
+        } else {
+            try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                body = gzip.readAllBytes();
+            }
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+}
@@ -0,0 +1,105 @@
+package run.halo.app.listener.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import run.halo.app.cache.PageCache;
+import run.halo.app.event.comment.AbstractCommentBaseEvent;
+import run.halo.app.event.comment.CommentNewEvent;
+import run.halo.app.event.comment.CommentReplyEvent;
+import run.halo.app.event.options.OptionUpdatedEvent;
+import run.halo.app.event.post.PostUpdatedEvent;
+import run.halo.app.event.theme.ThemeActivatedEvent;
+import run.halo.app.event.theme.ThemeUpdatedEvent;
+import run.halo.app.model.entity.BasePost;
+import run.halo.app.model.entity.Post;
+import run.halo.app.service.PostCommentService;
+import run.halo.app.service.PostService;
+import run.halo.app.service.SheetCommentService;
+
+/**
+ * Page cache event listener, evicting the pages depending on changed contents.
+ *
+ * @author guqing
+ */
+@Slf4j
+@Component
+public class PageCacheEventListener {
+
+    private final PageCache pageCache;
+
+    private final PostService postService;
+
+    private final PostCommentService postCommentService;
+
+    private final SheetCommentService sheetCommentService;
+
+    public PageCacheEventListener(PageCache pageCache, PostService postService,
+        PostCommentService postCommentService, SheetCommentService sheetCommentService) {
+        this.pageCache = pageCache;
+        this.postService = postService;
+        this.postCommentService = postCommentService;
+        this.sheetCommentService = sheetCommentService;
+    }
+
+    /**
+     * Evicts the pages of the post, its neighbours and the post lists, after the change has been
+     * committed so that no page can be rendered from the old post after the eviction.
+     *
+     * @param event post updated event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostUpdatedEvent(PostUpdatedEvent event) {
+        BasePost post = event.getPost();
+        pageCache.evict(PageCache.postDependency(post.getId()));
+        pageCache.evict(PageCache.POSTS_DEPENDENCY);
+
+        if (post instanceof Post) {
+            // The pages of the neighbours link to the post
+            postService.getPrevPost((Post) post)
+                .ifPresent(prevPost -> pageCache.evict(PageCache.postDependency(prevPost.getId())));
+            postService.getNextPost((Post) post)
+                .ifPresent(nextPost -> pageCache.evict(PageCache.postDependency(nextPost.getId())));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCommentNewEvent(CommentNewEvent event) {
+        evictCommentedPages(event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCommentReplyEvent(CommentReplyEvent event) {
+        evictCommentedPages(event);
+    }
+
+    @EventListener
+    public void onOptionUpdatedEvent(OptionUpdatedEvent event) {
+        pageCache.evictAll();
+    }
+
+    @EventListener
+    public void onThemeActivatedEvent(ThemeActivatedEvent event) {
+        pageCache.evictAll();
+    }
+
+    @EventListener
+    public void onThemeUpdatedEvent(ThemeUpdatedEvent event) {
+        pageCache.evictAll();
+    }
+
+    private void evictCommentedPages(AbstractCommentBaseEvent event) {
+        if (event.getSource() instanceof PostCommentService) {
+            postCommentService.fetchById(event.getCommentId()).ifPresent(comment ->
+                pageCache.evict(PageCache.postDependency(comment.getPostId())));
+        } else if (event.getSource() instanceof SheetCommentService) {
+            sheetCommentService.fetchById(event.getCommentId()).ifPresent(comment ->
+                pageCache.evict(PageCache.postDependency(comment.getPostId())));
+        }
+
+        // Comment counts and the latest comments are rendered in lists
+        pageCache.evict(PageCache.POSTS_DEPENDENCY);
+        log.debug("Evicted pages of comment: [{}]", event.getCommentId());
+    }
+}
@@ -0,0 +1,33 @@
+package run.halo.app.listener.feed;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import run.halo.app.event.options.OptionUpdatedEvent;
+import run.halo.app.event.post.PostUpdatedEvent;
+import run.halo.app.service.FeedService;
+
+/**
+ * Feed event listener, marking the feeds as changed.
+ *
+ * @author guqing
+ */
+@Component
+public class FeedEventListener {
+
+    private final FeedService feedService;
+
+    public FeedEventListener(FeedService feedService) {
+        this.feedService = feedService;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostUpdatedEvent(PostUpdatedEvent event) {
+        feedService.markChanged();
+    }
+
+    @EventListener
+    public void onOptionUpdatedEvent(OptionUpdatedEvent event) {
+        feedService.markChanged();
+    }
+}
@@ -1,58 +1,96 @@
 package run.halo.app.listener.post;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.annotation.PreDestroy;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.util.Assert;
+import run.halo.app.config.properties.HaloProperties;
 import run.halo.app.event.post.AbstractVisitEvent;
+import run.halo.app.service.VisitorSketchService;
 import run.halo.app.service.base.BasePostService;
+import run.halo.app.utils.HyperLogLog;
 
 /**
  * Abstract visit event listener.
  *
+ * <p>Visits are counted in memory, one counter per post, and flushed to the database
+ * periodically by the scheduler in a single batched transaction, so a visit never waits for a
+ * write transaction. The counters are drained on shutdown.
+ *
+ * <p>Every visit is also appended to a counter journal under the work dir, which is synced every
+ * second and truncated after a successful flush. The journal is replayed at startup, so a crash
+ * loses at most the visits of the last second. A crash between a flush and the truncation
+ * counts the flushed visits twice.
+ *
+ * <p>Unique visitors are estimated by a HyperLogLog sketch per post, fed with the visitor hash of
+ * the event and merged into the persisted sketches on every flush. Merging is idempotent, so the
+ * sketches are not journaled.
+ *
  * @author johnniang
  * @date 19-4-24
  */
 @Slf4j
 public abstract class AbstractVisitEventListener {
 
-    private final Map<Integer, BlockingQueue<Integer>> visitQueueMap;
-
-    private final Map<Integer, PostVisitTask> visitTaskMap;
+    /**
+     * Visit flush period. (ms)
+     */
+    private static final long FLUSH_PERIOD = 60 * 1000;
 
-    private final BasePostService basePostService;
+    /**
+     * Journal sync period. (ms)
+     */
+    private static final long SYNC_PERIOD = 1000;
 
-    private final ExecutorService executor;
+    private final Map<Integer, LongAdder> visitCounters = new ConcurrentHashMap<>();
 
-    protected AbstractVisitEventListener(BasePostService basePostService) {
-        this.basePostService = basePostService;
+    private final Map<Integer, HyperLogLog> visitorSketches = new ConcurrentHashMap<>();
 
-        int initCapacity = 8;
+    /**
+     * Counting holds the read lock and taking the snapshot of a flush holds the write lock, so
+     * that a visit is either in both the snapshot and the sealed journal or in neither of them.
+     */
+    private final ReadWriteLock snapshotLock = new ReentrantReadWriteLock();
 
-        long count = basePostService.count();
+    private final CounterJournal journal;
 
-        if (count < initCapacity) {
-            initCapacity = (int) count;
-        }
+    private final BasePostService basePostService;
 
-        visitQueueMap = new ConcurrentHashMap<>(initCapacity << 1);
-        visitTaskMap = new ConcurrentHashMap<>(initCapacity << 1);
+    private final VisitorSketchService visitorSketchService;
 
-        this.executor = Executors.newCachedThreadPool();
+    protected AbstractVisitEventListener(BasePostService basePostService,
+        VisitorSketchService visitorSketchService, HaloProperties haloProperties,
+        String journalName) {
+        this.basePostService = basePostService;
+        this.visitorSketchService = visitorSketchService;
+        this.journal =
+            new CounterJournal(Paths.get(haloProperties.getWorkDir(), "visits", journalName));
+
+        Map<Integer, Long> replayedVisits = journal.replay();
+        if (!replayedVisits.isEmpty()) {
+            log.info("Replayed visits of [{}] posts from the [{}] visit journal",
+                replayedVisits.size(), journalName);
+            replayedVisits.forEach((postId, visits) -> getVisitCounter(postId).add(visits));
+        }
     }
 
     /**
      * Handle visit event.
      *
      * @param event visit event must not be null
-     * @throws InterruptedException interrupted exception
      */
-    protected void handleVisitEvent(@NonNull AbstractVisitEvent event) throws InterruptedException {
+    protected void handleVisitEvent(@NonNull AbstractVisitEvent event) {
         Assert.notNull(event, "Visit event must not be null");
 
         // Get post id
@@ -60,66 +98,130 @@ public abstract class AbstractVisitEventListener {
 
         log.debug("Received a visit event, post id: [{}]", id);
 
-        // Get post visit queue
-        BlockingQueue<Integer> postVisitQueue =
-            visitQueueMap.computeIfAbsent(id, this::createEmptyQueue);
-
-        visitTaskMap.computeIfAbsent(id, this::createPostVisitTask);
-
-        // Put a visit for the post
-        postVisitQueue.put(id);
-    }
-
-
-    private PostVisitTask createPostVisitTask(Integer postId) {
-        // Create new post visit task
-        PostVisitTask postVisitTask = new PostVisitTask(postId);
-        // Start a post visit task
-        executor.execute(postVisitTask);
-
-        log.debug("Created a new post visit task for post id: [{}]", postId);
-        return postVisitTask;
+        snapshotLock.readLock().lock();
+        try {
+            getVisitCounter(id).increment();
+            journal.append(id, 1L);
+            Long visitorHash = event.getVisitorHash();
+            if (visitorHash != null) {
+                HyperLogLog visitorSketch =
+                    visitorSketches.computeIfAbsent(id, postId -> new HyperLogLog());
+                synchronized (visitorSketch) {
+                    visitorSketch.offer(visitorHash);
+                }
+            }
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
     }
 
-    private BlockingQueue<Integer> createEmptyQueue(Integer postId) {
-        // Create a new queue
-        return new LinkedBlockingQueue<>();
+    /**
+     * Syncs the visit journal to the disk.
+     */
+    @Scheduled(fixedDelay = SYNC_PERIOD)
+    public void syncJournal() {
+        try {
+            journal.sync();
+        } catch (IOException e) {
+            log.error("Failed to sync the visit journal", e);
+        }
     }
 
-
     /**
-     * Post visit task.
+     * Flushes the counted visits to the database.
      */
-    private class PostVisitTask implements Runnable {
-
-        private final Integer id;
+    @Scheduled(initialDelay = FLUSH_PERIOD, fixedDelay = FLUSH_PERIOD)
+    public synchronized void flushVisits() {
+        // Counters are kept once created, so that no increment can hit a removed counter
+        Map<Integer, Long> visits = new LinkedHashMap<>();
+        Map<Integer, HyperLogLog> sketches = new HashMap<>();
+        snapshotLock.writeLock().lock();
+        try {
+            visitCounters.forEach((postId, visitCounter) -> {
+                long visit = visitCounter.sumThenReset();
+                if (visit > 0) {
+                    visits.put(postId, visit);
+                }
+            });
+            sketches.putAll(visitorSketches);
+            visitorSketches.clear();
+            if (!visits.isEmpty()) {
+                // Seal the journal of the snapshot
+                journal.roll();
+            }
+        } catch (IOException e) {
+            // Retry in the next flush
+            visits.forEach((postId, visit) -> getVisitCounter(postId).add(visit));
+            visitorSketches.putAll(sketches);
+            log.error("Failed to roll the visit journal", e);
+            return;
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
 
-        private PostVisitTask(Integer id) {
-            this.id = id;
+        if (!visits.isEmpty()) {
+            increaseVisits(visits, sketches);
         }
+        mergeSketches(sketches);
+    }
 
-        @Override
-        public void run() {
-            while (!Thread.currentThread().isInterrupted()) {
-                try {
-                    BlockingQueue<Integer> postVisitQueue = visitQueueMap.get(id);
-                    Integer postId = postVisitQueue.take();
+    private void increaseVisits(Map<Integer, Long> visits, Map<Integer, HyperLogLog> sketches) {
+        try {
+            List<Integer> notFoundIds = basePostService.increaseVisits(visits);
+            if (!notFoundIds.isEmpty()) {
+                // The posts may have been deleted
+                log.warn("Dropped visits for post ids: {}", notFoundIds);
+                notFoundIds.forEach(sketches::remove);
+            }
+            log.debug("Increased visits of [{}] posts", visits.size());
+        } catch (RuntimeException e) {
+            // Retry in the next flush, the sealed journal is kept until then
+            visits.forEach((postId, visit) -> getVisitCounter(postId).add(visit));
+            log.error("Failed to increase visits of [{}] posts", visits.size(), e);
+            return;
+        }
 
-                    log.debug("Took a new visit for post id: [{}]", postId);
+        try {
+            journal.truncate();
+        } catch (IOException e) {
+            log.error("Failed to truncate the visit journal", e);
+        }
+    }
 
-                    // Increase the visit
-                    basePostService.increaseVisit(postId);
+    private void mergeSketches(Map<Integer, HyperLogLog> sketches) {
+        if (sketches.isEmpty()) {
+            return;
+        }
+        try {
+            visitorSketchService.mergeSketches(sketches);
+        } catch (RuntimeException e) {
+            // Retry in the next flush
+            sketches.forEach((postId, sketch) -> visitorSketches.merge(postId, sketch,
+                (current, previous) -> {
+                    synchronized (current) {
+                        return current.merge(previous);
+                    }
+                }));
+            log.error("Failed to merge visitor sketches of [{}] posts", sketches.size(), e);
+        }
+    }
 
-                    log.debug("Increased visits for post id: [{}]", postId);
-                } catch (InterruptedException e) {
-                    log.debug(
-                        "Post visit task: " + Thread.currentThread().getName() + " was interrupted",
-                        e);
-                    // Ignore this exception
-                }
-            }
+    @PreDestroy
+    public void preDestroy() {
+        flushVisits();
+        try {
+            journal.close();
+        } catch (IOException e) {
+            log.error("Failed to close the visit journal", e);
+        }
+    }
 
-            log.debug("Thread: [{}] has been interrupted", Thread.currentThread().getName());
+    @NonNull
+    private LongAdder getVisitCounter(@NonNull Integer postId) {
+        LongAdder visitCounter = visitCounters.get(postId);
+        if (visitCounter == null) {
+            visitCounter = visitCounters.computeIfAbsent(postId, id -> new LongAdder());
         }
+        return visitCounter;
     }
 }
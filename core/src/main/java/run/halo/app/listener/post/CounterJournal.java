@@ -0,0 +1,230 @@
+package run.halo.app.listener.post;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.NonNull;
+import org.springframework.util.Assert;
+import run.halo.app.exception.ServiceException;
+
+/**
+ * Append-only journal of counter deltas.
+ *
+ * <p>Deltas are summed in memory and appended to the active segment by {@link #sync()}, one
+ * fixed size record per id, followed by a single fsync. Rolling seals the active segment and
+ * opens the next one, sealed segments are deleted by {@link #truncate()} once their deltas have
+ * been persisted elsewhere.
+ *
+ * <p>A record is an int id, a long delta and the crc32 of both. Replay stops at the first torn
+ * or corrupted record of a segment.
+ *
+ * @author guqing
+ */
+@Slf4j
+class CounterJournal {
+
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private static final int RECORD_SIZE = Integer.BYTES + Long.BYTES + Integer.BYTES;
+
+    private static final int DATA_SIZE = Integer.BYTES + Long.BYTES;
+
+    private final Path folder;
+
+    private final Map<Integer, LongAdder> pendingDeltas = new ConcurrentHashMap<>();
+
+    private long activeSequence;
+
+    private FileChannel activeChannel;
+
+    /**
+     * Opens the journal, the segments left by the last run are kept sealed until they are
+     * truncated.
+     *
+     * @param folder journal folder must not be null
+     */
+    CounterJournal(@NonNull Path folder) {
+        Assert.notNull(folder, "Journal folder must not be null");
+
+        this.folder = folder;
+        try {
+            Files.createDirectories(folder);
+            for (Long sequence : listSealedSequences()) {
+                Path segment = segmentPath(sequence);
+                if (Files.size(segment) == 0) {
+                    Files.delete(segment);
+                }
+            }
+            List<Long> sequences = listSealedSequences();
+            activeSequence = sequences.isEmpty() ? 0 : sequences.get(sequences.size() - 1) + 1;
+            activeChannel = openSegment(activeSequence);
+        } catch (IOException e) {
+            throw new ServiceException("Failed to open the counter journal: " + folder, e);
+        }
+    }
+
+    /**
+     * Replays the sealed segments.
+     *
+     * @return deltas keyed by id
+     */
+    @NonNull
+    synchronized Map<Integer, Long> replay() {
+        Map<Integer, Long> deltas = new HashMap<>();
+        try {
+            for (Long sequence : listSealedSequences()) {
+                replaySegment(segmentPath(sequence), deltas);
+            }
+        } catch (IOException e) {
+            throw new ServiceException("Failed to replay the counter journal: " + folder, e);
+        }
+        return deltas;
+    }
+
+    /**
+     * Appends a delta, it is durable after the next sync.
+     *
+     * @param id id must not be null
+     * @param delta delta
+     */
+    void append(@NonNull Integer id, long delta) {
+        LongAdder pendingDelta = pendingDeltas.get(id);
+        if (pendingDelta == null) {
+            pendingDelta = pendingDeltas.computeIfAbsent(id, key -> new LongAdder());
+        }
+        pendingDelta.add(delta);
+    }
+
+    /**
+     * Writes the pending deltas to the active segment and forces them to the disk.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    synchronized void sync() throws IOException {
+        Map<Integer, Long> deltas = new HashMap<>();
+        pendingDeltas.forEach((id, pendingDelta) -> {
+            long delta = pendingDelta.sumThenReset();
+            if (delta != 0) {
+                deltas.put(id, delta);
+            }
+        });
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(deltas.size() * RECORD_SIZE);
+        deltas.forEach((id, delta) -> encode(buffer, id, delta));
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                activeChannel.write(buffer);
+            }
+            activeChannel.force(false);
+        } catch (IOException e) {
+            // Retry in the next sync
+            deltas.forEach(this::append);
+            throw e;
+        }
+    }
+
+    /**
+     * Syncs and seals the active segment, then opens the next one.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    synchronized void roll() throws IOException {
+        sync();
+        activeChannel.close();
+        activeChannel = openSegment(++activeSequence);
+    }
+
+    /**
+     * Deletes the sealed segments.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    synchronized void truncate() throws IOException {
+        for (Long sequence : listSealedSequences()) {
+            Files.deleteIfExists(segmentPath(sequence));
+        }
+    }
+
+    /**
+     * Syncs and closes the active segment.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    synchronized void close() throws IOException {
+        sync();
+        activeChannel.close();
+    }
+
+    private void replaySegment(Path segment, Map<Integer, Long> deltas) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segment));
+        CRC32 crc = new CRC32();
+        while (buffer.remaining() >= RECORD_SIZE) {
+            int position = buffer.position();
+            int id = buffer.getInt();
+            long delta = buffer.getLong();
+            crc.reset();
+            crc.update(buffer.array(), position, DATA_SIZE);
+            if ((int) crc.getValue() != buffer.getInt()) {
+                log.warn("Corrupted record at [{}] of counter journal segment: [{}]", position,
+                    segment);
+                return;
+            }
+            deltas.merge(id, delta, Long::sum);
+        }
+        if (buffer.hasRemaining()) {
+            log.warn("Torn record at [{}] of counter journal segment: [{}]", buffer.position(),
+                segment);
+        }
+    }
+
+    private static void encode(ByteBuffer buffer, int id, long delta) {
+        int position = buffer.position();
+        buffer.putInt(id).putLong(delta);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), position, DATA_SIZE);
+        buffer.putInt((int) crc.getValue());
+    }
+
+    @NonNull
+    private List<Long> listSealedSequences() throws IOException {
+        try (Stream<Path> segments = Files.list(folder)) {
+            return segments
+                .map(segment -> segment.getFileName().toString())
+                .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                .map(name -> name.substring(0, name.length() - SEGMENT_SUFFIX.length()))
+                .filter(sequence -> !sequence.isEmpty() && sequence.chars()
+                    .allMatch(Character::isDigit))
+                .map(Long::valueOf)
+                .filter(sequence -> activeChannel == null || sequence < activeSequence)
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+
+    @NonNull
+    private FileChannel openSegment(long sequence) throws IOException {
+        return FileChannel.open(segmentPath(sequence), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    @NonNull
+    private Path segmentPath(long sequence) {
+        return folder.resolve(sequence + SEGMENT_SUFFIX);
+    }
+}
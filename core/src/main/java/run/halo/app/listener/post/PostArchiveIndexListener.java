@@ -0,0 +1,36 @@
+package run.halo.app.listener.post;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import run.halo.app.event.post.PostUpdatedEvent;
+import run.halo.app.model.entity.Post;
+import run.halo.app.service.PostService;
+
+/**
+ * Post archive index listener, building the index at startup and keeping it up to date.
+ *
+ * @author guqing
+ */
+@Component
+public class PostArchiveIndexListener {
+
+    private final PostService postService;
+
+    public PostArchiveIndexListener(PostService postService) {
+        this.postService = postService;
+    }
+
+    @EventListener
+    public void onApplicationReadyEvent(ApplicationReadyEvent event) {
+        postService.indexArchives();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostUpdatedEvent(PostUpdatedEvent event) {
+        if (event.getPost() instanceof Post) {
+            postService.indexArchive(event.getPost().getId());
+        }
+    }
+}
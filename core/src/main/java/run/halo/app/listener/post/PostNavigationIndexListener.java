@@ -0,0 +1,38 @@
+package run.halo.app.listener.post;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import run.halo.app.event.options.OptionUpdatedEvent;
+import run.halo.app.event.post.PostUpdatedEvent;
+import run.halo.app.model.entity.Post;
+import run.halo.app.service.PostService;
+
+/**
+ * Post navigation index listener, invalidating the index once the posts or the options have
+ * been changed.
+ *
+ * @author guqing
+ */
+@Component
+public class PostNavigationIndexListener {
+
+    private final PostService postService;
+
+    public PostNavigationIndexListener(PostService postService) {
+        this.postService = postService;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostUpdatedEvent(PostUpdatedEvent event) {
+        if (event.getPost() instanceof Post) {
+            postService.invalidateNavigation();
+        }
+    }
+
+    @EventListener
+    public void onOptionUpdatedEvent(OptionUpdatedEvent event) {
+        // The sort and the full paths of the posts depend on the options
+        postService.invalidateNavigation();
+    }
+}
@@ -0,0 +1,37 @@
+package run.halo.app.listener.post;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import run.halo.app.event.post.PostUpdatedEvent;
+import run.halo.app.service.SearchService;
+
+/**
+ * Post search index listener, opening the index at startup and keeping the index of the posts
+ * and sheets up to date.
+ *
+ * @author guqing
+ */
+@Component
+public class PostSearchIndexListener {
+
+    private final SearchService searchService;
+
+    public PostSearchIndexListener(SearchService searchService) {
+        this.searchService = searchService;
+    }
+
+    @Async
+    @EventListener
+    public void onApplicationReadyEvent(ApplicationReadyEvent event) {
+        // Searches fall back to the database until the index is ready
+        searchService.open();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostUpdatedEvent(PostUpdatedEvent event) {
+        searchService.index(event.getPost());
+    }
+}
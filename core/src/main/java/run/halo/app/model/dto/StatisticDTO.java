@@ -31,4 +31,6 @@ public class StatisticDTO {
     private Long visitCount;
 
     private Long likeCount;
+
+    private Long visitorCount;
 }
@@ -99,6 +99,13 @@ public class BasePost extends BaseEntity {
     @Lob
     private String summary;
 
+    /**
+     * Summary generated from the format content, used when the summary is blank.
+     */
+    @Column(name = "generated_summary")
+    @Lob
+    private String generatedSummary;
+
     /**
      * Cover thumbnail of the post.
      */
@@ -0,0 +1,37 @@
+package run.halo.app.model.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import run.halo.app.utils.HyperLogLog;
+
+/**
+ * Visitor sketch entity, the HyperLogLog registers of the unique visitors of a post.
+ *
+ * @author guqing
+ */
+@Data
+@Entity
+@Table(name = "visitor_sketches")
+@ToString(callSuper = true)
+@EqualsAndHashCode(callSuper = true)
+public class VisitorSketch extends BaseEntity {
+
+    /**
+     * Post id, or 0 for the sketch of the whole site.
+     */
+    @Id
+    @Column(name = "post_id")
+    private Integer postId;
+
+    /**
+     * HyperLogLog registers.
+     */
+    @Column(name = "registers", length = HyperLogLog.REGISTER_COUNT, nullable = false)
+    @ToString.Exclude
+    private byte[] registers;
+}
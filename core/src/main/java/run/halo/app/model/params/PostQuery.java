@@ -27,4 +27,9 @@ public class PostQuery {
      */
     private Integer categoryId;
 
+    /**
+     * Tag id.
+     */
+    private Integer tagId;
+
 }
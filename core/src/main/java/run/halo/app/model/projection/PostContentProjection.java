@@ -0,0 +1,20 @@
+package run.halo.app.model.projection;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Post content projection, holding the format content to generate the summary of a post from.
+ *
+ * @author guqing
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PostContentProjection {
+
+    private Integer id;
+
+    private String formatContent;
+}
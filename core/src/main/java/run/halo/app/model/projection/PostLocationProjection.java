@@ -0,0 +1,23 @@
+package run.halo.app.model.projection;
+
+import java.util.Date;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Post location projection, holding the fields to build the full path of a post.
+ *
+ * @author guqing
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PostLocationProjection {
+
+    private Integer id;
+
+    private String slug;
+
+    private Date createTime;
+}
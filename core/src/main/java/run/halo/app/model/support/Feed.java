@@ -0,0 +1,47 @@
+package run.halo.app.model.support;
+
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.lang.NonNull;
+import org.springframework.util.Assert;
+
+/**
+ * Generated feed, such as a rss, an atom or a sitemap.
+ *
+ * @author guqing
+ */
+@Getter
+@ToString(exclude = "content")
+public class Feed {
+
+    /**
+     * Encoded content.
+     */
+    private final byte[] content;
+
+    /**
+     * Strong entity tag of the content, quoted.
+     */
+    private final String eTag;
+
+    /**
+     * Time when the content last changed. (ms)
+     */
+    private final long lastModified;
+
+    /**
+     * Time when the generation of the feed started. (ms)
+     */
+    private final long generatedAt;
+
+    public Feed(@NonNull byte[] content, @NonNull String eTag, long lastModified,
+        long generatedAt) {
+        Assert.notNull(content, "Feed content must not be null");
+        Assert.hasText(eTag, "Feed entity tag must not be blank");
+
+        this.content = content;
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+        this.generatedAt = generatedAt;
+    }
+}
@@ -0,0 +1,30 @@
+package run.halo.app.model.vo;
+
+import java.util.List;
+import lombok.Data;
+import lombok.ToString;
+import org.springframework.data.domain.Page;
+import run.halo.app.model.dto.CategoryWithPostCountDTO;
+import run.halo.app.model.dto.TagWithPostCountDTO;
+
+/**
+ * Post search result vo.
+ *
+ * @author guqing
+ */
+@Data
+@ToString
+public class PostSearchResultVO {
+
+    private Page<PostSearchVO> posts;
+
+    /**
+     * Categories of all matching posts, with the numbers of matching posts.
+     */
+    private List<CategoryWithPostCountDTO> categories;
+
+    /**
+     * Tags of all matching posts, with the numbers of matching posts.
+     */
+    private List<TagWithPostCountDTO> tags;
+}
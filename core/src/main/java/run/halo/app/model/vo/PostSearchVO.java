@@ -0,0 +1,21 @@
+package run.halo.app.model.vo;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+/**
+ * Post search vo.
+ *
+ * @author guqing
+ */
+@Data
+@ToString(callSuper = true)
+@EqualsAndHashCode(callSuper = true)
+public class PostSearchVO extends PostListVO {
+
+    /**
+     * Html snippet of the content around the first match, with the matches marked.
+     */
+    private String snippet;
+}
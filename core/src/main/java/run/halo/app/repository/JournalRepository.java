@@ -1,5 +1,6 @@
 package run.halo.app.repository;
 
+import java.util.Map;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
@@ -41,4 +42,15 @@ public interface JournalRepository
     @Modifying
     @Query("update Journal j set j.likes = j.likes + :likes where j.id = :id")
     int updateLikes(@Param("likes") long likes, @Param("id") @NonNull Integer id);
+
+    /**
+     * Updates likes of journals in a single batch.
+     *
+     * @param likes likes deltas keyed by journal id must not be null
+     * @return updated rows, in the iteration order of the likes
+     */
+    @NonNull
+    default int[] updateLikesInBatch(@NonNull Map<Integer, Long> likes) {
+        return increaseInBatch("likes", likes);
+    }
 }
@@ -0,0 +1,13 @@
+package run.halo.app.repository;
+
+import run.halo.app.model.entity.VisitorSketch;
+import run.halo.app.repository.base.BaseRepository;
+
+/**
+ * Visitor sketch repository.
+ *
+ * @author guqing
+ */
+public interface VisitorSketchRepository extends BaseRepository<VisitorSketch, Integer> {
+
+}
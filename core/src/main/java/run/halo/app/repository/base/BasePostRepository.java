@@ -1,7 +1,9 @@
 package run.halo.app.repository.base;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -12,6 +14,8 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.lang.NonNull;
 import run.halo.app.model.entity.BasePost;
 import run.halo.app.model.enums.PostStatus;
+import run.halo.app.model.projection.PostContentProjection;
+import run.halo.app.model.projection.PostLocationProjection;
 
 /**
  * Base post repository.
@@ -168,6 +172,72 @@ public interface BasePostRepository<POST extends BasePost> extends BaseRepositor
      */
     long countByStatus(@NonNull PostStatus status);
 
+    /**
+     * Finds post locations by status in an id range, in id order.
+     *
+     * @param status status must not be null
+     * @param afterId exclusive lower bound of the ids must not be null
+     * @param toId inclusive upper bound of the ids must not be null
+     * @param pageable page info, which must be unsorted
+     * @return a list of post locations
+     */
+    @Query("select new run.halo.app.model.projection.PostLocationProjection(p.id, p.slug, "
+        + "p.createTime) from #{#entityName} p "
+        + "where p.status = :status and p.id > :afterId and p.id <= :toId order by p.id")
+    @NonNull
+    List<PostLocationProjection> findAllLocationByStatusAndIdRange(
+        @Param("status") @NonNull PostStatus status, @Param("afterId") @NonNull Integer afterId,
+        @Param("toId") @NonNull Integer toId, @NonNull Pageable pageable);
+
+    /**
+     * Finds the locations of all posts.
+     *
+     * @return a list of post locations
+     */
+    @Query("select new run.halo.app.model.projection.PostLocationProjection(p.id, p.slug, "
+        + "p.createTime) from #{#entityName} p")
+    @NonNull
+    List<PostLocationProjection> findAllLocation();
+
+    /**
+     * Finds post ids by status.
+     *
+     * @param status status must not be null
+     * @param sort sort info must not be null
+     * @return a list of post ids
+     */
+    @Query("select p.id from #{#entityName} p where p.status = :status")
+    @NonNull
+    List<Integer> findAllIdByStatus(@Param("status") @NonNull PostStatus status,
+        @NonNull Sort sort);
+
+    /**
+     * Finds post ids by status after an id, in id order.
+     *
+     * @param status status must not be null
+     * @param afterId exclusive lower bound of the ids must not be null
+     * @param pageable page info, which must be unsorted
+     * @return a list of post ids
+     */
+    @Query("select p.id from #{#entityName} p where p.status = :status and p.id > :afterId "
+        + "order by p.id")
+    @NonNull
+    List<Integer> findAllIdByStatusAndIdGreaterThan(@Param("status") @NonNull PostStatus status,
+        @Param("afterId") @NonNull Integer afterId, @NonNull Pageable pageable);
+
+    /**
+     * Finds post ids by status updated after a time.
+     *
+     * @param status status must not be null
+     * @param updateTime exclusive lower bound of the update time must not be null
+     * @return a list of post ids
+     */
+    @Query("select p.id from #{#entityName} p where p.status = :status "
+        + "and p.updateTime > :updateTime")
+    @NonNull
+    List<Integer> findAllIdByStatusAndUpdateTimeAfter(@Param("status") @NonNull PostStatus status,
+        @Param("updateTime") @NonNull Date updateTime);
+
     /**
      * Determine if the slug exists.
      *
@@ -215,6 +285,40 @@ public interface BasePostRepository<POST extends BasePost> extends BaseRepositor
     @Query("update BasePost p set p.likes = p.likes + :likes where p.id = :postId")
     int updateLikes(@Param("likes") long likes, @Param("postId") @NonNull Integer postId);
 
+    /**
+     * Updates visits of posts in a single batch.
+     *
+     * @param visits visit deltas keyed by post id must not be null
+     * @return updated rows, in the iteration order of the visits
+     */
+    @NonNull
+    default int[] updateVisitsInBatch(@NonNull Map<Integer, Long> visits) {
+        return increaseInBatch("visits", visits);
+    }
+
+    /**
+     * Updates likes of posts in a single batch.
+     *
+     * @param likes likes deltas keyed by post id must not be null
+     * @return updated rows, in the iteration order of the likes
+     */
+    @NonNull
+    default int[] updateLikesInBatch(@NonNull Map<Integer, Long> likes) {
+        return increaseInBatch("likes", likes);
+    }
+
+    /**
+     * Finds ids of the posts with the given status.
+     *
+     * @param postIds post ids must not be null
+     * @param status post status must not be null
+     * @return a list of post id
+     */
+    @Query("select p.id from BasePost p where p.id in :postIds and p.status = :status")
+    @NonNull
+    List<Integer> findAllIdByIdInAndStatus(@Param("postIds") @NonNull Collection<Integer> postIds,
+        @Param("status") @NonNull PostStatus status);
+
     /**
      * Updates post original content.
      *
@@ -240,14 +344,53 @@ public interface BasePostRepository<POST extends BasePost> extends BaseRepositor
         @Param("postId") @NonNull Integer postId);
 
     /**
-     * Updates post format content by post id.
+     * Updates post format content, generated summary and word count by post id.
      *
      * @param formatContent format content must not be null.
+     * @param generatedSummary summary generated from the format content must not be null.
+     * @param wordCount word count of the format content
      * @param postId post id must not be null.
      * @return updated rows.
      */
     @Modifying
-    @Query("update BasePost p set p.formatContent = :formatContent where p.id = :postId")
+    @Query("update BasePost p set p.formatContent = :formatContent, "
+        + "p.generatedSummary = :generatedSummary, p.wordCount = :wordCount where p.id = :postId")
     int updateFormatContent(@Param("formatContent") @NonNull String formatContent,
-        @Param("postId") @NonNull Integer postId);
+        @Param("generatedSummary") @NonNull String generatedSummary,
+        @Param("wordCount") long wordCount, @Param("postId") @NonNull Integer postId);
+
+    /**
+     * Updates post generated summary and word count by post id.
+     *
+     * @param generatedSummary summary generated from the format content must not be null.
+     * @param wordCount word count of the format content
+     * @param postId post id must not be null.
+     * @return updated rows.
+     */
+    @Modifying
+    @Query("update BasePost p set p.generatedSummary = :generatedSummary, "
+        + "p.wordCount = :wordCount where p.id = :postId")
+    int updateGeneratedSummary(@Param("generatedSummary") @NonNull String generatedSummary,
+        @Param("wordCount") long wordCount, @Param("postId") @NonNull Integer postId);
+
+    /**
+     * Clears the generated summaries, so that they will be generated again.
+     *
+     * @return updated rows.
+     */
+    @Modifying
+    @Query("update #{#entityName} p set p.generatedSummary = null")
+    int clearGeneratedSummaries();
+
+    /**
+     * Finds the format contents of the posts without generated summary, in id order.
+     *
+     * @param pageable page info, which must be unsorted
+     * @return a list of post contents
+     */
+    @Query("select new run.halo.app.model.projection.PostContentProjection(p.id, "
+        + "p.formatContent) from #{#entityName} p where p.generatedSummary is null order by p.id")
+    @NonNull
+    List<PostContentProjection> findAllContentByGeneratedSummaryIsNull(
+        @NonNull Pageable pageable);
 }
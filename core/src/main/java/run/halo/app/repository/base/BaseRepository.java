@@ -2,6 +2,7 @@ package run.halo.app.repository.base;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
@@ -49,4 +50,14 @@ public interface BaseRepository<D, I> extends JpaRepository<D, I> {
      */
     long deleteByIdIn(@NonNull Collection<I> ids);
 
+    /**
+     * Increases a numeric attribute of many domains in a single JDBC batch.
+     *
+     * @param attributeName numeric attribute name of domain must not be blank
+     * @param deltas deltas keyed by domain id must not be null
+     * @return numbers of rows affected, in the iteration order of the deltas
+     */
+    @NonNull
+    int[] increaseInBatch(@NonNull String attributeName, @NonNull Map<I, Long> deltas);
+
 }
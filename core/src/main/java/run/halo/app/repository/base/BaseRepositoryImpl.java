@@ -1,9 +1,12 @@
 package run.halo.app.repository.base;
 
+import java.sql.PreparedStatement;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
@@ -13,6 +16,9 @@ import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
@@ -147,6 +153,60 @@ public class BaseRepositoryImpl<DOMAIN, ID> extends SimpleJpaRepository<DOMAIN,
         return domains.size();
     }
 
+    /**
+     * Increases a numeric attribute of many domains in a single JDBC batch.
+     *
+     * @param attributeName numeric attribute name of domain must not be blank
+     * @param deltas deltas keyed by domain id must not be null
+     * @return numbers of rows affected, in the iteration order of the deltas
+     */
+    @Override
+    @Transactional
+    public int[] increaseInBatch(String attributeName, Map<ID, Long> deltas) {
+        Assert.hasText(attributeName, "Attribute name must not be blank");
+        Assert.notNull(deltas, "Deltas must not be null");
+
+        if (deltas.isEmpty()) {
+            return new int[0];
+        }
+
+        // Resolve table and column names from the entity persister
+        AbstractEntityPersister persister = (AbstractEntityPersister) entityManager
+            .getEntityManagerFactory()
+            .unwrap(SessionFactoryImplementor.class)
+            .getMetamodel()
+            .entityPersister(getDomainClass());
+        String column = persister.getPropertyColumnNames(attributeName)[0];
+        String sql = "update " + persister.getTableName()
+            + " set " + column + " = " + column + " + ?"
+            + " where " + persister.getIdentifierColumnNames()[0] + " = ?";
+
+        log.debug("Customized increaseInBatch method was invoked, sql: [{}], size: [{}]", sql,
+            deltas.size());
+
+        // Flush pending changes before writing behind the persistence context
+        entityManager.flush();
+
+        int[] affectedRows = entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (Map.Entry<ID, Long> delta : deltas.entrySet()) {
+                    statement.setLong(1, delta.getValue());
+                    statement.setObject(2, delta.getKey());
+                    statement.addBatch();
+                }
+                return statement.executeBatch();
+            }
+        });
+
+        for (int i = 0; i < affectedRows.length; i++) {
+            // Some drivers do not report the row counts of a batch
+            if (affectedRows[i] == Statement.SUCCESS_NO_INFO) {
+                affectedRows[i] = 1;
+            }
+        }
+        return affectedRows;
+    }
+
     protected <S extends DOMAIN> Page<S> readPage(TypedQuery<S> query, Class<S> domainClass,
         Pageable pageable, TypedQuery<Long> countQuery) {
 
@@ -0,0 +1,59 @@
+package run.halo.app.search;
+
+import java.util.Collection;
+import java.util.Collections;
+import lombok.Getter;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Document of the search index.
+ *
+ * @author guqing
+ */
+@Getter
+public class SearchDocument {
+
+    /**
+     * Type of the post documents.
+     */
+    public static final byte POST = 0;
+
+    /**
+     * Type of the sheet documents.
+     */
+    public static final byte SHEET = 1;
+
+    private final Integer id;
+
+    private final byte type;
+
+    private final String title;
+
+    private final String content;
+
+    private final Collection<Integer> categoryIds;
+
+    private final Collection<Integer> tagIds;
+
+    public SearchDocument(@NonNull Integer id, byte type, @Nullable String title,
+        @Nullable String content) {
+        this(id, type, title, content, Collections.emptyList(), Collections.emptyList());
+    }
+
+    public SearchDocument(@NonNull Integer id, byte type, @Nullable String title,
+        @Nullable String content, @NonNull Collection<Integer> categoryIds,
+        @NonNull Collection<Integer> tagIds) {
+        Assert.notNull(id, "Document id must not be null");
+        Assert.notNull(categoryIds, "Category ids must not be null");
+        Assert.notNull(tagIds, "Tag ids must not be null");
+
+        this.id = id;
+        this.type = type;
+        this.title = title;
+        this.content = content;
+        this.categoryIds = categoryIds;
+        this.tagIds = tagIds;
+    }
+}
@@ -0,0 +1,113 @@
+package run.halo.app.search;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.web.util.HtmlUtils;
+
+/**
+ * Highlighter of the search results.
+ *
+ * <p>Snippets are cut around the first match recorded by the search index, so that only the
+ * snippet is tokenized again to find the matches to highlight, instead of the whole content.
+ *
+ * @author guqing
+ */
+public final class SearchHighlighter {
+
+    private static final String ELLIPSIS = "...";
+
+    private static final String MARK_START = "<mark>";
+
+    private static final String MARK_END = "</mark>";
+
+    private SearchHighlighter() {
+    }
+
+    /**
+     * Builds the html snippet of a text around an offset, marking the query terms.
+     *
+     * @param text plain text
+     * @param offset offset of the first match in the text, or -1 to start at the beginning
+     * @param query query text must not be null
+     * @param length maximum number of characters of the text in the snippet
+     * @return html snippet
+     */
+    @NonNull
+    public static String highlight(@Nullable String text, int offset, @NonNull String query,
+        int length) {
+        Assert.notNull(query, "Query must not be null");
+
+        if (StringUtils.isEmpty(text) || length <= 0) {
+            return StringUtils.EMPTY;
+        }
+
+        // Show a little of the text before the first match
+        int start = offset < 0 || offset >= text.length() ? 0 : Math.max(offset - length / 4, 0);
+        start = Math.max(Math.min(start, text.length() - length), 0);
+        if (start > 0 && Character.isLowSurrogate(text.charAt(start))) {
+            start++;
+        }
+        int end = Math.min(start + length, text.length());
+        if (end < text.length() && Character.isHighSurrogate(text.charAt(end - 1))) {
+            end--;
+        }
+        String window = text.substring(start, end);
+
+        boolean[] marked = mark(window, query);
+
+        StringBuilder snippet = new StringBuilder();
+        if (start > 0) {
+            snippet.append(ELLIPSIS);
+        }
+        int runStart = 0;
+        for (int i = 1; i <= window.length(); i++) {
+            if (i < window.length() && marked[i] == marked[runStart]) {
+                continue;
+            }
+            String run = HtmlUtils.htmlEscape(window.substring(runStart, i));
+            if (marked[runStart]) {
+                snippet.append(MARK_START).append(run).append(MARK_END);
+            } else {
+                snippet.append(run.replaceAll("\\s+", " "));
+            }
+            runStart = i;
+        }
+        if (end < text.length()) {
+            snippet.append(ELLIPSIS);
+        }
+        return snippet.toString();
+    }
+
+    private static boolean[] mark(String window, String query) {
+        Set<String> queryTerms = SearchTokenizer.terms(query);
+        Set<String> unigrams = queryTerms.stream()
+            .filter(SearchTokenizer::isCjkUnigram)
+            .collect(Collectors.toSet());
+
+        boolean[] marked = new boolean[window.length()];
+        SearchTokenizer.tokenize(window, (term, start, end) -> {
+            if (queryTerms.contains(term)) {
+                fill(marked, start, end);
+                return;
+            }
+            // A single CJK character of the query matches the bigrams starting with it, the
+            // character ending a run is matched above as a unigram
+            for (String unigram : unigrams) {
+                if (term.startsWith(unigram)) {
+                    fill(marked, start, start + unigram.length());
+                }
+            }
+        });
+        return marked;
+    }
+
+    private static void fill(boolean[] marked, int start, int end) {
+        for (int i = start; i < end; i++) {
+            marked[i] = true;
+        }
+    }
+}
@@ -0,0 +1,688 @@
+package run.halo.app.search;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import lombok.Getter;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * In-memory inverted index ranking documents by BM25.
+ *
+ * <p>Documents are numbered in insertion order. The postings of a term are the numbers of the
+ * documents containing it with the term frequencies and the offsets of the first occurrences in
+ * the content, in ascending document order. Removing or replacing a document only marks its
+ * number as removed, its postings are skipped by searches and dropped by compaction, which
+ * renumbers the remaining documents once the removed postings outweigh a quarter of all
+ * postings. Writing the index compacts it first and then only blocks the changes, not the
+ * searches.
+ *
+ * <p>All query terms must match. A single CJK character matches every bigram starting with it,
+ * and the unigram indexed for it at the end of a run. Title terms count {@link #TITLE_BOOST}
+ * times, as if the title were repeated in the content. The categories and the tags of the
+ * matching documents are counted while collecting them.
+ *
+ * @author guqing
+ */
+public class SearchIndex {
+
+    private static final int MAGIC = 0x48534958;
+
+    private static final int VERSION = 3;
+
+    private static final float K1 = 1.2f;
+
+    private static final float B = 0.75f;
+
+    private static final int TITLE_BOOST = 3;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+
+    private final Map<Integer, Integer> docNumbers = new HashMap<>();
+
+    private int docCount;
+
+    private int[] docIds = new int[INITIAL_CAPACITY];
+
+    private byte[] docTypes = new byte[INITIAL_CAPACITY];
+
+    private int[] docLengths = new int[INITIAL_CAPACITY];
+
+    private int[] docTermCounts = new int[INITIAL_CAPACITY];
+
+    private int[][] docCategoryIds = new int[INITIAL_CAPACITY][];
+
+    private int[][] docTagIds = new int[INITIAL_CAPACITY][];
+
+    private long totalLength;
+
+    private long postingCount;
+
+    private long removedPostingCount;
+
+    /**
+     * Adds a document, replacing the document with the same id.
+     *
+     * @param document document must not be null
+     */
+    public void add(@NonNull SearchDocument document) {
+        Assert.notNull(document, "Search document must not be null");
+
+        // Tokenize without holding the lock, into the frequency and the first content offset
+        // of every term, which is -1 for the terms only occurring in the title
+        Map<String, int[]> occurrences = new HashMap<>();
+        SearchTokenizer.tokenize(document.getTitle(), (term, start, end) ->
+            occurrences.computeIfAbsent(term, t -> new int[] {0, -1})[0] += TITLE_BOOST);
+        SearchTokenizer.tokenize(document.getContent(), (term, start, end) -> {
+            int[] occurrence = occurrences.computeIfAbsent(term, t -> new int[] {0, -1});
+            occurrence[0]++;
+            if (occurrence[1] < 0) {
+                occurrence[1] = start;
+            }
+        });
+
+        int length = 0;
+        for (int[] occurrence : occurrences.values()) {
+            length += occurrence[0];
+        }
+        int[] categoryIds = toArray(document.getCategoryIds());
+        int[] tagIds = toArray(document.getTagIds());
+
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            removeDocument(document.getId());
+
+            int docNumber = docCount++;
+            ensureCapacity(docCount);
+            docIds[docNumber] = document.getId();
+            docTypes[docNumber] = document.getType();
+            docLengths[docNumber] = length;
+            docTermCounts[docNumber] = occurrences.size();
+            docCategoryIds[docNumber] = categoryIds;
+            docTagIds[docNumber] = tagIds;
+            docNumbers.put(document.getId(), docNumber);
+            totalLength += length;
+
+            occurrences.forEach((term, occurrence) -> terms
+                .computeIfAbsent(term, t -> new Postings())
+                .add(docNumber, occurrence[0], occurrence[1]));
+            postingCount += occurrences.size();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Removes a document.
+     *
+     * @param id document id must not be null
+     */
+    public void remove(@NonNull Integer id) {
+        Assert.notNull(id, "Document id must not be null");
+
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            removeDocument(id);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Whether the index contains a document.
+     *
+     * @param id document id must not be null
+     * @return true if the document is indexed
+     */
+    public boolean contains(@NonNull Integer id) {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            return docNumbers.containsKey(id);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Gets the ids of all documents.
+     *
+     * @return a list of document ids
+     */
+    @NonNull
+    public List<Integer> getIds() {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            return new ArrayList<>(docNumbers.keySet());
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Searches the documents of a type matching all query terms, ranked by BM25.
+     *
+     * @param query query text
+     * @param type document type
+     * @param offset number of top ranked documents to skip
+     * @param limit maximum number of documents
+     * @return search result
+     */
+    @NonNull
+    public SearchResult search(@NonNull String query, byte type, int offset, int limit) {
+        return search(query, type, null, null, offset, limit);
+    }
+
+    /**
+     * Searches the documents of a type matching all query terms and the filters, ranked by
+     * BM25.
+     *
+     * @param query query text
+     * @param type document type
+     * @param categoryId category id the documents must have, or null for any category
+     * @param tagId tag id the documents must have, or null for any tag
+     * @param offset number of top ranked documents to skip
+     * @param limit maximum number of documents
+     * @return search result
+     */
+    @NonNull
+    public SearchResult search(@NonNull String query, byte type, @Nullable Integer categoryId,
+        @Nullable Integer tagId, int offset, int limit) {
+        Assert.notNull(query, "Query must not be null");
+        Assert.isTrue(offset >= 0, "Offset must not be less than 0");
+        Assert.isTrue(limit > 0, "Limit must be greater than 0");
+
+        Set<String> queryTerms = SearchTokenizer.terms(query);
+        if (queryTerms.isEmpty()) {
+            return SearchResult.EMPTY;
+        }
+
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            int liveCount = docNumbers.size();
+            if (liveCount == 0) {
+                return SearchResult.EMPTY;
+            }
+            float averageLength = (float) totalLength / liveCount;
+
+            float[] scores = new float[docCount];
+            int[] matchedClauses = new int[docCount];
+            List<List<Postings>> clauses = new ArrayList<>(queryTerms.size());
+            for (String queryTerm : queryTerms) {
+                List<Postings> clausePostings = expand(queryTerm);
+                clauses.add(clausePostings);
+                for (Postings postings : clausePostings) {
+                    score(postings, type, liveCount, averageLength, clauses.size(), scores,
+                        matchedClauses);
+                }
+            }
+
+            // Keep the top ranked documents of the page, counting the facets of all documents
+            int size = offset + limit;
+            PriorityQueue<Integer> top = new PriorityQueue<>(
+                (left, right) -> compare(scores, left, right));
+            int total = 0;
+            Map<Integer, Integer> categoryCounts = new HashMap<>();
+            Map<Integer, Integer> tagCounts = new HashMap<>();
+            for (int docNumber = 0; docNumber < docCount; docNumber++) {
+                if (matchedClauses[docNumber] != clauses.size()
+                    || !contains(docCategoryIds[docNumber], categoryId)
+                    || !contains(docTagIds[docNumber], tagId)) {
+                    continue;
+                }
+                total++;
+                count(docCategoryIds[docNumber], categoryCounts);
+                count(docTagIds[docNumber], tagCounts);
+                top.offer(docNumber);
+                if (top.size() > size) {
+                    top.poll();
+                }
+            }
+
+            int[] ranked = new int[top.size()];
+            for (int i = ranked.length - 1; i >= 0; i--) {
+                ranked[i] = top.poll();
+            }
+            List<SearchHit> hits = new ArrayList<>(Math.max(ranked.length - offset, 0));
+            for (int i = offset; i < ranked.length; i++) {
+                hits.add(new SearchHit(docIds[ranked[i]], getOffset(clauses, ranked[i])));
+            }
+            return new SearchResult(total, hits, categoryCounts, tagCounts);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the index.
+     *
+     * @param output data output must not be null
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeTo(@NonNull DataOutputStream output) throws IOException {
+        Assert.notNull(output, "Data output must not be null");
+
+        // Compact under the write lock, then downgrade to the read lock so that searches go on
+        // while the index is written
+        Lock writeLock = lock.writeLock();
+        Lock readLock = lock.readLock();
+        writeLock.lock();
+        try {
+            compact();
+            readLock.lock();
+        } finally {
+            writeLock.unlock();
+        }
+        try {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+
+            output.writeInt(docCount);
+            for (int docNumber = 0; docNumber < docCount; docNumber++) {
+                output.writeInt(docIds[docNumber]);
+                output.writeByte(docTypes[docNumber]);
+                output.writeInt(docLengths[docNumber]);
+                output.writeInt(docTermCounts[docNumber]);
+                writeInts(output, docCategoryIds[docNumber]);
+                writeInts(output, docTagIds[docNumber]);
+            }
+
+            output.writeInt(terms.size());
+            for (Map.Entry<String, Postings> entry : terms.entrySet()) {
+                output.writeUTF(entry.getKey());
+                entry.getValue().writeTo(output);
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Reads an index written by {@link #writeTo(DataOutputStream)}.
+     *
+     * @param input data input must not be null
+     * @return search index
+     * @throws IOException if an I/O error occurs or the data is not a search index
+     */
+    @NonNull
+    public static SearchIndex readFrom(@NonNull DataInputStream input) throws IOException {
+        Assert.notNull(input, "Data input must not be null");
+
+        if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+            throw new IOException("Unsupported search index format");
+        }
+
+        SearchIndex index = new SearchIndex();
+
+        index.docCount = input.readInt();
+        index.ensureCapacity(index.docCount);
+        for (int docNumber = 0; docNumber < index.docCount; docNumber++) {
+            index.docIds[docNumber] = input.readInt();
+            index.docTypes[docNumber] = input.readByte();
+            index.docLengths[docNumber] = input.readInt();
+            index.docTermCounts[docNumber] = input.readInt();
+            index.docCategoryIds[docNumber] = readInts(input);
+            index.docTagIds[docNumber] = readInts(input);
+            index.docNumbers.put(index.docIds[docNumber], docNumber);
+            index.totalLength += index.docLengths[docNumber];
+        }
+
+        int termCount = input.readInt();
+        for (int i = 0; i < termCount; i++) {
+            String term = input.readUTF();
+            Postings postings = Postings.readFrom(input);
+            index.terms.put(term, postings);
+            index.postingCount += postings.size;
+        }
+        return index;
+    }
+
+    private void removeDocument(Integer id) {
+        Integer docNumber = docNumbers.remove(id);
+        if (docNumber == null) {
+            return;
+        }
+        totalLength -= docLengths[docNumber];
+        removedPostingCount += docTermCounts[docNumber];
+        docIds[docNumber] = 0;
+        docCategoryIds[docNumber] = null;
+        docTagIds[docNumber] = null;
+
+        if (removedPostingCount * 4 > postingCount) {
+            compact();
+        }
+    }
+
+    /**
+     * Drops the postings of the removed documents and renumbers the remaining documents.
+     */
+    private void compact() {
+        if (removedPostingCount == 0) {
+            return;
+        }
+
+        int[] newNumbers = new int[docCount];
+        int newCount = 0;
+        for (int docNumber = 0; docNumber < docCount; docNumber++) {
+            if (docNumbers.get(docIds[docNumber]) != null
+                && docNumbers.get(docIds[docNumber]) == docNumber) {
+                newNumbers[docNumber] = newCount;
+                docIds[newCount] = docIds[docNumber];
+                docTypes[newCount] = docTypes[docNumber];
+                docLengths[newCount] = docLengths[docNumber];
+                docTermCounts[newCount] = docTermCounts[docNumber];
+                docCategoryIds[newCount] = docCategoryIds[docNumber];
+                docTagIds[newCount] = docTagIds[docNumber];
+                docNumbers.put(docIds[newCount], newCount);
+                newCount++;
+            } else {
+                newNumbers[docNumber] = -1;
+            }
+        }
+        Arrays.fill(docCategoryIds, newCount, docCount, null);
+        Arrays.fill(docTagIds, newCount, docCount, null);
+        docCount = newCount;
+
+        postingCount = 0;
+        terms.values().removeIf(postings -> {
+            postings.renumber(newNumbers);
+            postingCount += postings.size;
+            return postings.size == 0;
+        });
+        removedPostingCount = 0;
+    }
+
+    private List<Postings> expand(String queryTerm) {
+        if (!SearchTokenizer.isCjkUnigram(queryTerm)) {
+            Postings postings = terms.get(queryTerm);
+            return postings == null ? Collections.emptyList()
+                : Collections.singletonList(postings);
+        }
+        // The unigram of the character and the bigrams starting with it
+        String next = queryTerm.substring(0, queryTerm.length() - 1)
+            + (char) (queryTerm.charAt(queryTerm.length() - 1) + 1);
+        SortedMap<String, Postings> prefixed = terms.subMap(queryTerm, next);
+        return new ArrayList<>(prefixed.values());
+    }
+
+    private void score(Postings postings, byte type, int liveCount, float averageLength,
+        int clause, float[] scores, int[] matchedClauses) {
+        float idf = (float) Math.log(1 + (liveCount - postings.size + 0.5) / (postings.size + 0.5));
+        for (int i = 0; i < postings.size; i++) {
+            int docNumber = postings.docNumbers[i];
+            if (docIds[docNumber] == 0 || docTypes[docNumber] != type
+                || matchedClauses[docNumber] < clause - 1) {
+                continue;
+            }
+            int frequency = postings.frequencies[i];
+            float norm = K1 * (1 - B + B * docLengths[docNumber] / averageLength);
+            scores[docNumber] += idf * frequency * (K1 + 1) / (frequency + norm);
+            matchedClauses[docNumber] = clause;
+        }
+    }
+
+    /**
+     * Gets the first content offset of the query terms in a document.
+     */
+    private static int getOffset(List<List<Postings>> clauses, int docNumber) {
+        int offset = -1;
+        for (List<Postings> clausePostings : clauses) {
+            for (Postings postings : clausePostings) {
+                int i = Arrays.binarySearch(postings.docNumbers, 0, postings.size, docNumber);
+                if (i >= 0 && postings.offsets[i] >= 0
+                    && (offset < 0 || postings.offsets[i] < offset)) {
+                    offset = postings.offsets[i];
+                }
+            }
+        }
+        return offset;
+    }
+
+    private static boolean contains(int[] ids, @Nullable Integer id) {
+        if (id == null) {
+            return true;
+        }
+        for (int element : ids) {
+            if (element == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void count(int[] ids, Map<Integer, Integer> counts) {
+        for (int id : ids) {
+            counts.merge(id, 1, Integer::sum);
+        }
+    }
+
+    private static int[] toArray(Collection<Integer> ids) {
+        return ids.stream().filter(Objects::nonNull).distinct().mapToInt(Integer::intValue)
+            .toArray();
+    }
+
+    private static int compare(float[] scores, int left, int right) {
+        int compare = Float.compare(scores[left], scores[right]);
+        // The later added document wins a tie
+        return compare != 0 ? compare : Integer.compare(left, right);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= docIds.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, docIds.length * 2);
+        docIds = Arrays.copyOf(docIds, newCapacity);
+        docTypes = Arrays.copyOf(docTypes, newCapacity);
+        docLengths = Arrays.copyOf(docLengths, newCapacity);
+        docTermCounts = Arrays.copyOf(docTermCounts, newCapacity);
+        docCategoryIds = Arrays.copyOf(docCategoryIds, newCapacity);
+        docTagIds = Arrays.copyOf(docTagIds, newCapacity);
+    }
+
+    /**
+     * Result of a search.
+     */
+    @Getter
+    public static class SearchResult {
+
+        private static final SearchResult EMPTY = new SearchResult(0, Collections.emptyList(),
+            Collections.emptyMap(), Collections.emptyMap());
+
+        /**
+         * Total number of matching documents.
+         */
+        private final int total;
+
+        /**
+         * Hits of the page, in rank order.
+         */
+        private final List<SearchHit> hits;
+
+        /**
+         * Numbers of the matching documents by category id.
+         */
+        private final Map<Integer, Integer> categoryCounts;
+
+        /**
+         * Numbers of the matching documents by tag id.
+         */
+        private final Map<Integer, Integer> tagCounts;
+
+        SearchResult(int total, List<SearchHit> hits, Map<Integer, Integer> categoryCounts,
+            Map<Integer, Integer> tagCounts) {
+            this.total = total;
+            this.hits = hits;
+            this.categoryCounts = categoryCounts;
+            this.tagCounts = tagCounts;
+        }
+
+        /**
+         * Gets the ids of the documents of the page, in rank order.
+         *
+         * @return a list of document ids
+         */
+        @NonNull
+        public List<Integer> getIds() {
+            return hits.stream().map(SearchHit::getId).collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Matching document.
+     */
+    @Getter
+    public static class SearchHit {
+
+        /**
+         * Document id.
+         */
+        private final Integer id;
+
+        /**
+         * Offset of the first occurrence of the query terms in the content, or -1 if they only
+         * occur in the title.
+         */
+        private final int offset;
+
+        SearchHit(Integer id, int offset) {
+            this.id = id;
+            this.offset = offset;
+        }
+    }
+
+    /**
+     * Postings of a term.
+     */
+    private static class Postings {
+
+        private int[] docNumbers = new int[2];
+
+        private int[] frequencies = new int[2];
+
+        private int[] offsets = new int[2];
+
+        private int size;
+
+        private void add(int docNumber, int frequency, int offset) {
+            if (size == docNumbers.length) {
+                resize(size * 2);
+            }
+            docNumbers[size] = docNumber;
+            frequencies[size] = frequency;
+            offsets[size] = offset;
+            size++;
+        }
+
+        private void resize(int capacity) {
+            docNumbers = Arrays.copyOf(docNumbers, capacity);
+            frequencies = Arrays.copyOf(frequencies, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+        }
+
+        private void renumber(int[] newNumbers) {
+            int newSize = 0;
+            for (int i = 0; i < size; i++) {
+                int newNumber = newNumbers[docNumbers[i]];
+                if (newNumber >= 0) {
+                    docNumbers[newSize] = newNumber;
+                    frequencies[newSize] = frequencies[i];
+                    offsets[newSize] = offsets[i];
+                    newSize++;
+                }
+            }
+            size = newSize;
+            if (size < docNumbers.length / 4) {
+                resize(Math.max(size, 2));
+            }
+        }
+
+        private void writeTo(DataOutputStream output) throws IOException {
+            output.writeInt(size);
+            int previous = 0;
+            for (int i = 0; i < size; i++) {
+                // Document numbers ascend, so the gaps are small
+                writeVarInt(output, docNumbers[i] - previous);
+                writeVarInt(output, frequencies[i]);
+                writeVarInt(output, offsets[i] + 1);
+                previous = docNumbers[i];
+            }
+        }
+
+        private static Postings readFrom(DataInputStream input) throws IOException {
+            Postings postings = new Postings();
+            int size = input.readInt();
+            postings.resize(Math.max(size, 2));
+            int previous = 0;
+            for (int i = 0; i < size; i++) {
+                previous += readVarInt(input);
+                postings.docNumbers[i] = previous;
+                postings.frequencies[i] = readVarInt(input);
+                postings.offsets[i] = readVarInt(input) - 1;
+            }
+            postings.size = size;
+            return postings;
+        }
+    }
+
+    private static void writeInts(DataOutputStream output, int[] values) throws IOException {
+        writeVarInt(output, values.length);
+        for (int value : values) {
+            output.writeInt(value);
+        }
+    }
+
+    private static int[] readInts(DataInputStream input) throws IOException {
+        int[] values = new int[readVarInt(input)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = input.readInt();
+        }
+        return values;
+    }
+
+    private static void writeVarInt(DataOutputStream output, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream input) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = input.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable length integer");
+    }
+}
@@ -0,0 +1,138 @@
+package run.halo.app.search;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Tokenizer of the search index.
+ *
+ * <p>Runs of letters and digits are tokenized as lower case words. CJK text has no word
+ * separators, so runs of CJK characters are tokenized as overlapping bigrams, and a single CJK
+ * character as a unigram. All other characters separate tokens.
+ *
+ * <p>Indexed text also yields the last character of every CJK run as a unigram, so that a single
+ * character query, which matches the bigrams starting with it, also finds the character at the
+ * end of a run.
+ *
+ * @author guqing
+ */
+public final class SearchTokenizer {
+
+    /**
+     * Words longer than this, such as encoded data, are not tokenized.
+     */
+    public static final int MAX_WORD_LENGTH = 64;
+
+    private SearchTokenizer() {
+    }
+
+    /**
+     * Token consumer.
+     */
+    @FunctionalInterface
+    public interface TokenConsumer {
+
+        /**
+         * Accepts a token.
+         *
+         * @param term token term
+         * @param start start offset of the token in the text, inclusive
+         * @param end end offset of the token in the text, exclusive
+         */
+        void accept(@NonNull String term, int start, int end);
+    }
+
+    /**
+     * Tokenizes an indexed text.
+     *
+     * @param text text to tokenize
+     * @param consumer token consumer must not be null
+     */
+    public static void tokenize(@Nullable String text, @NonNull TokenConsumer consumer) {
+        tokenize(text, true, consumer);
+    }
+
+    private static void tokenize(@Nullable String text, boolean trailingUnigrams,
+        @NonNull TokenConsumer consumer) {
+        Assert.notNull(consumer, "Token consumer must not be null");
+
+        if (text == null) {
+            return;
+        }
+
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            int codePoint = text.codePointAt(i);
+
+            if (isCjk(codePoint)) {
+                // Overlapping bigrams of the run
+                int previous = -1;
+                int count = 0;
+                while (i < length && isCjk(codePoint = text.codePointAt(i))) {
+                    int next = i + Character.charCount(codePoint);
+                    if (previous >= 0) {
+                        consumer.accept(text.substring(previous, next), previous, next);
+                    }
+                    previous = i;
+                    i = next;
+                    count++;
+                }
+                if (count == 1 || trailingUnigrams) {
+                    consumer.accept(text.substring(previous, i), previous, i);
+                }
+                continue;
+            }
+
+            if (Character.isLetterOrDigit(codePoint)) {
+                int start = i;
+                while (i < length && Character.isLetterOrDigit(codePoint = text.codePointAt(i))
+                    && !isCjk(codePoint)) {
+                    i += Character.charCount(codePoint);
+                }
+                if (i - start <= MAX_WORD_LENGTH) {
+                    consumer.accept(text.substring(start, i).toLowerCase(Locale.ROOT), start, i);
+                }
+                continue;
+            }
+
+            i += Character.charCount(codePoint);
+        }
+    }
+
+    /**
+     * Tokenizes a query text into distinct terms, in the order of their first occurrence.
+     *
+     * @param text text to tokenize
+     * @return a set of terms
+     */
+    @NonNull
+    public static Set<String> terms(@Nullable String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        tokenize(text, false, (term, start, end) -> terms.add(term));
+        return terms;
+    }
+
+    /**
+     * Whether the term is a single CJK character, which only occurs as a part of the bigrams of
+     * longer runs, except at their ends.
+     *
+     * @param term term must not be null
+     * @return true if the term is a single CJK character
+     */
+    public static boolean isCjkUnigram(@NonNull String term) {
+        return term.codePointCount(0, term.length()) == 1 && isCjk(term.codePointAt(0));
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+            || script == Character.UnicodeScript.HIRAGANA
+            || script == Character.UnicodeScript.KATAKANA
+            || script == Character.UnicodeScript.HANGUL;
+    }
+}
@@ -0,0 +1,82 @@
+package run.halo.app.service;
+
+import java.io.IOException;
+import java.io.Writer;
+import org.springframework.lang.NonNull;
+import run.halo.app.model.support.Feed;
+
+/**
+ * Feed service interface.
+ *
+ * <p>Feeds are generated once per content change and kept as encoded bytes, so that polling a
+ * feed touches the database only after a change.
+ *
+ * @author guqing
+ */
+public interface FeedService {
+
+    /**
+     * Gets the rss of the latest posts.
+     *
+     * @return rss feed
+     */
+    @NonNull
+    Feed getRss();
+
+    /**
+     * Gets the rss of the latest posts of a category.
+     *
+     * @param slug category slug must not be blank
+     * @return rss feed
+     */
+    @NonNull
+    Feed getRss(@NonNull String slug);
+
+    /**
+     * Gets the atom of the latest posts.
+     *
+     * @return atom feed
+     */
+    @NonNull
+    Feed getAtom();
+
+    /**
+     * Gets the atom of the latest posts of a category.
+     *
+     * @param slug category slug must not be blank
+     * @return atom feed
+     */
+    @NonNull
+    Feed getAtom(@NonNull String slug);
+
+    /**
+     * Gets the sitemap, which is a sitemap index if the published posts and sheets do not fit in
+     * a sitemap chunk.
+     *
+     * @return sitemap feed
+     */
+    @NonNull
+    Feed getSitemap();
+
+    /**
+     * Gets the sitemap of the home page, categories and tags, referenced by the sitemap index.
+     *
+     * @return sitemap feed
+     */
+    @NonNull
+    Feed getSitemapTaxonomies();
+
+    /**
+     * Streams a sitemap chunk of published posts and sheets, referenced by the sitemap index.
+     *
+     * @param chunk chunk number, starting from 1
+     * @param writer writer must not be null
+     * @throws IOException if an I/O error occurs
+     */
+    void writeSitemap(int chunk, @NonNull Writer writer) throws IOException;
+
+    /**
+     * Marks all feeds as changed, they are regenerated once the changes settle down.
+     */
+    void markChanged();
+}
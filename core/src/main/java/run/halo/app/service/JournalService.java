@@ -1,6 +1,7 @@
 package run.halo.app.service;
 
 import java.util.List;
+import java.util.Map;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.lang.NonNull;
@@ -95,7 +96,8 @@ public interface JournalService extends CrudService<Journal, Integer> {
     Page<JournalWithCmtCountDTO> convertToCmtCountDto(@NonNull Page<Journal> journalPage);
 
     /**
-     * Increases journal likes(1).
+     * Increases journal likes(1). The like is counted in memory and increased by the next
+     * {@link #flushLikes()}.
      *
      * @param id id must not be null
      */
@@ -108,4 +110,19 @@ public interface JournalService extends CrudService<Journal, Integer> {
      * @param id id must not be null
      */
     void increaseLike(long likes, @NonNull Integer id);
+
+    /**
+     * Increases likes of journals in one transaction.
+     *
+     * @param likes likes keyed by journal id must not be null, and every likes must not be less
+     * than 1
+     * @return ids of the journals not found
+     */
+    @NonNull
+    List<Integer> increaseLikes(@NonNull Map<Integer, Long> likes);
+
+    /**
+     * Increases the likes counted by {@link #increaseLike(Integer)} in one batch.
+     */
+    void flushLikes();
 }
@@ -2,12 +2,15 @@ package run.halo.app.service;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import javax.validation.constraints.NotNull;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import run.halo.app.model.dto.post.BasePostSimpleDTO;
 import run.halo.app.model.entity.Post;
 import run.halo.app.model.entity.PostMeta;
 import run.halo.app.model.enums.PostStatus;
@@ -17,6 +20,7 @@ import run.halo.app.model.vo.ArchiveYearVO;
 import run.halo.app.model.vo.PostDetailVO;
 import run.halo.app.model.vo.PostListVO;
 import run.halo.app.model.vo.PostMarkdownVO;
+import run.halo.app.model.vo.PostSearchResultVO;
 import run.halo.app.service.base.BasePostService;
 
 /**
@@ -40,7 +44,8 @@ public interface PostService extends BasePostService<Post> {
     Page<Post> pageBy(@NonNull PostQuery postQuery, @NonNull Pageable pageable);
 
     /**
-     * Pages post by keyword
+     * Pages published post by keyword, ranked by relevance once the search index is ready,
+     * otherwise sorted by the page info.
      *
      * @param keyword keyword
      * @param pageable pageable
@@ -49,6 +54,20 @@ public interface PostService extends BasePostService<Post> {
     @NonNull
     Page<Post> pageBy(@NonNull String keyword, @NonNull Pageable pageable);
 
+    /**
+     * Searches published posts by keyword, with the highlighted snippets of the posts and the
+     * categories and tags of all matching posts once the search index is ready.
+     *
+     * @param keyword keyword must not be null
+     * @param categoryId category id the posts must have, or null for any category
+     * @param tagId tag id the posts must have, or null for any tag
+     * @param pageable page info must not be null
+     * @return post search result
+     */
+    @NonNull
+    PostSearchResultVO search(@NonNull String keyword, @Nullable Integer categoryId,
+        @Nullable Integer tagId, @NonNull Pageable pageable);
+
     /**
      * Creates post by post param.
      *
@@ -162,6 +181,54 @@ public interface PostService extends BasePostService<Post> {
     Post getBy(@NonNull Integer year, @NonNull Integer month, @NonNull Integer day,
         @NonNull String slug, @NonNull PostStatus status);
 
+    /**
+     * Gets the simple dto of the previous post, cached until the navigation index is
+     * invalidated.
+     *
+     * @param post post must not be null
+     * @return an optional simple dto of the previous post
+     */
+    @NonNull
+    Optional<BasePostSimpleDTO> getPrevPostSimple(@NonNull Post post);
+
+    /**
+     * Gets the simple dto of the next post, cached until the navigation index is invalidated.
+     *
+     * @param post post must not be null
+     * @return an optional simple dto of the next post
+     */
+    @NonNull
+    Optional<BasePostSimpleDTO> getNextPostSimple(@NonNull Post post);
+
+    /**
+     * Invalidates the navigation index of the published posts.
+     */
+    void invalidateNavigation();
+
+    /**
+     * Builds the archive index of the published posts.
+     */
+    void indexArchives();
+
+    /**
+     * Updates the archive index of a post, removing it if the post is not published anymore.
+     *
+     * @param postId post id must not be null
+     */
+    void indexArchive(@NonNull Integer postId);
+
+    /**
+     * Builds the permalink index of all posts.
+     */
+    void indexPermalinks();
+
+    /**
+     * Updates the permalink index of a post, removing it if the post does not exist anymore.
+     *
+     * @param postId post id must not be null
+     */
+    void indexPermalink(@NonNull Integer postId);
+
     /**
      * Removes posts in batch.
      *
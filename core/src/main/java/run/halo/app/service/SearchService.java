@@ -0,0 +1,76 @@
+package run.halo.app.service;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import run.halo.app.model.entity.BasePost;
+import run.halo.app.search.SearchIndex;
+
+/**
+ * Full-text search service of the published posts and sheets.
+ *
+ * <p>The index lives in memory and is saved as a snapshot under the work directory, which is
+ * loaded and brought up to date at startup instead of indexing all posts again.
+ *
+ * @author guqing
+ */
+public interface SearchService {
+
+    /**
+     * Whether the index has been opened and is ready for searches.
+     *
+     * @return true if the index is ready
+     */
+    boolean isReady();
+
+    /**
+     * Searches the published posts or sheets matching all words of a keyword.
+     *
+     * @param keyword keyword must not be null
+     * @param type post type must not be null
+     * @param pageable page info must not be null
+     * @return a page of post ids, ranked by relevance
+     */
+    @NonNull
+    Page<Integer> search(@NonNull String keyword, @NonNull Class<? extends BasePost> type,
+        @NonNull Pageable pageable);
+
+    /**
+     * Searches the published posts or sheets matching all words of a keyword and the filters,
+     * counting the categories and the tags of all matching posts.
+     *
+     * @param keyword keyword must not be null
+     * @param type post type must not be null
+     * @param categoryId category id the posts must have, or null for any category
+     * @param tagId tag id the posts must have, or null for any tag
+     * @param pageable page info must not be null
+     * @return search result with the hits of the page, ranked by relevance
+     */
+    @NonNull
+    SearchIndex.SearchResult search(@NonNull String keyword,
+        @NonNull Class<? extends BasePost> type, @Nullable Integer categoryId,
+        @Nullable Integer tagId, @NonNull Pageable pageable);
+
+    /**
+     * Opens the index, loading the saved snapshot or building it if there is none.
+     */
+    void open();
+
+    /**
+     * Updates the index of a post or sheet, removing it if it is not published anymore.
+     *
+     * @param post post or sheet must not be null
+     */
+    void index(@NonNull BasePost post);
+
+    /**
+     * Builds the index again from all published posts and sheets.
+     */
+    void rebuild();
+
+    /**
+     * Saves the snapshot of the index if it has been changed since the last save.
+     */
+    void save();
+}
@@ -1,8 +1,12 @@
 package run.halo.app.service;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Optional;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import org.springframework.lang.NonNull;
 import org.springframework.lang.Nullable;
 import org.springframework.web.multipart.MultipartFile;
@@ -187,6 +191,37 @@ public interface ThemeService {
     @NonNull
     String renderWithSuffix(@NonNull String pageName);
 
+    /**
+     * Processes a template straight onto an output stream, through a buffered UTF-8 writer.
+     *
+     * @param templateName template name as loaded by the FreeMarker configuration, such as
+     * the result of {@link #renderWithSuffix(String)}, must not be blank
+     * @param model template model must not be null
+     * @param outputStream output stream must not be null, it is flushed but not closed
+     * @throws IOException if an I/O error occurs
+     */
+    void processTemplate(@NonNull String templateName, @NonNull Object model,
+        @NonNull OutputStream outputStream) throws IOException;
+
+    /**
+     * Processes a template straight onto the response, gzipped on the fly if requested and
+     * accepted by the client. The content type must be set beforehand.
+     *
+     * <p>The response is committed as soon as the buffer is full, so a template error in the
+     * middle of the output cannot be turned into an error page any more.
+     *
+     * @param templateName template name as loaded by the FreeMarker configuration must not be
+     * blank
+     * @param model template model must not be null
+     * @param request http servlet request must not be null
+     * @param response http servlet response must not be null
+     * @param gzip whether to gzip the output if the client accepts it
+     * @throws IOException if an I/O error occurs
+     */
+    void processTemplate(@NonNull String templateName, @NonNull Object model,
+        @NonNull HttpServletRequest request, @NonNull HttpServletResponse response, boolean gzip)
+        throws IOException;
+
     /**
      * Gets current theme id.
      *
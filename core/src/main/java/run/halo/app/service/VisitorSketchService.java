@@ -0,0 +1,42 @@
+package run.halo.app.service;
+
+import java.util.Map;
+import org.springframework.lang.NonNull;
+import run.halo.app.model.entity.VisitorSketch;
+import run.halo.app.service.base.CrudService;
+import run.halo.app.utils.HyperLogLog;
+
+/**
+ * Visitor sketch service interface.
+ *
+ * @author guqing
+ */
+public interface VisitorSketchService extends CrudService<VisitorSketch, Integer> {
+
+    /**
+     * Post id of the sketch of the whole site.
+     */
+    int SITE_SKETCH_ID = 0;
+
+    /**
+     * Merges sketches into the persisted ones and the sketch of the whole site.
+     *
+     * @param sketches sketches keyed by post id must not be null
+     */
+    void mergeSketches(@NonNull Map<Integer, HyperLogLog> sketches);
+
+    /**
+     * Estimates unique visitors of a post.
+     *
+     * @param postId post id must not be null
+     * @return estimated unique visitors
+     */
+    long countVisitors(@NonNull Integer postId);
+
+    /**
+     * Estimates unique visitors of the whole site.
+     *
+     * @return estimated unique visitors
+     */
+    long countVisitors();
+}
@@ -1,6 +1,7 @@
 package run.halo.app.service.base;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -43,6 +44,42 @@ public interface BasePostService<POST extends BasePost> extends CrudService<POST
      */
     long countByStatus(PostStatus status);
 
+    /**
+     * Lists published post ids after an id, in id order.
+     *
+     * @param afterId exclusive lower bound of the ids must not be null
+     * @param size maximum number of ids
+     * @return a list of post ids
+     */
+    @NonNull
+    List<Integer> listPublishedIds(@NonNull Integer afterId, int size);
+
+    /**
+     * Lists published posts of an id range in id order, as minimal dtos holding only the fields
+     * to locate the posts, including the full path.
+     *
+     * @param afterId exclusive lower bound of the ids must not be null
+     * @param toId inclusive upper bound of the ids must not be null
+     * @param size maximum number of posts
+     * @return a list of minimal post dtos
+     */
+    @NonNull
+    List<BasePostMinimalDTO> listMinimalPublished(@NonNull Integer afterId, @NonNull Integer toId,
+        int size);
+
+    /**
+     * Generates the summaries and word counts of a batch of posts without generated summary.
+     *
+     * @param size maximum number of posts
+     * @return number of posts generated
+     */
+    int generateMissingSummaries(int size);
+
+    /**
+     * Clears all generated summaries, so that they will be generated again.
+     */
+    void clearGeneratedSummaries();
+
     /**
      * Get post by slug.
      *
@@ -171,6 +208,16 @@ public interface BasePostService<POST extends BasePost> extends CrudService<POST
      */
     void increaseVisit(@NonNull Integer postId);
 
+    /**
+     * Increases visits of posts in one transaction. Drafts are skipped.
+     *
+     * @param visits visits keyed by post id must not be null, and every visits must not be less
+     * than 1
+     * @return ids of the posts not found
+     */
+    @NonNull
+    List<Integer> increaseVisits(@NonNull Map<Integer, Long> visits);
+
     /**
      * Increase post likes.
      *
@@ -180,12 +227,28 @@ public interface BasePostService<POST extends BasePost> extends CrudService<POST
     void increaseLike(long likes, @NonNull Integer postId);
 
     /**
-     * Increases post likes(1).
+     * Increases post likes(1). The like is counted in memory and increased by the next
+     * {@link #flushLikes()}.
      *
      * @param postId post id must not be null
      */
     void increaseLike(@NonNull Integer postId);
 
+    /**
+     * Increases likes of posts in one transaction.
+     *
+     * @param likes likes keyed by post id must not be null, and every likes must not be less
+     * than 1
+     * @return ids of the posts not found
+     */
+    @NonNull
+    List<Integer> increaseLikes(@NonNull Map<Integer, Long> likes);
+
+    /**
+     * Increases the likes counted by {@link #increaseLike(Integer)} in one batch.
+     */
+    void flushLikes();
+
     /**
      * Creates or updates by post.
      *
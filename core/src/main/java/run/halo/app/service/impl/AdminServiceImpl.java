@@ -8,8 +8,11 @@ import java.io.RandomAccessFile;
 import java.lang.management.ManagementFactory;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.RandomStringUtils;
@@ -162,20 +165,20 @@ public class AdminServiceImpl implements AdminService {
         // Get current user
         User user = authentication.getDetail().getUser();
 
-        // Clear access token
-        cacheStore.getAny(SecurityUtils.buildAccessTokenKey(user), String.class)
-            .ifPresent(accessToken -> {
-                // Delete token
-                cacheStore.delete(SecurityUtils.buildTokenAccessKey(accessToken));
-                cacheStore.delete(SecurityUtils.buildAccessTokenKey(user));
-            });
-
-        // Clear refresh token
-        cacheStore.getAny(SecurityUtils.buildRefreshTokenKey(user), String.class)
-            .ifPresent(refreshToken -> {
-                cacheStore.delete(SecurityUtils.buildTokenRefreshKey(refreshToken));
-                cacheStore.delete(SecurityUtils.buildRefreshTokenKey(user));
-            });
+        // Clear access token and refresh token in a single batch
+        String accessTokenKey = SecurityUtils.buildAccessTokenKey(user);
+        String refreshTokenKey = SecurityUtils.buildRefreshTokenKey(user);
+        Map<String, String> tokens =
+            cacheStore.multiGetAny(Arrays.asList(accessTokenKey, refreshTokenKey), String.class);
+
+        List<String> tokenKeys = new ArrayList<>(tokens.keySet());
+        Optional.ofNullable(tokens.get(accessTokenKey))
+            .map(SecurityUtils::buildTokenAccessKey)
+            .ifPresent(tokenKeys::add);
+        Optional.ofNullable(tokens.get(refreshTokenKey))
+            .map(SecurityUtils::buildTokenRefreshKey)
+            .ifPresent(tokenKeys::add);
+        cacheStore.deleteAll(tokenKeys);
 
         eventPublisher.publishEvent(
             new LogEvent(this, user.getUsername(), LogType.LOGGED_OUT, user.getNickname()));
@@ -278,12 +281,14 @@ public class AdminServiceImpl implements AdminService {
         User user = userService.getById(userId);
 
         // Remove all token
+        List<String> tokenKeys = new ArrayList<>(Arrays.asList(
+            SecurityUtils.buildTokenRefreshKey(refreshToken),
+            SecurityUtils.buildAccessTokenKey(user),
+            SecurityUtils.buildRefreshTokenKey(user)));
         cacheStore.getAny(SecurityUtils.buildAccessTokenKey(user), String.class)
-            .ifPresent(
-                accessToken -> cacheStore.delete(SecurityUtils.buildTokenAccessKey(accessToken)));
-        cacheStore.delete(SecurityUtils.buildTokenRefreshKey(refreshToken));
-        cacheStore.delete(SecurityUtils.buildAccessTokenKey(user));
-        cacheStore.delete(SecurityUtils.buildRefreshTokenKey(user));
+            .map(SecurityUtils::buildTokenAccessKey)
+            .ifPresent(tokenKeys::add);
+        cacheStore.deleteAll(tokenKeys);
 
         return buildAuthToken(user);
     }
@@ -6,6 +6,7 @@ import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
+import run.halo.app.cache.PageCache;
 import run.halo.app.model.entity.Category;
 import run.halo.app.model.entity.Post;
 import run.halo.app.repository.CategoryRepository;
@@ -41,6 +42,8 @@ public class AuthenticationServiceImpl implements AuthenticationService {
         Set<String> accessPermissionStore = authorizationService.getAccessPermissionStore();
 
         if (StringUtils.isNotBlank(post.getPassword())) {
+            // The page differs from visitor to visitor
+            PageCache.markUncacheable();
             if (accessPermissionStore.contains(AuthorizationService.buildPostToken(post.getId()))) {
                 return true;
             }
@@ -87,6 +90,7 @@ public class AuthenticationServiceImpl implements AuthenticationService {
         Category category = idToCategoryMap.get(categoryId);
 
         if (StringUtils.isNotBlank(category.getPassword())) {
+            PageCache.markUncacheable();
             if (accessPermissionStore.contains(
                 AuthorizationService.buildCategoryToken(category.getId()))) {
                 return true;
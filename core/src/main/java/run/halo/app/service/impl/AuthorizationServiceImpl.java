@@ -35,7 +35,8 @@ public class AuthorizationServiceImpl implements AuthorizationService {
 
     @Override
     public Set<String> getAccessPermissionStore() {
-        return cacheStore.getAny(buildAccessPermissionKey(), Set.class).orElseGet(HashSet::new);
+        return cacheStore.getAnyOrLoad(buildAccessPermissionKey(), Set.class, HashSet::new, 1,
+            TimeUnit.DAYS);
     }
 
     @Override
@@ -49,7 +50,8 @@ public class AuthorizationServiceImpl implements AuthorizationService {
     }
 
     private void doDeleteAuthorization(String value) {
-        Set<String> accessStore = getAccessPermissionStore();
+        // The cached store is shared and unmodifiable
+        Set<String> accessStore = new HashSet<>(getAccessPermissionStore());
 
         accessStore.remove(value);
 
@@ -57,7 +59,8 @@ public class AuthorizationServiceImpl implements AuthorizationService {
     }
 
     private void doAuthorization(String value) {
-        Set<String> accessStore = getAccessPermissionStore();
+        // The cached store is shared and unmodifiable
+        Set<String> accessStore = new HashSet<>(getAccessPermissionStore());
 
         accessStore.add(value);
 
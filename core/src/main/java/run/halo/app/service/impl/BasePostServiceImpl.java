@@ -4,21 +4,26 @@ import static org.springframework.data.domain.Sort.Direction.ASC;
 import static org.springframework.data.domain.Sort.Direction.DESC;
 
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
+import run.halo.app.event.post.PostUpdatedEvent;
 import run.halo.app.exception.AlreadyExistsException;
 import run.halo.app.exception.BadRequestException;
 import run.halo.app.exception.NotFoundException;
@@ -29,11 +34,14 @@ import run.halo.app.model.dto.post.BasePostSimpleDTO;
 import run.halo.app.model.entity.BasePost;
 import run.halo.app.model.enums.PostEditorType;
 import run.halo.app.model.enums.PostStatus;
+import run.halo.app.model.projection.PostContentProjection;
+import run.halo.app.model.projection.PostLocationProjection;
 import run.halo.app.model.properties.PostProperties;
 import run.halo.app.repository.base.BasePostRepository;
 import run.halo.app.service.OptionService;
 import run.halo.app.service.base.AbstractCrudService;
 import run.halo.app.service.base.BasePostService;
+import run.halo.app.service.support.LikeBuffer;
 import run.halo.app.utils.DateUtils;
 import run.halo.app.utils.HaloUtils;
 import run.halo.app.utils.MarkdownUtils;
@@ -54,15 +62,19 @@ public abstract class BasePostServiceImpl<POST extends BasePost>
 
     private final OptionService optionService;
 
-    private static final Pattern summaryPattern = Pattern.compile("\t|\r|\n");
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final LikeBuffer likeBuffer = new LikeBuffer();
 
-    private static final Pattern BLANK_PATTERN = Pattern.compile("\\s");
+    private static final Pattern summaryPattern = Pattern.compile("\t|\r|\n");
 
     public BasePostServiceImpl(BasePostRepository<POST> basePostRepository,
-        OptionService optionService) {
+        OptionService optionService,
+        ApplicationEventPublisher eventPublisher) {
         super(basePostRepository);
         this.basePostRepository = basePostRepository;
         this.optionService = optionService;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
@@ -82,6 +94,57 @@ public abstract class BasePostServiceImpl<POST extends BasePost>
         return basePostRepository.countByStatus(status);
     }
 
+    @Override
+    public List<Integer> listPublishedIds(Integer afterId, int size) {
+        Assert.notNull(afterId, "After id must not be null");
+
+        return basePostRepository.findAllIdByStatusAndIdGreaterThan(PostStatus.PUBLISHED, afterId,
+            PageRequest.of(0, size));
+    }
+
+    @Override
+    public List<BasePostMinimalDTO> listMinimalPublished(Integer afterId, Integer toId,
+        int size) {
+        Assert.notNull(afterId, "After id must not be null");
+        Assert.notNull(toId, "To id must not be null");
+
+        return basePostRepository.findAllLocationByStatusAndIdRange(PostStatus.PUBLISHED, afterId,
+            toId, PageRequest.of(0, size)).stream()
+            .map(location -> convertToMinimal(newPost(location)))
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    @Transactional
+    public int generateMissingSummaries(int size) {
+        // Only the contents are loaded, changing managed posts would touch their update times
+        List<PostContentProjection> contents =
+            basePostRepository.findAllContentByGeneratedSummaryIsNull(PageRequest.of(0, size));
+        contents.forEach(content -> {
+            BasePost post = new BasePost();
+            post.setFormatContent(content.getFormatContent());
+            generateSummaryAndWordCount(post);
+            basePostRepository.updateGeneratedSummary(post.getGeneratedSummary(),
+                post.getWordCount(), content.getId());
+        });
+        return contents.size();
+    }
+
+    @Override
+    @Transactional
+    public void clearGeneratedSummaries() {
+        basePostRepository.clearGeneratedSummaries();
+    }
+
+    /**
+     * Builds a post holding only the fields of a location.
+     *
+     * @param location post location must not be null
+     * @return a post
+     */
+    @NonNull
+    protected abstract POST newPost(@NonNull PostLocationProjection location);
+
     @Override
     public POST getBySlug(String slug) {
         Assert.hasText(slug, "Slug must not be blank");
@@ -254,6 +317,34 @@ public abstract class BasePostServiceImpl<POST extends BasePost>
         increaseVisit(1L, postId);
     }
 
+    @Override
+    @Transactional
+    public List<Integer> increaseVisits(Map<Integer, Long> visits) {
+        Assert.notNull(visits, "Visits must not be null");
+        visits.forEach((postId, visit) -> Assert.isTrue(visit != null && visit > 0,
+            "Visits to increase must not be less than 1"));
+
+        if (visits.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Map<Integer, Long> visitsToIncrease = new LinkedHashMap<>(visits);
+        List<Integer> draftIds =
+            basePostRepository.findAllIdByIdInAndStatus(visits.keySet(), PostStatus.DRAFT);
+        if (!draftIds.isEmpty()) {
+            log.info("Posts with ids: {} are drafts and visits will not be updated", draftIds);
+            draftIds.forEach(visitsToIncrease::remove);
+        }
+
+        int[] affectedRows = basePostRepository.updateVisitsInBatch(visitsToIncrease);
+
+        List<Integer> notFoundIds = ServiceUtils.fetchNotUpdatedIds(visitsToIncrease, affectedRows);
+        if (!notFoundIds.isEmpty()) {
+            log.error("Posts with ids: {} may not be found", notFoundIds);
+        }
+        return notFoundIds;
+    }
+
     @Override
     @Transactional
     public void increaseLike(long likes, Integer postId) {
@@ -270,9 +361,34 @@ public abstract class BasePostServiceImpl<POST extends BasePost>
     }
 
     @Override
-    @Transactional
     public void increaseLike(Integer postId) {
-        increaseLike(1L, postId);
+        mustExistById(postId);
+        likeBuffer.add(postId);
+    }
+
+    @Override
+    @Transactional
+    public List<Integer> increaseLikes(Map<Integer, Long> likes) {
+        Assert.notNull(likes, "Likes must not be null");
+        likes.forEach((postId, like) -> Assert.isTrue(like != null && like > 0,
+            "Likes to increase must not be less than 1"));
+
+        if (likes.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        int[] affectedRows = basePostRepository.updateLikesInBatch(likes);
+
+        List<Integer> notFoundIds = ServiceUtils.fetchNotUpdatedIds(likes, affectedRows);
+        if (!notFoundIds.isEmpty()) {
+            log.error("Posts with ids: {} may not be found", notFoundIds);
+        }
+        return notFoundIds;
+    }
+
+    @Override
+    public void flushLikes() {
+        likeBuffer.flush(this::increaseLikes);
     }
 
     /**
@@ -287,21 +403,14 @@ public abstract class BasePostServiceImpl<POST extends BasePost>
         String originalContent = post.getOriginalContent();
 
         // CS304 issue link : https://github.com/halo-dev/halo/issues/1224
-        // Render content and set word count
-        if (post.getEditorType().equals(PostEditorType.MARKDOWN)) {
-            post.setFormatContent(MarkdownUtils.renderHtml(post.getOriginalContent()));
-
-            post.setWordCount(htmlFormatWordCount(post.getFormatContent()));
-        } else {
-            post.setFormatContent(originalContent);
-
-            post.setWordCount(htmlFormatWordCount(originalContent));
-        }
+        // Render content and set summary and word count
+        post.setFormatContent(renderFormatContent(post.getEditorType(), originalContent));
+        generateSummaryAndWordCount(post);
 
         // Create or update post
         if (ServiceUtils.isEmptyId(post.getId())) {
             // The sheet will be created
-            return create(post);
+            return publishUpdatedEvent(create(post));
         }
 
         // The sheet will be updated
@@ -309,7 +418,7 @@ public abstract class BasePostServiceImpl<POST extends BasePost>
         post.setEditTime(DateUtils.now());
 
         // Update it
-        return update(post);
+        return publishUpdatedEvent(update(post));
     }
 
     @Override
@@ -319,6 +428,7 @@ public abstract class BasePostServiceImpl<POST extends BasePost>
         if (StringUtils.isNotBlank(post.getPassword())) {
             String tip = "The post is encrypted by author";
             post.setSummary(tip);
+            post.setGeneratedSummary(tip);
             post.setOriginalContent(tip);
             post.setFormatContent(tip);
         }
@@ -359,7 +469,7 @@ public abstract class BasePostServiceImpl<POST extends BasePost>
 
         // Set summary
         if (StringUtils.isBlank(basePostSimpleDTO.getSummary())) {
-            basePostSimpleDTO.setSummary(generateSummary(post.getFormatContent()));
+            basePostSimpleDTO.setSummary(getGeneratedSummary(post));
         }
 
         return basePostSimpleDTO;
@@ -438,18 +548,13 @@ public abstract class BasePostServiceImpl<POST extends BasePost>
         // Sync content
         if (PostStatus.PUBLISHED.equals(status)) {
             // If publish this post, then convert the formatted content
-            String formatContent = MarkdownUtils.renderHtml(post.getOriginalContent());
-            int updatedRows = basePostRepository.updateFormatContent(formatContent, postId);
-
-            if (updatedRows != 1) {
-                throw new ServiceException(
-                    "Failed to update post format content of post with id " + postId);
-            }
-
-            post.setFormatContent(formatContent);
+            post.setFormatContent(
+                renderFormatContent(post.getEditorType(), post.getOriginalContent()));
+            generateSummaryAndWordCount(post);
+            updateFormatContent(post);
         }
 
-        return post;
+        return publishUpdatedEvent(post);
     }
 
     @Override
@@ -463,6 +568,18 @@ public abstract class BasePostServiceImpl<POST extends BasePost>
         }).collect(Collectors.toList());
     }
 
+    /**
+     * Publishes the updated event of a post.
+     *
+     * @param post updated post must not be null
+     * @return the post
+     */
+    @NonNull
+    protected POST publishUpdatedEvent(@NonNull POST post) {
+        eventPublisher.publishEvent(new PostUpdatedEvent(this, post));
+        return post;
+    }
+
     @Override
     public String generateDescription(String content) {
         Assert.notNull(content, "html content must not be null");
@@ -495,6 +612,105 @@ public abstract class BasePostServiceImpl<POST extends BasePost>
         return super.update(post);
     }
 
+    /**
+     * Renders the format content of a post.
+     *
+     * @param editorType editor type
+     * @param originalContent original content
+     * @return format content
+     */
+    @NonNull
+    protected String renderFormatContent(@Nullable PostEditorType editorType,
+        @Nullable String originalContent) {
+        if (originalContent == null) {
+            return "";
+        }
+        if (PostEditorType.MARKDOWN.equals(editorType)) {
+            return MarkdownUtils.renderHtml(originalContent);
+        }
+        return originalContent;
+    }
+
+    /**
+     * Updates the format content, generated summary and word count of a post.
+     *
+     * @param post post must not be null
+     */
+    private void updateFormatContent(@NonNull POST post) {
+        int updatedRows = basePostRepository.updateFormatContent(post.getFormatContent(),
+            post.getGeneratedSummary(), post.getWordCount(), post.getId());
+        if (updatedRows != 1) {
+            throw new ServiceException(
+                "Failed to update post format content of post with id " + post.getId());
+        }
+    }
+
+    /**
+     * Generates the summary and the word count of a post from its format content, in a single
+     * pass over the text.
+     *
+     * <p>The summary is the text without tabs and line separators, truncated to the summary
+     * length. The word count excludes all whitespaces.
+     *
+     * @param post post must not be null
+     */
+    protected void generateSummaryAndWordCount(@NonNull BasePost post) {
+        Assert.notNull(post, "Post must not be null");
+
+        String text = HaloUtils.cleanHtmlTag(post.getFormatContent());
+        int summaryLength = Math.max(getSummaryLength(), 0);
+
+        StringBuilder summary = new StringBuilder(Math.min(summaryLength, text.length()));
+        long blankCount = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\t':
+                case '\r':
+                case '\n':
+                    blankCount++;
+                    continue;
+                case ' ':
+                case '\u000B':
+                case '\f':
+                    blankCount++;
+                    break;
+                default:
+                    break;
+            }
+            if (summary.length() < summaryLength) {
+                summary.append(c);
+            }
+        }
+
+        post.setGeneratedSummary(summary.toString());
+        post.setWordCount(text.length() - blankCount);
+    }
+
+    /**
+     * Gets the summary generated from the format content of a post.
+     *
+     * <p>Falls back to generating the summary, until it has been generated by the backfill of
+     * posts saved before.
+     *
+     * @param post post must not be null
+     * @return generated summary
+     */
+    @NonNull
+    protected String getGeneratedSummary(@NonNull POST post) {
+        Assert.notNull(post, "Post must not be null");
+
+        if (post.getGeneratedSummary() != null) {
+            return post.getGeneratedSummary();
+        }
+        return generateSummary(StringUtils.defaultString(post.getFormatContent()));
+    }
+
+    protected int getSummaryLength() {
+        return optionService.getByPropertyOrDefault(PostProperties.SUMMARY_LENGTH, Integer.class,
+            150);
+    }
+
     /**
      * Check if the slug is exist.
      *
@@ -534,29 +750,4 @@ public abstract class BasePostServiceImpl<POST extends BasePost>
 
         return StringUtils.substring(text, 0, summaryLength);
     }
-
-    // CS304 issue link : https://github.com/halo-dev/halo/issues/1224
-
-    /**
-     * @param htmlContent the markdown style content
-     * @return word count except space and line separator
-     */
-
-    public static long htmlFormatWordCount(String htmlContent) {
-        if (htmlContent == null) {
-            return 0;
-        }
-
-        String cleanContent = HaloUtils.cleanHtmlTag(htmlContent);
-
-        Matcher matcher = BLANK_PATTERN.matcher(cleanContent);
-
-        int count = 0;
-
-        while (matcher.find()) {
-            count++;
-        }
-
-        return cleanContent.length() - count;
-    }
 }
@@ -15,6 +15,7 @@ import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -24,6 +25,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
+import run.halo.app.event.post.PostUpdatedEvent;
 import run.halo.app.exception.AlreadyExistsException;
 import run.halo.app.exception.NotFoundException;
 import run.halo.app.exception.UnsupportedException;
@@ -69,17 +71,21 @@ public class CategoryServiceImpl extends AbstractCrudService<Category, Integer>
 
     private final AuthenticationService authenticationService;
 
+    private final ApplicationEventPublisher eventPublisher;
+
     public CategoryServiceImpl(CategoryRepository categoryRepository,
         PostCategoryService postCategoryService,
         OptionService optionService,
         AuthenticationService authenticationService,
-        AuthorizationService authorizationService) {
+        AuthorizationService authorizationService,
+        ApplicationEventPublisher eventPublisher) {
         super(categoryRepository);
         this.categoryRepository = categoryRepository;
         this.postCategoryService = postCategoryService;
         this.optionService = optionService;
         this.authenticationService = authenticationService;
         this.authorizationService = authorizationService;
+        this.eventPublisher = eventPublisher;
     }
 
     @Lazy
@@ -304,6 +310,7 @@ public class CategoryServiceImpl extends AbstractCrudService<Category, Integer>
 
         for (Integer postId : affectedPostIdList) {
             Post post = postService.getById(postId);
+            PostStatus previousStatus = post.getStatus();
 
             post.setStatus(null);
 
@@ -322,6 +329,9 @@ public class CategoryServiceImpl extends AbstractCrudService<Category, Integer>
             }
 
             postService.update(post);
+            if (post.getStatus() != previousStatus) {
+                eventPublisher.publishEvent(new PostUpdatedEvent(this, post));
+            }
         }
 
     }
@@ -0,0 +1,402 @@
+package run.halo.app.service.impl;
+
+import static org.springframework.data.domain.Sort.Direction.DESC;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.RegExUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Service;
+import org.springframework.util.Assert;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import run.halo.app.cache.PageCache;
+import run.halo.app.exception.ServiceException;
+import run.halo.app.model.dto.CategoryDTO;
+import run.halo.app.model.dto.post.BasePostMinimalDTO;
+import run.halo.app.model.entity.Category;
+import run.halo.app.model.entity.Post;
+import run.halo.app.model.enums.PostStatus;
+import run.halo.app.model.support.Feed;
+import run.halo.app.model.vo.PostDetailVO;
+import run.halo.app.service.CategoryService;
+import run.halo.app.service.FeedService;
+import run.halo.app.service.OptionService;
+import run.halo.app.service.PostCategoryService;
+import run.halo.app.service.PostService;
+import run.halo.app.service.SheetService;
+import run.halo.app.service.ThemeService;
+import run.halo.app.service.base.BasePostService;
+
+/**
+ * Feed service implementation.
+ *
+ * <p>A feed is regenerated by the first request after a change, but not while changes keep
+ * coming in: a changed feed is served until no change has happened for the debounce period, or
+ * until it is older than the maximum debounce period. Category changes publish no event, so
+ * feeds are also regenerated after the maximum age.
+ *
+ * <p>Sites with more published posts and sheets than a sitemap chunk get a sitemap index instead
+ * of the sitemap. The index points at the categories and tags, and at the chunks of posts and
+ * sheets by id range, which are streamed in id order batch by batch on every request.
+ *
+ * <p>Feeds rendering contents which depend on the visitor, such as encrypted categories, are
+ * never kept.
+ *
+ * @author guqing
+ */
+@Slf4j
+@Service
+public class FeedServiceImpl implements FeedService {
+
+    /**
+     * Quiet period after a change before regenerating the feeds. (ms)
+     */
+    private static final long DEBOUNCE_PERIOD = 10 * 1000;
+
+    /**
+     * Maximum time to serve a changed feed while changes keep coming in. (ms)
+     */
+    private static final long MAX_DEBOUNCE_PERIOD = 60 * 1000;
+
+    /**
+     * Maximum age of a feed. (ms)
+     */
+    private static final long MAX_AGE = 60 * 60 * 1000;
+
+    private static final String XML_INVALID_CHAR = "[\\x00-\\x1F\\x7F]";
+
+    private static final String RSS_TEMPLATE = "common/web/rss.ftl";
+
+    private static final String ATOM_TEMPLATE = "common/web/atom.ftl";
+
+    private static final String SITEMAP_TEMPLATE = "common/web/sitemap_xml.ftl";
+
+    private static final String CATEGORY_KEY_PREFIX = "category:";
+
+    private static final String SITEMAP_TAXONOMIES_KEY = "sitemap:taxonomies";
+
+    /**
+     * Id range of a sitemap chunk, which bounds its number of urls.
+     */
+    private static final int SITEMAP_CHUNK_SIZE = 10000;
+
+    private static final int SITEMAP_BATCH_SIZE = 500;
+
+    private final Map<String, Feed> feeds = new ConcurrentHashMap<>();
+
+    private final Object generationLock = new Object();
+
+    private volatile long changedAt;
+
+    private final PostService postService;
+
+    private final SheetService sheetService;
+
+    private final CategoryService categoryService;
+
+    private final PostCategoryService postCategoryService;
+
+    private final OptionService optionService;
+
+    private final ThemeService themeService;
+
+    public FeedServiceImpl(PostService postService,
+        SheetService sheetService,
+        CategoryService categoryService,
+        PostCategoryService postCategoryService,
+        OptionService optionService,
+        ThemeService themeService) {
+        this.postService = postService;
+        this.sheetService = sheetService;
+        this.categoryService = categoryService;
+        this.postCategoryService = postCategoryService;
+        this.optionService = optionService;
+        this.themeService = themeService;
+    }
+
+    @Override
+    public Feed getRss() {
+        return getFeed(RSS_TEMPLATE, () -> render(RSS_TEMPLATE, buildLatestPostsModel(null)));
+    }
+
+    @Override
+    public Feed getRss(String slug) {
+        Assert.hasText(slug, "Category slug must not be blank");
+
+        return getFeed(CATEGORY_KEY_PREFIX + slug + ':' + RSS_TEMPLATE,
+            () -> render(RSS_TEMPLATE, buildLatestPostsModel(slug)));
+    }
+
+    @Override
+    public Feed getAtom() {
+        return getFeed(ATOM_TEMPLATE, () -> render(ATOM_TEMPLATE, buildLatestPostsModel(null)));
+    }
+
+    @Override
+    public Feed getAtom(String slug) {
+        Assert.hasText(slug, "Category slug must not be blank");
+
+        return getFeed(CATEGORY_KEY_PREFIX + slug + ':' + ATOM_TEMPLATE,
+            () -> render(ATOM_TEMPLATE, buildLatestPostsModel(slug)));
+    }
+
+    @Override
+    public Feed getSitemap() {
+        return getFeed(SITEMAP_TEMPLATE, () -> {
+            long count = postService.countByStatus(PostStatus.PUBLISHED)
+                + sheetService.countByStatus(PostStatus.PUBLISHED);
+            if (count > SITEMAP_CHUNK_SIZE) {
+                return renderSitemapIndex();
+            }
+            Map<String, Object> model = new HashMap<>();
+            model.put("posts", buildPosts(
+                PageRequest.of(0, Integer.MAX_VALUE, Sort.by(DESC, "createTime"))));
+            return render(SITEMAP_TEMPLATE, model);
+        });
+    }
+
+    @Override
+    public Feed getSitemapTaxonomies() {
+        return getFeed(SITEMAP_TAXONOMIES_KEY,
+            () -> render(SITEMAP_TEMPLATE, Collections.emptyMap()));
+    }
+
+    @Override
+    public void writeSitemap(int chunk, Writer writer) throws IOException {
+        Assert.isTrue(chunk > 0, "Sitemap chunk must be positive");
+        Assert.notNull(writer, "Writer must not be null");
+
+        int fromId = (chunk - 1) * SITEMAP_CHUNK_SIZE;
+        int toId = fromId + SITEMAP_CHUNK_SIZE;
+        String baseUrl =
+            optionService.isEnabledAbsolutePath() ? "" : optionService.getBlogBaseUrl();
+
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<urlset xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">\n");
+        for (BasePostService<?> basePostService : List.of(postService, sheetService)) {
+            Integer afterId = fromId;
+            List<BasePostMinimalDTO> posts;
+            do {
+                posts = basePostService.listMinimalPublished(afterId, toId, SITEMAP_BATCH_SIZE);
+                for (BasePostMinimalDTO post : posts) {
+                    writer.write("    <url>\n        <loc>");
+                    writer.write(escapeXml(baseUrl + post.getFullPath()));
+                    writer.write("</loc>\n        <lastmod>");
+                    writer.write(formatLastmod(post.getCreateTime()));
+                    writer.write("</lastmod>\n    </url>\n");
+                    afterId = post.getId();
+                }
+                writer.flush();
+            } while (posts.size() == SITEMAP_BATCH_SIZE);
+        }
+        writer.write("</urlset>\n");
+        writer.flush();
+    }
+
+    @Override
+    public void markChanged() {
+        changedAt = System.currentTimeMillis();
+        log.debug("Marked feeds as changed at: [{}]", changedAt);
+    }
+
+    @NonNull
+    private Feed getFeed(@NonNull String key, @NonNull Supplier<byte[]> renderer) {
+        Feed feed = feeds.get(key);
+        if (isServable(feed)) {
+            return feed;
+        }
+
+        synchronized (generationLock) {
+            feed = feeds.get(key);
+            if (isServable(feed)) {
+                return feed;
+            }
+
+            long generatedAt = System.currentTimeMillis();
+            byte[] content = renderer.get();
+            String eTag = '"' + DigestUtils.md5DigestAsHex(content) + '"';
+            long lastModified = feed != null && feed.getETag().equals(eTag)
+                ? feed.getLastModified() : generatedAt;
+            Feed generatedFeed = new Feed(content, eTag, lastModified, generatedAt);
+
+            RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+            if (attributes != null && PageCache.isUncacheable(attributes)) {
+                // Depends on the visitor
+                feeds.remove(key);
+            } else {
+                feeds.put(key, generatedFeed);
+            }
+            log.debug("Generated feed: [{}]", key);
+            return generatedFeed;
+        }
+    }
+
+    private boolean isServable(Feed feed) {
+        if (feed == null) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        if (now - feed.getGeneratedAt() > MAX_AGE) {
+            return false;
+        }
+        if (feed.getGeneratedAt() > changedAt) {
+            return true;
+        }
+        // Debounce bursts of changes
+        return now - changedAt < DEBOUNCE_PERIOD
+            && now - feed.getGeneratedAt() < MAX_DEBOUNCE_PERIOD;
+    }
+
+    @NonNull
+    private byte[] render(@NonNull String templateName, @NonNull Map<String, Object> model) {
+        try {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            themeService.processTemplate(templateName, model, content);
+            return content.toByteArray();
+        } catch (IOException e) {
+            throw new ServiceException("Failed to render feed template: " + templateName, e);
+        }
+    }
+
+    /**
+     * Renders the sitemap index of the chunks holding published posts or sheets.
+     *
+     * @return sitemap index content
+     */
+    @NonNull
+    private byte[] renderSitemapIndex() {
+        // Ids are shared by posts and sheets
+        Set<Integer> chunks = new TreeSet<>();
+        for (BasePostService<?> basePostService : List.of(postService, sheetService)) {
+            Integer afterId = 0;
+            List<Integer> postIds;
+            do {
+                postIds = basePostService.listPublishedIds(afterId, SITEMAP_CHUNK_SIZE);
+                for (Integer postId : postIds) {
+                    chunks.add((postId - 1) / SITEMAP_CHUNK_SIZE + 1);
+                    afterId = postId;
+                }
+            } while (postIds.size() == SITEMAP_CHUNK_SIZE);
+        }
+
+        String blogBaseUrl = optionService.getBlogBaseUrl();
+        StringBuilder index = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<sitemapindex xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">\n");
+        appendSitemap(index, blogBaseUrl + "/sitemap-taxonomies.xml");
+        chunks.forEach(
+            chunk -> appendSitemap(index, blogBaseUrl + "/sitemap-posts-" + chunk + ".xml"));
+        index.append("</sitemapindex>\n");
+        return index.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void appendSitemap(StringBuilder index, String loc) {
+        index.append("    <sitemap>\n        <loc>")
+            .append(escapeXml(loc))
+            .append("</loc>\n    </sitemap>\n");
+    }
+
+    private static String escapeXml(String text) {
+        return StringUtils.replaceEach(text,
+            new String[] {"&", "<", ">", "\"", "'"},
+            new String[] {"&amp;", "&lt;", "&gt;", "&quot;", "&apos;"});
+    }
+
+    private static String formatLastmod(Date time) {
+        return OffsetDateTime.ofInstant(time.toInstant(), ZoneId.systemDefault())
+            .truncatedTo(ChronoUnit.SECONDS)
+            .format(DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+    }
+
+    @NonNull
+    private Map<String, Object> buildLatestPostsModel(String categorySlug) {
+        Pageable pageable =
+            PageRequest.of(0, optionService.getRssPageSize(), Sort.by(DESC, "createTime"));
+        Map<String, Object> model = new HashMap<>();
+        List<PostDetailVO> posts;
+        if (categorySlug == null) {
+            posts = buildPosts(pageable);
+        } else {
+            Category category = categoryService.getBySlugOfNonNull(categorySlug);
+            CategoryDTO categoryDTO = categoryService.convertTo(category);
+            posts = buildCategoryPosts(pageable, categoryDTO);
+            model.put("category", categoryDTO);
+        }
+        model.put("posts", posts);
+        model.put("lastModified", getLastModifiedTime(posts));
+        return model;
+    }
+
+    /**
+     * Build posts.
+     *
+     * @param pageable pageable
+     * @return list of post detail vo
+     */
+    private List<PostDetailVO> buildPosts(@NonNull Pageable pageable) {
+        Assert.notNull(pageable, "Pageable must not be null");
+
+        Page<Post> postPage = postService.pageBy(PostStatus.PUBLISHED, pageable);
+        return removeInvalidChars(postService.convertToDetailVo(postPage).getContent());
+    }
+
+    /**
+     * Build category posts.
+     *
+     * @param pageable pageable must not be null.
+     * @param category category
+     * @return list of post detail vo.
+     */
+    private List<PostDetailVO> buildCategoryPosts(@NonNull Pageable pageable,
+        @NonNull CategoryDTO category) {
+        Assert.notNull(pageable, "Pageable must not be null");
+        Assert.notNull(category, "Category slug must not be null");
+
+        Page<Post> postPage =
+            postCategoryService.pagePostBy(category.getId(), PostStatus.PUBLISHED, pageable);
+        return removeInvalidChars(postService.convertToDetailVo(postPage).getContent());
+    }
+
+    private List<PostDetailVO> removeInvalidChars(List<PostDetailVO> posts) {
+        posts.forEach(postDetailVO -> {
+            postDetailVO.setFormatContent(
+                RegExUtils.replaceAll(postDetailVO.getFormatContent(), XML_INVALID_CHAR, ""));
+            postDetailVO
+                .setSummary(RegExUtils.replaceAll(postDetailVO.getSummary(), XML_INVALID_CHAR, ""));
+        });
+        return posts;
+    }
+
+    private Timestamp getLastModifiedTime(List<PostDetailVO> posts) {
+        OptionalLong lastModifiedTimestamp =
+            posts.stream().mapToLong(post -> post.getEditTime().getTime()).max();
+        if (lastModifiedTimestamp.isEmpty()) {
+            return new Timestamp(System.currentTimeMillis());
+        }
+        return new Timestamp(lastModifiedTimestamp.getAsLong());
+    }
+}
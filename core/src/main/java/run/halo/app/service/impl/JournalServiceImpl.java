@@ -31,6 +31,7 @@ import run.halo.app.repository.JournalRepository;
 import run.halo.app.service.JournalCommentService;
 import run.halo.app.service.JournalService;
 import run.halo.app.service.base.AbstractCrudService;
+import run.halo.app.service.support.LikeBuffer;
 import run.halo.app.utils.MarkdownUtils;
 import run.halo.app.utils.ServiceUtils;
 
@@ -50,6 +51,8 @@ public class JournalServiceImpl extends AbstractCrudService<Journal, Integer>
 
     private final JournalCommentService journalCommentService;
 
+    private final LikeBuffer likeBuffer = new LikeBuffer();
+
     public JournalServiceImpl(JournalRepository journalRepository,
         JournalCommentService journalCommentService) {
         super(journalRepository);
@@ -152,9 +155,9 @@ public class JournalServiceImpl extends AbstractCrudService<Journal, Integer>
     }
 
     @Override
-    @Transactional
     public void increaseLike(Integer id) {
-        increaseLike(1L, id);
+        mustExistById(id);
+        likeBuffer.add(id);
     }
 
 
@@ -173,6 +176,31 @@ public class JournalServiceImpl extends AbstractCrudService<Journal, Integer>
         }
     }
 
+    @Override
+    @Transactional
+    public List<Integer> increaseLikes(Map<Integer, Long> likes) {
+        Assert.notNull(likes, "Likes must not be null");
+        likes.forEach((id, like) -> Assert.isTrue(like != null && like > 0,
+            "Likes to increase must not be less than 1"));
+
+        if (likes.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        int[] affectedRows = journalRepository.updateLikesInBatch(likes);
+
+        List<Integer> notFoundIds = ServiceUtils.fetchNotUpdatedIds(likes, affectedRows);
+        if (!notFoundIds.isEmpty()) {
+            log.error("Journals with ids: {} may not be found", notFoundIds);
+        }
+        return notFoundIds;
+    }
+
+    @Override
+    public void flushLikes() {
+        likeBuffer.flush(this::increaseLikes);
+    }
+
     /**
      * Build specification by journal query.
      *
@@ -177,8 +177,8 @@ public class OptionServiceImpl extends AbstractCrudService<Option, Integer>
     @Override
     @SuppressWarnings("unchecked")
     public Map<String, Object> listOptions() {
-        // Get options from cache
-        return cacheStore.getAny(OPTIONS_KEY, Map.class).orElseGet(() -> {
+        // Get options from cache, concurrent misses share a single load
+        return cacheStore.getAnyOrLoad(OPTIONS_KEY, Map.class, () -> {
             List<Option> options = listAll();
 
             Set<String> keys = ServiceUtils.fetchProperty(options, Option::getKey);
@@ -213,11 +213,8 @@ public class OptionServiceImpl extends AbstractCrudService<Option, Integer>
                         PropertyEnum.convertTo(propertyEnum.defaultValue(), propertyEnum));
                 });
 
-            // Cache the result
-            cacheStore.putAny(OPTIONS_KEY, result);
-
             return result;
-        });
+        }, 0, null);
     }
 
     @Override
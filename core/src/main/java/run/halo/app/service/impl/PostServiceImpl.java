@@ -7,6 +7,7 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -24,6 +25,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
@@ -33,9 +35,17 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
+import org.springframework.web.util.HtmlUtils;
+import run.halo.app.cache.PostArchiveIndex;
+import run.halo.app.cache.PostNavigationIndex;
+import run.halo.app.cache.PostNavigationIndex.PostNavigation;
+import run.halo.app.cache.PostPermalinkIndex;
+import run.halo.app.cache.PostPermalinkIndex.PostPermalink;
 import run.halo.app.event.logger.LogEvent;
 import run.halo.app.event.post.PostVisitEvent;
 import run.halo.app.exception.NotFoundException;
+import run.halo.app.model.dto.CategoryWithPostCountDTO;
+import run.halo.app.model.dto.TagWithPostCountDTO;
 import run.halo.app.model.dto.post.BasePostMinimalDTO;
 import run.halo.app.model.dto.post.BasePostSimpleDTO;
 import run.halo.app.model.entity.Category;
@@ -51,14 +61,19 @@ import run.halo.app.model.enums.PostPermalinkType;
 import run.halo.app.model.enums.PostStatus;
 import run.halo.app.model.params.PostParam;
 import run.halo.app.model.params.PostQuery;
+import run.halo.app.model.projection.PostLocationProjection;
 import run.halo.app.model.properties.PostProperties;
 import run.halo.app.model.vo.ArchiveMonthVO;
 import run.halo.app.model.vo.ArchiveYearVO;
 import run.halo.app.model.vo.PostDetailVO;
 import run.halo.app.model.vo.PostListVO;
 import run.halo.app.model.vo.PostMarkdownVO;
+import run.halo.app.model.vo.PostSearchResultVO;
+import run.halo.app.model.vo.PostSearchVO;
 import run.halo.app.repository.PostRepository;
 import run.halo.app.repository.base.BasePostRepository;
+import run.halo.app.search.SearchHighlighter;
+import run.halo.app.search.SearchIndex;
 import run.halo.app.service.AuthorizationService;
 import run.halo.app.service.CategoryService;
 import run.halo.app.service.OptionService;
@@ -67,11 +82,14 @@ import run.halo.app.service.PostCommentService;
 import run.halo.app.service.PostMetaService;
 import run.halo.app.service.PostService;
 import run.halo.app.service.PostTagService;
+import run.halo.app.service.SearchService;
 import run.halo.app.service.TagService;
+import run.halo.app.utils.BeanUtils;
 import run.halo.app.utils.DateUtils;
 import run.halo.app.utils.HaloUtils;
 import run.halo.app.utils.MarkdownUtils;
 import run.halo.app.utils.ServiceUtils;
+import run.halo.app.utils.ServletUtils;
 import run.halo.app.utils.SlugUtils;
 
 /**
@@ -89,6 +107,8 @@ import run.halo.app.utils.SlugUtils;
 @Service
 public class PostServiceImpl extends BasePostServiceImpl<Post> implements PostService {
 
+    private static final int ARCHIVE_INDEX_BATCH_SIZE = 500;
+
     private final PostRepository postRepository;
 
     private final TagService tagService;
@@ -109,6 +129,14 @@ public class PostServiceImpl extends BasePostServiceImpl<Post> implements PostSe
 
     private final AuthorizationService authorizationService;
 
+    private final PostPermalinkIndex postPermalinkIndex;
+
+    private final PostNavigationIndex postNavigationIndex;
+
+    private final PostArchiveIndex postArchiveIndex;
+
+    private final SearchService searchService;
+
     public PostServiceImpl(BasePostRepository<Post> basePostRepository,
         OptionService optionService,
         PostRepository postRepository,
@@ -119,8 +147,12 @@ public class PostServiceImpl extends BasePostServiceImpl<Post> implements PostSe
         PostCommentService postCommentService,
         ApplicationEventPublisher eventPublisher,
         PostMetaService postMetaService,
-        AuthorizationService authorizationService) {
-        super(basePostRepository, optionService);
+        AuthorizationService authorizationService,
+        PostPermalinkIndex postPermalinkIndex,
+        PostNavigationIndex postNavigationIndex,
+        PostArchiveIndex postArchiveIndex,
+        SearchService searchService) {
+        super(basePostRepository, optionService, eventPublisher);
         this.postRepository = postRepository;
         this.tagService = tagService;
         this.categoryService = categoryService;
@@ -131,6 +163,10 @@ public class PostServiceImpl extends BasePostServiceImpl<Post> implements PostSe
         this.postMetaService = postMetaService;
         this.optionService = optionService;
         this.authorizationService = authorizationService;
+        this.postPermalinkIndex = postPermalinkIndex;
+        this.postNavigationIndex = postNavigationIndex;
+        this.postArchiveIndex = postArchiveIndex;
+        this.searchService = searchService;
     }
 
     @Override
@@ -147,12 +183,87 @@ public class PostServiceImpl extends BasePostServiceImpl<Post> implements PostSe
         Assert.notNull(keyword, "keyword must not be null");
         Assert.notNull(pageable, "Page info must not be null");
 
-        PostQuery postQuery = new PostQuery();
-        postQuery.setKeyword(keyword);
-        postQuery.setStatus(PostStatus.PUBLISHED);
+        if (!searchService.isReady()) {
+            PostQuery postQuery = new PostQuery();
+            postQuery.setKeyword(keyword);
+            postQuery.setStatus(PostStatus.PUBLISHED);
 
-        // Build specification and find all
-        return postRepository.findAll(buildSpecByQuery(postQuery), pageable);
+            // Build specification and find all
+            return postRepository.findAll(buildSpecByQuery(postQuery), pageable);
+        }
+
+        // Keep the rank order of the search index
+        Page<Integer> postIdPage = searchService.search(keyword, Post.class, pageable);
+        Map<Integer, Post> postMap =
+            ServiceUtils.convertToMap(postRepository.findAllById(postIdPage.getContent()),
+                Post::getId);
+        List<Post> posts = postIdPage.getContent().stream()
+            .map(postMap::get)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
+        return new PageImpl<>(posts, pageable, postIdPage.getTotalElements());
+    }
+
+    @Override
+    public PostSearchResultVO search(String keyword, Integer categoryId, Integer tagId,
+        Pageable pageable) {
+        Assert.notNull(keyword, "Keyword must not be null");
+        Assert.notNull(pageable, "Page info must not be null");
+
+        PostSearchResultVO result = new PostSearchResultVO();
+
+        if (!searchService.isReady()) {
+            PostQuery postQuery = new PostQuery();
+            postQuery.setKeyword(keyword);
+            postQuery.setStatus(PostStatus.PUBLISHED);
+            postQuery.setCategoryId(categoryId);
+            postQuery.setTagId(tagId);
+
+            // Fall back to the summaries, without facets
+            Page<Post> postPage = postRepository.findAll(buildSpecByQuery(postQuery), pageable);
+            result.setPosts(convertToListVo(postPage).map(postListVO -> {
+                PostSearchVO postSearchVO = BeanUtils.transformFrom(postListVO, PostSearchVO.class);
+                postSearchVO.setSnippet(HtmlUtils.htmlEscape(
+                    StringUtils.defaultString(postListVO.getSummary())));
+                return postSearchVO;
+            }));
+            result.setCategories(Collections.emptyList());
+            result.setTags(Collections.emptyList());
+            return result;
+        }
+
+        SearchIndex.SearchResult searchResult =
+            searchService.search(keyword, Post.class, categoryId, tagId, pageable);
+
+        List<Integer> postIds = searchResult.getIds();
+        Map<Integer, Post> postMap =
+            ServiceUtils.convertToMap(postRepository.findAllById(postIds), Post::getId);
+        List<Post> posts = postIds.stream()
+            .map(postMap::get)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
+        Map<Integer, PostListVO> postListVoMap =
+            ServiceUtils.convertToMap(convertToListVo(posts), PostListVO::getId);
+
+        // Cut the snippets around the first matches recorded by the index
+        int snippetLength = getSummaryLength();
+        List<PostSearchVO> postSearchVos = searchResult.getHits().stream()
+            .filter(hit -> postListVoMap.containsKey(hit.getId()))
+            .map(hit -> {
+                PostSearchVO postSearchVO =
+                    BeanUtils.transformFrom(postListVoMap.get(hit.getId()), PostSearchVO.class);
+                String content =
+                    HaloUtils.cleanHtmlTag(postMap.get(hit.getId()).getFormatContent());
+                postSearchVO.setSnippet(
+                    SearchHighlighter.highlight(content, hit.getOffset(), keyword, snippetLength));
+                return postSearchVO;
+            })
+            .collect(Collectors.toList());
+
+        result.setPosts(new PageImpl<>(postSearchVos, pageable, searchResult.getTotal()));
+        result.setCategories(convertToCategoryFacets(searchResult.getCategoryCounts()));
+        result.setTags(convertToTagFacets(searchResult.getTagCounts()));
+        return result;
     }
 
     @Override
@@ -209,10 +320,7 @@ public class PostServiceImpl extends BasePostServiceImpl<Post> implements PostSe
         Assert.notNull(month, "Post create month must not be null");
         Assert.notNull(slug, "Post slug must not be null");
 
-        Optional<Post> postOptional = postRepository.findBy(year, month, slug);
-
-        return postOptional
-            .orElseThrow(() -> new NotFoundException("查询不到该文章的信息").setErrorData(slug));
+        return getByPermalink(year, month, null, slug, null);
     }
 
     @NonNull
@@ -221,10 +329,7 @@ public class PostServiceImpl extends BasePostServiceImpl<Post> implements PostSe
         Assert.notNull(year, "Post create year must not be null");
         Assert.notNull(slug, "Post slug must not be null");
 
-        Optional<Post> postOptional = postRepository.findBy(year, slug);
-
-        return postOptional
-            .orElseThrow(() -> new NotFoundException("查询不到该文章的信息").setErrorData(slug));
+        return getByPermalink(year, null, null, slug, null);
     }
 
     @Override
@@ -234,10 +339,7 @@ public class PostServiceImpl extends BasePostServiceImpl<Post> implements PostSe
         Assert.notNull(slug, "Post slug must not be null");
         Assert.notNull(status, "Post status must not be null");
 
-        Optional<Post> postOptional = postRepository.findBy(year, month, slug, status);
-
-        return postOptional
-            .orElseThrow(() -> new NotFoundException("查询不到该文章的信息").setErrorData(slug));
+        return getByPermalink(year, month, null, slug, status);
     }
 
     @Override
@@ -247,10 +349,7 @@ public class PostServiceImpl extends BasePostServiceImpl<Post> implements PostSe
         Assert.notNull(day, "Post create day must not be null");
         Assert.notNull(slug, "Post slug must not be null");
 
-        Optional<Post> postOptional = postRepository.findBy(year, month, day, slug);
-
-        return postOptional
-            .orElseThrow(() -> new NotFoundException("查询不到该文章的信息").setErrorData(slug));
+        return getByPermalink(year, month, day, slug, null);
     }
 
     @Override
@@ -261,12 +360,131 @@ public class PostServiceImpl extends BasePostServiceImpl<Post> implements PostSe
         Assert.notNull(slug, "Post slug must not be null");
         Assert.notNull(status, "Post status must not be null");
 
-        Optional<Post> postOptional = postRepository.findBy(year, month, day, slug, status);
+        return getByPermalink(year, month, day, slug, status);
+    }
+
+    /**
+     * Gets post by the parts of its permalink, resolved by the permalink index.
+     *
+     * @param year post create year, null to match any year
+     * @param month post create month, null to match any month
+     * @param day post create day, null to match any day
+     * @param slug post slug must not be null
+     * @param status post status, null to match any status
+     * @return post info
+     */
+    @NonNull
+    private Post getByPermalink(@Nullable Integer year, @Nullable Integer month,
+        @Nullable Integer day, @NonNull String slug, @Nullable PostStatus status) {
+        Optional<Post> postOptional;
+        PostPermalink permalink = postPermalinkIndex.get(slug);
+        if (permalink == null) {
+            // The post is not indexed yet, such as the imported posts
+            postOptional = postRepository.getBySlug(slug);
+            if (postOptional.isPresent()) {
+                Post post = postOptional.get();
+                permalink =
+                    postPermalinkIndex.put(post.getId(), post.getSlug(), post.getCreateTime());
+            }
+        } else {
+            // The slug may have been changed before the index is updated
+            postOptional = fetchById(permalink.getId())
+                .filter(post -> slug.equals(post.getSlug()));
+        }
+
+        if (permalink == null || !permalink.matches(year, month, day)) {
+            postOptional = Optional.empty();
+        }
 
         return postOptional
+            .filter(post -> status == null || status.equals(post.getStatus()))
             .orElseThrow(() -> new NotFoundException("查询不到该文章的信息").setErrorData(slug));
     }
 
+    @Override
+    public Optional<Post> getPrevPost(Post post) {
+        Assert.notNull(post, "Post must not be null");
+
+        PostNavigation navigation = getNavigation();
+        if (!navigation.contains(post.getId())) {
+            return super.getPrevPost(post);
+        }
+        return navigation.getPrevId(post.getId()).flatMap(this::fetchById);
+    }
+
+    @Override
+    public Optional<Post> getNextPost(Post post) {
+        Assert.notNull(post, "Post must not be null");
+
+        PostNavigation navigation = getNavigation();
+        if (!navigation.contains(post.getId())) {
+            return super.getNextPost(post);
+        }
+        return navigation.getNextId(post.getId()).flatMap(this::fetchById);
+    }
+
+    @Override
+    public Optional<BasePostSimpleDTO> getPrevPostSimple(Post post) {
+        Assert.notNull(post, "Post must not be null");
+
+        PostNavigation navigation = getNavigation();
+        if (!navigation.contains(post.getId())) {
+            return super.getPrevPost(post).map(this::convertToSimple);
+        }
+        return navigation.getPrevId(post.getId())
+            .flatMap(postId -> navigation.getSimple(postId,
+                id -> fetchById(id).map(this::convertToSimple).orElse(null)));
+    }
+
+    @Override
+    public Optional<BasePostSimpleDTO> getNextPostSimple(Post post) {
+        Assert.notNull(post, "Post must not be null");
+
+        PostNavigation navigation = getNavigation();
+        if (!navigation.contains(post.getId())) {
+            return super.getNextPost(post).map(this::convertToSimple);
+        }
+        return navigation.getNextId(post.getId())
+            .flatMap(postId -> navigation.getSimple(postId,
+                id -> fetchById(id).map(this::convertToSimple).orElse(null)));
+    }
+
+    @Override
+    public void invalidateNavigation() {
+        postNavigationIndex.invalidate();
+    }
+
+    /**
+     * Gets the navigation of the published posts in the default post order.
+     *
+     * @return post navigation
+     */
+    @NonNull
+    private PostNavigation getNavigation() {
+        String indexSort = optionService.getByPropertyOfNonNull(PostProperties.INDEX_SORT)
+            .toString();
+        return postNavigationIndex.get(indexSort,
+            () -> postRepository.findAllIdByStatus(PostStatus.PUBLISHED, getPostDefaultSort()));
+    }
+
+    @Override
+    public void indexPermalinks() {
+        postPermalinkIndex.rebuild(postRepository.findAllLocation());
+    }
+
+    @Override
+    public void indexPermalink(Integer postId) {
+        Assert.notNull(postId, "Post id must not be null");
+
+        Optional<Post> postOptional = fetchById(postId);
+        if (postOptional.isPresent()) {
+            Post post = postOptional.get();
+            postPermalinkIndex.put(post.getId(), post.getSlug(), post.getCreateTime());
+        } else {
+            postPermalinkIndex.remove(postId);
+        }
+    }
+
     @Override
     public List<Post> removeByIds(Collection<Integer> ids) {
         if (CollectionUtils.isEmpty(ids)) {
@@ -282,20 +500,86 @@ public class PostServiceImpl extends BasePostServiceImpl<Post> implements PostSe
 
     @Override
     public List<ArchiveYearVO> listYearArchives() {
-        // Get all posts
-        List<Post> posts = postRepository
-            .findAllByStatus(PostStatus.PUBLISHED, Sort.by(DESC, "createTime"));
-
-        return convertToYearArchives(posts);
+        return convertToYearArchives(listArchivedPosts());
     }
 
     @Override
     public List<ArchiveMonthVO> listMonthArchives() {
-        // Get all posts
-        List<Post> posts = postRepository
-            .findAllByStatus(PostStatus.PUBLISHED, Sort.by(DESC, "createTime"));
+        return convertToMonthArchives(listArchivedPosts());
+    }
+
+    /**
+     * Lists all published posts in archive order, from the archive index once it has been built.
+     *
+     * @return a list of published posts, without content if listed from the archive index
+     */
+    @NonNull
+    private List<Post> listArchivedPosts() {
+        if (postArchiveIndex.isBuilt()) {
+            return postArchiveIndex.list();
+        }
+        return postRepository.findAllByStatus(PostStatus.PUBLISHED, Sort.by(DESC, "createTime"));
+    }
+
+    @Override
+    public void indexArchives() {
+        postArchiveIndex.rebuild(afterId -> {
+            List<Integer> postIds = listPublishedIds(afterId, ARCHIVE_INDEX_BATCH_SIZE);
+            return postIds.isEmpty() ? Collections.emptyList() : listAllByIds(postIds);
+        }, this::getGeneratedSummary);
+    }
+
+    @Override
+    public void indexArchive(Integer postId) {
+        Assert.notNull(postId, "Post id must not be null");
+
+        Optional<Post> postOptional = fetchById(postId)
+            .filter(post -> PostStatus.PUBLISHED.equals(post.getStatus()));
+        if (postOptional.isPresent()) {
+            postArchiveIndex.put(postOptional.get(), getGeneratedSummary(postOptional.get()));
+        } else {
+            postArchiveIndex.remove(postId);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void clearGeneratedSummaries() {
+        super.clearGeneratedSummaries();
+        if (postArchiveIndex.isBuilt()) {
+            // The archive copies carry the summaries of the previous summary length
+            indexArchives();
+        }
+    }
+
+    @Override
+    @Transactional
+    public void increaseVisit(long visits, Integer postId) {
+        super.increaseVisit(visits, postId);
+        postArchiveIndex.increaseVisits(Collections.singletonMap(postId, visits));
+    }
 
-        return convertToMonthArchives(posts);
+    @Override
+    @Transactional
+    public List<Integer> increaseVisits(Map<Integer, Long> visits) {
+        List<Integer> notFoundIds = super.increaseVisits(visits);
+        postArchiveIndex.increaseVisits(visits);
+        return notFoundIds;
+    }
+
+    @Override
+    @Transactional
+    public void increaseLike(long likes, Integer postId) {
+        super.increaseLike(likes, postId);
+        postArchiveIndex.increaseLikes(Collections.singletonMap(postId, likes));
+    }
+
+    @Override
+    @Transactional
+    public List<Integer> increaseLikes(Map<Integer, Long> likes) {
+        List<Integer> notFoundIds = super.increaseLikes(likes);
+        postArchiveIndex.increaseLikes(likes);
+        return notFoundIds;
     }
 
     @Override
@@ -579,7 +863,7 @@ public class PostServiceImpl extends BasePostServiceImpl<Post> implements PostSe
         eventPublisher.publishEvent(new LogEvent(this, postId.toString(), LogType.POST_DELETED,
             deletedPost.getTitle()));
 
-        return deletedPost;
+        return publishUpdatedEvent(deletedPost);
     }
 
     @Override
@@ -613,7 +897,7 @@ public class PostServiceImpl extends BasePostServiceImpl<Post> implements PostSe
             PostListVO postListVO = new PostListVO().convertFrom(post);
 
             if (StringUtils.isBlank(postListVO.getSummary())) {
-                postListVO.setSummary(generateSummary(post.getFormatContent()));
+                postListVO.setSummary(getGeneratedSummary(post));
             }
 
             Optional.ofNullable(tagListMap.get(post.getId())).orElseGet(LinkedList::new);
@@ -677,7 +961,7 @@ public class PostServiceImpl extends BasePostServiceImpl<Post> implements PostSe
             PostListVO postListVO = new PostListVO().convertFrom(post);
 
             if (StringUtils.isBlank(postListVO.getSummary())) {
-                postListVO.setSummary(generateSummary(post.getFormatContent()));
+                postListVO.setSummary(getGeneratedSummary(post));
             }
 
             Optional.ofNullable(tagListMap.get(post.getId())).orElseGet(LinkedList::new);
@@ -741,7 +1025,7 @@ public class PostServiceImpl extends BasePostServiceImpl<Post> implements PostSe
 
         // Set summary
         if (StringUtils.isBlank(basePostSimpleDTO.getSummary())) {
-            basePostSimpleDTO.setSummary(generateSummary(post.getFormatContent()));
+            basePostSimpleDTO.setSummary(getGeneratedSummary(post));
         }
 
         basePostSimpleDTO.setFullPath(buildFullPath(post));
@@ -767,7 +1051,7 @@ public class PostServiceImpl extends BasePostServiceImpl<Post> implements PostSe
         PostDetailVO postDetailVO = new PostDetailVO().convertFrom(post);
 
         if (StringUtils.isBlank(postDetailVO.getSummary())) {
-            postDetailVO.setSummary(generateSummary(post.getFormatContent()));
+            postDetailVO.setSummary(getGeneratedSummary(post));
         }
 
         // Extract ids
@@ -794,6 +1078,49 @@ public class PostServiceImpl extends BasePostServiceImpl<Post> implements PostSe
         return postDetailVO;
     }
 
+    /**
+     * Converts the category counts of the search result to category facets, most frequent first.
+     *
+     * @param categoryCounts numbers of matching posts by category id must not be null
+     * @return a list of categories with the numbers of matching posts
+     */
+    @NonNull
+    private List<CategoryWithPostCountDTO> convertToCategoryFacets(
+        @NonNull Map<Integer, Integer> categoryCounts) {
+        // Encrypted categories are not listed
+        return categoryService.listAllByIds(categoryCounts.keySet()).stream()
+            .map(category -> {
+                CategoryWithPostCountDTO categoryWithPostCountDTO = BeanUtils
+                    .transformFrom(categoryService.convertTo(category),
+                        CategoryWithPostCountDTO.class);
+                categoryWithPostCountDTO
+                    .setPostCount(categoryCounts.get(category.getId()).longValue());
+                return categoryWithPostCountDTO;
+            })
+            .sorted(Comparator.comparing(CategoryWithPostCountDTO::getPostCount).reversed())
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Converts the tag counts of the search result to tag facets, most frequent first.
+     *
+     * @param tagCounts numbers of matching posts by tag id must not be null
+     * @return a list of tags with the numbers of matching posts
+     */
+    @NonNull
+    private List<TagWithPostCountDTO> convertToTagFacets(
+        @NonNull Map<Integer, Integer> tagCounts) {
+        return tagService.listAllByIds(tagCounts.keySet()).stream()
+            .map(tag -> {
+                TagWithPostCountDTO tagWithPostCountDTO =
+                    BeanUtils.transformFrom(tagService.convertTo(tag), TagWithPostCountDTO.class);
+                tagWithPostCountDTO.setPostCount(tagCounts.get(tag.getId()).longValue());
+                return tagWithPostCountDTO;
+            })
+            .sorted(Comparator.comparing(TagWithPostCountDTO::getPostCount).reversed())
+            .collect(Collectors.toList());
+    }
+
     /**
      * Build specification by post query.
      *
@@ -822,6 +1149,16 @@ public class PostServiceImpl extends BasePostServiceImpl<Post> implements PostSe
                 predicates.add(criteriaBuilder.exists(postSubquery));
             }
 
+            if (postQuery.getTagId() != null) {
+                Subquery<Post> postSubquery = query.subquery(Post.class);
+                Root<PostTag> postTagRoot = postSubquery.from(PostTag.class);
+                postSubquery.select(postTagRoot.get("postId"));
+                postSubquery.where(
+                    criteriaBuilder.equal(root.get("id"), postTagRoot.get("postId")),
+                    criteriaBuilder.equal(postTagRoot.get("tagId"), postQuery.getTagId()));
+                predicates.add(criteriaBuilder.exists(postSubquery));
+            }
+
             if (postQuery.getKeyword() != null) {
                 // Format like condition
                 String likeCondition = String
@@ -922,7 +1259,8 @@ public class PostServiceImpl extends BasePostServiceImpl<Post> implements PostSe
 
     @Override
     public void publishVisitEvent(Integer postId) {
-        eventPublisher.publishEvent(new PostVisitEvent(this, postId));
+        eventPublisher.publishEvent(
+            new PostVisitEvent(this, postId, ServletUtils.getRequestVisitorHash()));
     }
 
     @Override
@@ -990,6 +1328,15 @@ public class PostServiceImpl extends BasePostServiceImpl<Post> implements PostSe
         return postMarkdownVO;
     }
 
+    @Override
+    protected Post newPost(PostLocationProjection location) {
+        Post post = new Post();
+        post.setId(location.getId());
+        post.setSlug(location.getSlug());
+        post.setCreateTime(location.getCreateTime());
+        return post;
+    }
+
     private String buildFullPath(Post post) {
 
         PostPermalinkType permalinkType = optionService.getPostPermalinkType();
@@ -0,0 +1,316 @@
+package run.halo.app.service.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+import org.springframework.util.Assert;
+import run.halo.app.config.properties.HaloProperties;
+import run.halo.app.exception.ServiceException;
+import run.halo.app.model.entity.BasePost;
+import run.halo.app.model.entity.Sheet;
+import run.halo.app.model.enums.PostStatus;
+import run.halo.app.repository.PostCategoryRepository;
+import run.halo.app.repository.PostRepository;
+import run.halo.app.repository.PostTagRepository;
+import run.halo.app.repository.SheetRepository;
+import run.halo.app.repository.base.BasePostRepository;
+import run.halo.app.search.SearchDocument;
+import run.halo.app.search.SearchIndex;
+import run.halo.app.service.SearchService;
+import run.halo.app.utils.HaloUtils;
+
+/**
+ * SearchService implementation class.
+ *
+ * <p>The snapshot records the time it was saved at. Opening it indexes the posts published or
+ * updated since then and removes the posts which are not published anymore. While the index is
+ * being opened or rebuilt, the updated posts are recorded and indexed once it is ready.
+ *
+ * @author guqing
+ */
+@Slf4j
+@Service
+public class SearchServiceImpl implements SearchService {
+
+    private static final String SEARCH_FOLDER = "search";
+
+    private static final String INDEX_FILE = "index.dat";
+
+    private static final String INDEX_TEMP_FILE = "index.dat.tmp";
+
+    private static final int BATCH_SIZE = 100;
+
+    private final HaloProperties haloProperties;
+
+    private final PostRepository postRepository;
+
+    private final SheetRepository sheetRepository;
+
+    private final PostCategoryRepository postCategoryRepository;
+
+    private final PostTagRepository postTagRepository;
+
+    private final Map<Integer, Byte> pendingPosts = new HashMap<>();
+
+    private volatile SearchIndex searchIndex;
+
+    private boolean building;
+
+    private volatile boolean dirty;
+
+    public SearchServiceImpl(HaloProperties haloProperties, PostRepository postRepository,
+        SheetRepository sheetRepository, PostCategoryRepository postCategoryRepository,
+        PostTagRepository postTagRepository) {
+        this.haloProperties = haloProperties;
+        this.postRepository = postRepository;
+        this.sheetRepository = sheetRepository;
+        this.postCategoryRepository = postCategoryRepository;
+        this.postTagRepository = postTagRepository;
+    }
+
+    @Override
+    public boolean isReady() {
+        return searchIndex != null;
+    }
+
+    @Override
+    public Page<Integer> search(String keyword, Class<? extends BasePost> type,
+        Pageable pageable) {
+        SearchIndex.SearchResult result = search(keyword, type, null, null, pageable);
+        return new PageImpl<>(result.getIds(), pageable, result.getTotal());
+    }
+
+    @Override
+    public SearchIndex.SearchResult search(String keyword, Class<? extends BasePost> type,
+        Integer categoryId, Integer tagId, Pageable pageable) {
+        Assert.notNull(keyword, "Keyword must not be null");
+        Assert.notNull(type, "Post type must not be null");
+        Assert.notNull(pageable, "Page info must not be null");
+
+        SearchIndex current = searchIndex;
+        Assert.state(current != null, "Search index has not been opened");
+
+        return current.search(keyword, getType(type), categoryId, tagId,
+            (int) pageable.getOffset(), pageable.getPageSize());
+    }
+
+    @Override
+    public synchronized void open() {
+        Path indexPath = getIndexPath();
+        if (Files.exists(indexPath)) {
+            startBuilding();
+            try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(indexPath)))) {
+                Date savedAt = new Date(input.readLong());
+                SearchIndex loaded = SearchIndex.readFrom(input);
+                reconcile(loaded, savedAt);
+                finishBuilding(loaded);
+                log.info("Opened search index of [{}] posts and sheets saved at [{}]",
+                    loaded.getIds().size(), savedAt);
+                return;
+            } catch (IOException | RuntimeException e) {
+                log.warn("Failed to open search index [{}], building it again", indexPath, e);
+            }
+        }
+        rebuild();
+    }
+
+    @Override
+    public void index(BasePost post) {
+        Assert.notNull(post, "Post must not be null");
+        Assert.notNull(post.getId(), "Post id must not be null");
+
+        byte type = getType(post.getClass());
+        synchronized (pendingPosts) {
+            if (building) {
+                pendingPosts.put(post.getId(), type);
+                return;
+            }
+        }
+
+        SearchIndex current = searchIndex;
+        if (current != null) {
+            index(current, post.getId(), type);
+        }
+    }
+
+    @Override
+    public synchronized void rebuild() {
+        startBuilding();
+
+        SearchIndex built = new SearchIndex();
+        long start = System.currentTimeMillis();
+        try {
+            indexAll(built, postRepository, SearchDocument.POST);
+            indexAll(built, sheetRepository, SearchDocument.SHEET);
+        } catch (RuntimeException e) {
+            // Keep the previous index
+            finishBuilding(searchIndex);
+            throw e;
+        }
+        finishBuilding(built);
+
+        log.info("Built search index of [{}] posts and sheets in [{}] ms",
+            built.getIds().size(), System.currentTimeMillis() - start);
+        save();
+    }
+
+    @Override
+    @PreDestroy
+    public synchronized void save() {
+        SearchIndex current = searchIndex;
+        if (current == null || !dirty) {
+            return;
+        }
+        // Changes made while saving mark the index dirty again
+        dirty = false;
+
+        Path indexPath = getIndexPath();
+        Path tempPath = indexPath.resolveSibling(INDEX_TEMP_FILE);
+        try {
+            Files.createDirectories(indexPath.getParent());
+            try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+                output.writeLong(System.currentTimeMillis());
+                current.writeTo(output);
+            }
+            Files.move(tempPath, indexPath, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            dirty = true;
+            throw new ServiceException("Failed to save search index to " + indexPath, e);
+        }
+        log.debug("Saved search index to [{}]", indexPath);
+    }
+
+    private void startBuilding() {
+        synchronized (pendingPosts) {
+            building = true;
+        }
+    }
+
+    private void finishBuilding(SearchIndex built) {
+        Map<Integer, Byte> pending;
+        synchronized (pendingPosts) {
+            searchIndex = built;
+            building = false;
+            pending = new HashMap<>(pendingPosts);
+            pendingPosts.clear();
+        }
+        if (built != null) {
+            dirty = true;
+            pending.forEach((postId, type) -> index(built, postId, type));
+        }
+    }
+
+    private void reconcile(SearchIndex index, Date savedAt) {
+        Map<Integer, Byte> publishedIds = new HashMap<>();
+        postRepository.findAllIdByStatus(PostStatus.PUBLISHED, Sort.unsorted())
+            .forEach(postId -> publishedIds.put(postId, SearchDocument.POST));
+        sheetRepository.findAllIdByStatus(PostStatus.PUBLISHED, Sort.unsorted())
+            .forEach(sheetId -> publishedIds.put(sheetId, SearchDocument.SHEET));
+
+        Set<Integer> indexedIds = new HashSet<>();
+        index.getIds().forEach(postId -> {
+            if (publishedIds.containsKey(postId)) {
+                indexedIds.add(postId);
+            } else {
+                index.remove(postId);
+            }
+        });
+
+        Set<Integer> updatedIds = new HashSet<>();
+        updatedIds.addAll(
+            postRepository.findAllIdByStatusAndUpdateTimeAfter(PostStatus.PUBLISHED, savedAt));
+        updatedIds.addAll(
+            sheetRepository.findAllIdByStatusAndUpdateTimeAfter(PostStatus.PUBLISHED, savedAt));
+
+        publishedIds.forEach((postId, type) -> {
+            if (!indexedIds.contains(postId) || updatedIds.contains(postId)) {
+                index(index, postId, type);
+            }
+        });
+    }
+
+    private void indexAll(SearchIndex index, BasePostRepository<? extends BasePost> repository,
+        byte type) {
+        List<Integer> ids = repository.findAllIdByStatusAndIdGreaterThan(PostStatus.PUBLISHED, 0,
+            PageRequest.of(0, BATCH_SIZE));
+        while (!ids.isEmpty()) {
+            Map<Integer, Set<Integer>> categoryIds = new HashMap<>();
+            Map<Integer, Set<Integer>> tagIds = new HashMap<>();
+            if (type == SearchDocument.POST) {
+                postCategoryRepository.findAllByPostIdIn(ids).forEach(postCategory -> categoryIds
+                    .computeIfAbsent(postCategory.getPostId(), postId -> new HashSet<>())
+                    .add(postCategory.getCategoryId()));
+                postTagRepository.findAllByPostIdIn(ids).forEach(postTag -> tagIds
+                    .computeIfAbsent(postTag.getPostId(), postId -> new HashSet<>())
+                    .add(postTag.getTagId()));
+            }
+            repository.findAllById(ids).forEach(post -> index.add(toDocument(post, type,
+                categoryIds.get(post.getId()), tagIds.get(post.getId()))));
+            ids = repository.findAllIdByStatusAndIdGreaterThan(PostStatus.PUBLISHED,
+                ids.get(ids.size() - 1), PageRequest.of(0, BATCH_SIZE));
+        }
+    }
+
+    private void index(SearchIndex index, Integer postId, byte type) {
+        BasePostRepository<? extends BasePost> repository =
+            type == SearchDocument.SHEET ? sheetRepository : postRepository;
+        BasePost post = repository.findById(postId)
+            .filter(found -> PostStatus.PUBLISHED.equals(found.getStatus()))
+            .orElse(null);
+        if (post == null) {
+            index.remove(postId);
+        } else if (type == SearchDocument.POST) {
+            index.add(toDocument(post, type,
+                postCategoryRepository.findAllCategoryIdsByPostId(postId),
+                postTagRepository.findAllTagIdsByPostId(postId)));
+        } else {
+            index.add(toDocument(post, type, null, null));
+        }
+        dirty = true;
+    }
+
+    @NonNull
+    private SearchDocument toDocument(BasePost post, byte type,
+        @Nullable Collection<Integer> categoryIds, @Nullable Collection<Integer> tagIds) {
+        return new SearchDocument(post.getId(), type, post.getTitle(),
+            HaloUtils.cleanHtmlTag(post.getFormatContent()),
+            categoryIds == null ? Collections.emptySet() : categoryIds,
+            tagIds == null ? Collections.emptySet() : tagIds);
+    }
+
+    private byte getType(Class<? extends BasePost> type) {
+        return Sheet.class.isAssignableFrom(type) ? SearchDocument.SHEET : SearchDocument.POST;
+    }
+
+    @NonNull
+    private Path getIndexPath() {
+        return Paths.get(haloProperties.getWorkDir(), SEARCH_FOLDER, INDEX_FILE);
+    }
+}
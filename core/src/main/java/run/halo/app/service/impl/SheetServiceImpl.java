@@ -31,6 +31,7 @@ import run.halo.app.model.enums.CommentStatus;
 import run.halo.app.model.enums.LogType;
 import run.halo.app.model.enums.PostStatus;
 import run.halo.app.model.enums.SheetPermalinkType;
+import run.halo.app.model.projection.PostLocationProjection;
 import run.halo.app.model.vo.SheetDetailVO;
 import run.halo.app.model.vo.SheetListVO;
 import run.halo.app.repository.SheetRepository;
@@ -41,6 +42,7 @@ import run.halo.app.service.SheetService;
 import run.halo.app.service.ThemeService;
 import run.halo.app.utils.MarkdownUtils;
 import run.halo.app.utils.ServiceUtils;
+import run.halo.app.utils.ServletUtils;
 
 /**
  * Sheet service implementation.
@@ -72,7 +74,7 @@ public class SheetServiceImpl extends BasePostServiceImpl<Sheet> implements Shee
         SheetMetaService sheetMetaService,
         ThemeService themeService,
         OptionService optionService) {
-        super(sheetRepository, optionService);
+        super(sheetRepository, optionService, eventPublisher);
         this.sheetRepository = sheetRepository;
         this.eventPublisher = eventPublisher;
         this.sheetCommentService = sheetCommentService;
@@ -264,7 +266,7 @@ public class SheetServiceImpl extends BasePostServiceImpl<Sheet> implements Shee
         eventPublisher.publishEvent(
             new LogEvent(this, id.toString(), LogType.SHEET_DELETED, sheet.getTitle()));
 
-        return sheet;
+        return publishUpdatedEvent(sheet);
     }
 
     @Override
@@ -292,7 +294,8 @@ public class SheetServiceImpl extends BasePostServiceImpl<Sheet> implements Shee
 
     @Override
     public void publishVisitEvent(Integer sheetId) {
-        eventPublisher.publishEvent(new SheetVisitEvent(this, sheetId));
+        eventPublisher.publishEvent(
+            new SheetVisitEvent(this, sheetId, ServletUtils.getRequestVisitorHash()));
     }
 
     @Override
@@ -338,7 +341,7 @@ public class SheetServiceImpl extends BasePostServiceImpl<Sheet> implements Shee
         sheetDetailVO.setMetas(sheetMetaService.convertTo(metas));
 
         if (StringUtils.isBlank(sheetDetailVO.getSummary())) {
-            sheetDetailVO.setSummary(generateSummary(sheet.getFormatContent()));
+            sheetDetailVO.setSummary(getGeneratedSummary(sheet));
         }
 
         sheetDetailVO.setCommentCount(sheetCommentService.countByPostId(sheet.getId()));
@@ -368,6 +371,15 @@ public class SheetServiceImpl extends BasePostServiceImpl<Sheet> implements Shee
         }
     }
 
+    @Override
+    protected Sheet newPost(PostLocationProjection location) {
+        Sheet sheet = new Sheet();
+        sheet.setId(location.getId());
+        sheet.setSlug(location.getSlug());
+        sheet.setCreateTime(location.getCreateTime());
+        return sheet;
+    }
+
     private String buildFullPath(Sheet sheet) {
         StringBuilder fullPath = new StringBuilder();
 
@@ -20,6 +20,7 @@ import run.halo.app.service.SheetService;
 import run.halo.app.service.StatisticService;
 import run.halo.app.service.TagService;
 import run.halo.app.service.UserService;
+import run.halo.app.service.VisitorSketchService;
 
 /**
  * Statistic service implementation.
@@ -52,6 +53,8 @@ public class StatisticServiceImpl implements StatisticService {
 
     private final UserService userService;
 
+    private final VisitorSketchService visitorSketchService;
+
     public StatisticServiceImpl(PostService postService,
         SheetService sheetService,
         JournalService journalService,
@@ -62,7 +65,8 @@ public class StatisticServiceImpl implements StatisticService {
         LinkService linkService,
         CategoryService categoryService,
         TagService tagService,
-        UserService userService) {
+        UserService userService,
+        VisitorSketchService visitorSketchService) {
         this.postService = postService;
         this.sheetService = sheetService;
         this.journalService = journalService;
@@ -74,6 +78,7 @@ public class StatisticServiceImpl implements StatisticService {
         this.categoryService = categoryService;
         this.tagService = tagService;
         this.userService = userService;
+        this.visitorSketchService = visitorSketchService;
     }
 
     @Override
@@ -99,6 +104,7 @@ public class StatisticServiceImpl implements StatisticService {
         statisticDto.setLinkCount(linkService.count());
         statisticDto.setVisitCount(postService.countVisit() + sheetService.countVisit());
         statisticDto.setLikeCount(postService.countLike() + sheetService.countLike());
+        statisticDto.setVisitorCount(visitorSketchService.countVisitors());
         return statisticDto;
     }
 
@@ -1,6 +1,12 @@
 package run.halo.app.service.impl;
 
+import freemarker.template.Template;
+import freemarker.template.TemplateException;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -10,9 +16,13 @@ import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Service;
@@ -20,6 +30,7 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.Assert;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.view.freemarker.FreeMarkerConfigurer;
 import run.halo.app.config.properties.HaloProperties;
 import run.halo.app.event.theme.ThemeActivatedEvent;
 import run.halo.app.event.theme.ThemeUpdatedEvent;
@@ -59,6 +70,10 @@ import run.halo.app.utils.FileUtils;
 @Service
 public class ThemeServiceImpl implements ThemeService {
 
+    private static final int TEMPLATE_BUFFER_SIZE = 8192;
+
+    private static final String GZIP_ENCODING = "gzip";
+
     /**
      * Theme work directory.
      */
@@ -76,12 +91,15 @@ public class ThemeServiceImpl implements ThemeService {
 
     private final ThemeRepository themeRepository;
 
+    private final FreeMarkerConfigurer freeMarker;
+
     public ThemeServiceImpl(HaloProperties haloProperties,
         ThemeConfigResolver themeConfigResolver,
         RestTemplate restTemplate,
         ApplicationEventPublisher eventPublisher,
         ThemeSettingRepository themeSettingRepository,
-        ThemeRepository themeRepository) {
+        ThemeRepository themeRepository,
+        FreeMarkerConfigurer freeMarker) {
         this.themeConfigResolver = themeConfigResolver;
         this.restTemplate = restTemplate;
 
@@ -89,6 +107,7 @@ public class ThemeServiceImpl implements ThemeService {
         this.eventPublisher = eventPublisher;
         this.themeSettingRepository = themeSettingRepository;
         this.themeRepository = themeRepository;
+        this.freeMarker = freeMarker;
 
         this.fetcherComposite = new ThemeFetcherComposite();
         this.fetcherComposite.addFetcher(new ZipThemeFetcher());
@@ -307,6 +326,44 @@ public class ThemeServiceImpl implements ThemeService {
         return "themes/" + folderName + "/" + pageName + ".ftl";
     }
 
+    @Override
+    public void processTemplate(String templateName, Object model, OutputStream outputStream)
+        throws IOException {
+        Assert.hasText(templateName, "Template name must not be blank");
+        Assert.notNull(model, "Template model must not be null");
+        Assert.notNull(outputStream, "Output stream must not be null");
+
+        Template template = freeMarker.getConfiguration().getTemplate(templateName);
+        Writer writer = new BufferedWriter(
+            new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), TEMPLATE_BUFFER_SIZE);
+        try {
+            template.process(model, writer);
+        } catch (TemplateException e) {
+            throw new ServiceException("Failed to process template: " + templateName, e);
+        }
+        writer.flush();
+    }
+
+    @Override
+    public void processTemplate(String templateName, Object model, HttpServletRequest request,
+        HttpServletResponse response, boolean gzip) throws IOException {
+        Assert.notNull(request, "Http servlet request must not be null");
+        Assert.notNull(response, "Http servlet response must not be null");
+
+        if (!gzip || !StringUtils.containsIgnoreCase(
+            request.getHeader(HttpHeaders.ACCEPT_ENCODING), GZIP_ENCODING)) {
+            processTemplate(templateName, model, response.getOutputStream());
+            return;
+        }
+
+        response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP_ENCODING);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        GZIPOutputStream gzipOutputStream =
+            new GZIPOutputStream(response.getOutputStream(), TEMPLATE_BUFFER_SIZE);
+        processTemplate(templateName, model, gzipOutputStream);
+        gzipOutputStream.finish();
+    }
+
     @Override
     @NonNull
     public String getActivatedThemeId() {
@@ -0,0 +1,86 @@
+package run.halo.app.service.impl;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.Assert;
+import run.halo.app.model.entity.VisitorSketch;
+import run.halo.app.repository.VisitorSketchRepository;
+import run.halo.app.service.VisitorSketchService;
+import run.halo.app.service.base.AbstractCrudService;
+import run.halo.app.utils.HyperLogLog;
+
+/**
+ * Visitor sketch service implementation.
+ *
+ * @author guqing
+ */
+@Slf4j
+@Service
+public class VisitorSketchServiceImpl extends AbstractCrudService<VisitorSketch, Integer>
+    implements VisitorSketchService {
+
+    private final VisitorSketchRepository visitorSketchRepository;
+
+    public VisitorSketchServiceImpl(VisitorSketchRepository visitorSketchRepository) {
+        super(visitorSketchRepository);
+        this.visitorSketchRepository = visitorSketchRepository;
+    }
+
+    @Override
+    @Transactional
+    public void mergeSketches(Map<Integer, HyperLogLog> sketches) {
+        Assert.notNull(sketches, "Sketches must not be null");
+
+        if (sketches.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, HyperLogLog> sketchesToMerge = new HashMap<>(sketches);
+        HyperLogLog siteSketch = new HyperLogLog();
+        sketches.values().forEach(siteSketch::merge);
+        sketchesToMerge.put(SITE_SKETCH_ID, siteSketch);
+
+        Set<Integer> postIds = sketchesToMerge.keySet();
+        Map<Integer, VisitorSketch> visitorSketches =
+            visitorSketchRepository.findAllById(postIds).stream()
+                .collect(Collectors.toMap(VisitorSketch::getPostId, Function.identity()));
+
+        List<VisitorSketch> mergedSketches = postIds.stream().map(postId -> {
+            VisitorSketch visitorSketch = visitorSketches.get(postId);
+            HyperLogLog sketch = sketchesToMerge.get(postId);
+            if (visitorSketch == null) {
+                visitorSketch = new VisitorSketch();
+                visitorSketch.setPostId(postId);
+            } else {
+                sketch = HyperLogLog.of(visitorSketch.getRegisters()).merge(sketch);
+            }
+            visitorSketch.setRegisters(sketch.toByteArray());
+            return visitorSketch;
+        }).collect(Collectors.toList());
+
+        visitorSketchRepository.saveAll(mergedSketches);
+
+        log.debug("Merged visitor sketches of [{}] posts", sketches.size());
+    }
+
+    @Override
+    public long countVisitors(Integer postId) {
+        Assert.notNull(postId, "Post id must not be null");
+
+        return visitorSketchRepository.findById(postId)
+            .map(visitorSketch -> HyperLogLog.of(visitorSketch.getRegisters()).cardinality())
+            .orElse(0L);
+    }
+
+    @Override
+    public long countVisitors() {
+        return countVisitors(SITE_SKETCH_ID);
+    }
+}
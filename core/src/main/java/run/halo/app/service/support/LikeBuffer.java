@@ -0,0 +1,79 @@
+package run.halo.app.service.support;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.NonNull;
+import org.springframework.util.Assert;
+
+/**
+ * Likes counted in memory, one counter per id, and increased in batches by flushes.
+ *
+ * <p>Likes which fail to be increased are added back and retried by the next flush, likes of
+ * ids not found are dropped.
+ *
+ * @author guqing
+ */
+@Slf4j
+public class LikeBuffer {
+
+    private final Map<Integer, LongAdder> likeCounters = new ConcurrentHashMap<>();
+
+    /**
+     * Counts a like.
+     *
+     * @param id id must not be null
+     */
+    public void add(@NonNull Integer id) {
+        Assert.notNull(id, "Id must not be null");
+
+        add(id, 1L);
+    }
+
+    /**
+     * Increases the counted likes in a batch.
+     *
+     * @param increaser increases likes keyed by id and returns the ids not found, must not be
+     * null
+     */
+    public synchronized void flush(
+        @NonNull Function<Map<Integer, Long>, List<Integer>> increaser) {
+        Assert.notNull(increaser, "Likes increaser must not be null");
+
+        // Counters are kept once created, so that no increment can hit a removed counter
+        Map<Integer, Long> likes = new LinkedHashMap<>();
+        likeCounters.forEach((id, likeCounter) -> {
+            long like = likeCounter.sumThenReset();
+            if (like > 0) {
+                likes.put(id, like);
+            }
+        });
+        if (likes.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<Integer> notFoundIds = increaser.apply(likes);
+            if (!notFoundIds.isEmpty()) {
+                log.warn("Dropped likes for ids: {}", notFoundIds);
+            }
+            log.debug("Increased likes of [{}] ids", likes.size());
+        } catch (RuntimeException e) {
+            // Retry in the next flush
+            likes.forEach(this::add);
+            log.error("Failed to increase likes of [{}] ids", likes.size(), e);
+        }
+    }
+
+    private void add(Integer id, long likes) {
+        LongAdder counter = likeCounters.get(id);
+        if (counter == null) {
+            counter = likeCounters.computeIfAbsent(id, key -> new LongAdder());
+        }
+        counter.add(likes);
+    }
+}
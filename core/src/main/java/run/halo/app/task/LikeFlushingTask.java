@@ -0,0 +1,47 @@
+package run.halo.app.task;
+
+import javax.annotation.PreDestroy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import run.halo.app.service.JournalService;
+import run.halo.app.service.PostService;
+import run.halo.app.service.SheetService;
+
+/**
+ * Flushes the likes of posts, sheets and journals counted in memory, so that a like never waits
+ * for a write transaction. The likes are flushed on shutdown too, a crash loses the likes of the
+ * last ten seconds.
+ *
+ * @author guqing
+ */
+@Component
+public class LikeFlushingTask {
+
+    private final PostService postService;
+
+    private final SheetService sheetService;
+
+    private final JournalService journalService;
+
+    public LikeFlushingTask(PostService postService, SheetService sheetService,
+        JournalService journalService) {
+        this.postService = postService;
+        this.sheetService = sheetService;
+        this.journalService = journalService;
+    }
+
+    /**
+     * Flush the likes every ten seconds.
+     */
+    @Scheduled(initialDelay = 10000, fixedDelay = 10000)
+    public void run() {
+        postService.flushLikes();
+        sheetService.flushLikes();
+        journalService.flushLikes();
+    }
+
+    @PreDestroy
+    public void preDestroy() {
+        run();
+    }
+}
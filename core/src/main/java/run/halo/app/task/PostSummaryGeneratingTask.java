@@ -0,0 +1,119 @@
+package run.halo.app.task;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import run.halo.app.config.properties.HaloProperties;
+import run.halo.app.model.properties.PostProperties;
+import run.halo.app.service.OptionService;
+import run.halo.app.service.PostService;
+import run.halo.app.service.SheetService;
+import run.halo.app.service.base.BasePostService;
+
+/**
+ * Generates the summaries and word counts of the posts and sheets saved without them, and
+ * generates all of them again once the summary length has been changed.
+ *
+ * <p>The summary length the summaries have been generated with is saved under the work
+ * directory, so that a change is also detected across restarts.
+ *
+ * @author guqing
+ */
+@Slf4j
+@Component
+public class PostSummaryGeneratingTask {
+
+    private static final int BATCH_SIZE = 100;
+
+    private static final String SUMMARY_LENGTH_FILE = "summary-length";
+
+    private final HaloProperties haloProperties;
+
+    private final OptionService optionService;
+
+    private final PostService postService;
+
+    private final SheetService sheetService;
+
+    private Integer summaryLength;
+
+    private boolean summaryLengthLoaded;
+
+    public PostSummaryGeneratingTask(HaloProperties haloProperties, OptionService optionService,
+        PostService postService, SheetService sheetService) {
+        this.haloProperties = haloProperties;
+        this.optionService = optionService;
+        this.postService = postService;
+        this.sheetService = sheetService;
+    }
+
+    /**
+     * Generate missing summaries every minute.
+     */
+    @Scheduled(initialDelay = 30000, fixedDelay = 60000)
+    public synchronized void run() {
+        Integer currentSummaryLength = optionService
+            .getByPropertyOrDefault(PostProperties.SUMMARY_LENGTH, Integer.class, 150);
+        if (!summaryLengthLoaded) {
+            summaryLength = loadSummaryLength();
+            summaryLengthLoaded = true;
+        }
+        if (summaryLength != null && !summaryLength.equals(currentSummaryLength)) {
+            log.info("Summary length has been changed from {} to {}, clearing generated summaries",
+                summaryLength, currentSummaryLength);
+            postService.clearGeneratedSummaries();
+            sheetService.clearGeneratedSummaries();
+        }
+        if (!currentSummaryLength.equals(summaryLength)) {
+            saveSummaryLength(currentSummaryLength);
+            summaryLength = currentSummaryLength;
+        }
+
+        int count = generate(postService) + generate(sheetService);
+        if (count > 0) {
+            log.info("Summaries of {} posts and sheets have been generated", count);
+        }
+    }
+
+    private Integer loadSummaryLength() {
+        Path path = getSummaryLengthPath();
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(Files.readString(path, StandardCharsets.UTF_8).trim());
+        } catch (IOException | NumberFormatException e) {
+            log.warn("Failed to load summary length from [{}]", path, e);
+            return null;
+        }
+    }
+
+    private void saveSummaryLength(Integer summaryLength) {
+        Path path = getSummaryLengthPath();
+        try {
+            Files.createDirectories(path.getParent());
+            Files.writeString(path, summaryLength.toString(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            log.warn("Failed to save summary length to [{}]", path, e);
+        }
+    }
+
+    private Path getSummaryLengthPath() {
+        return Paths.get(haloProperties.getWorkDir(), SUMMARY_LENGTH_FILE);
+    }
+
+    private int generate(BasePostService<?> basePostService) {
+        int total = 0;
+        int count;
+        do {
+            count = basePostService.generateMissingSummaries(BATCH_SIZE);
+            total += count;
+        } while (count == BATCH_SIZE);
+        return total;
+    }
+}
@@ -0,0 +1,29 @@
+package run.halo.app.task;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import run.halo.app.service.SearchService;
+
+/**
+ * Saves the snapshot of the search index once it has been changed, so that few posts are
+ * indexed again after a crash.
+ *
+ * @author guqing
+ */
+@Component
+public class SearchIndexSavingTask {
+
+    private final SearchService searchService;
+
+    public SearchIndexSavingTask(SearchService searchService) {
+        this.searchService = searchService;
+    }
+
+    /**
+     * Save the search index every five minutes.
+     */
+    @Scheduled(initialDelay = 300000, fixedDelay = 300000)
+    public void run() {
+        searchService.save();
+    }
+}
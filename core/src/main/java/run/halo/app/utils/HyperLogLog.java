@@ -0,0 +1,138 @@
+package run.halo.app.utils;
+
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.springframework.lang.NonNull;
+import org.springframework.util.Assert;
+
+/**
+ * HyperLogLog sketch estimating the number of distinct hashes offered to it.
+ *
+ * <p>The sketch has 2^12 one byte registers, so it takes 4 KB whatever the cardinality is, and
+ * the standard error of the estimation is about 1.6%. Merging sketches is idempotent and
+ * commutative. A sketch is not thread safe.
+ *
+ * @author guqing
+ */
+public class HyperLogLog {
+
+    /**
+     * Number of the index bits of a hash.
+     */
+    public static final int PRECISION = 12;
+
+    /**
+     * Number of the registers, which is also the size of the serialized sketch.
+     */
+    public static final int REGISTER_COUNT = 1 << PRECISION;
+
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTER_COUNT);
+
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this(new byte[REGISTER_COUNT]);
+    }
+
+    private HyperLogLog(byte[] registers) {
+        this.registers = registers;
+    }
+
+    /**
+     * Restores a sketch from its registers.
+     *
+     * @param registers registers must not be null
+     * @return a sketch backed by a copy of the registers
+     */
+    @NonNull
+    public static HyperLogLog of(@NonNull byte[] registers) {
+        Assert.notNull(registers, "Registers must not be null");
+        Assert.isTrue(registers.length == REGISTER_COUNT,
+            "Registers size must be " + REGISTER_COUNT);
+
+        return new HyperLogLog(Arrays.copyOf(registers, REGISTER_COUNT));
+    }
+
+    /**
+     * Hashes the given values into a 64 bits hash.
+     *
+     * @param values values must not be null, null elements are hashed as empty values
+     * @return 64 bits hash
+     */
+    public static long hash(@NonNull String... values) {
+        Assert.notNull(values, "Values must not be null");
+
+        return Hashing.murmur3_128().hashString(String.join("\n", Arrays.stream(values)
+            .map(value -> value == null ? "" : value)
+            .toArray(String[]::new)), StandardCharsets.UTF_8).asLong();
+    }
+
+    /**
+     * Offers a hash.
+     *
+     * @param hash 64 bits hash
+     * @return true if the sketch has been changed
+     */
+    public boolean offer(long hash) {
+        int index = (int) (hash >>> (Long.SIZE - PRECISION));
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << PRECISION)
+            | (1L << (PRECISION - 1))) + 1);
+        if (registers[index] >= rank) {
+            return false;
+        }
+        registers[index] = rank;
+        return true;
+    }
+
+    /**
+     * Merges another sketch into this one.
+     *
+     * @param other sketch must not be null
+     * @return this sketch
+     */
+    @NonNull
+    public HyperLogLog merge(@NonNull HyperLogLog other) {
+        Assert.notNull(other, "Sketch to merge must not be null");
+
+        for (int i = 0; i < REGISTER_COUNT; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Estimates the number of distinct hashes offered.
+     *
+     * @return estimated cardinality
+     */
+    public long cardinality() {
+        double sum = 0;
+        int zeroRegisters = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeroRegisters++;
+            }
+        }
+
+        double estimate = ALPHA * REGISTER_COUNT * REGISTER_COUNT / sum;
+        if (estimate <= 2.5 * REGISTER_COUNT && zeroRegisters > 0) {
+            // Linear counting for small cardinalities
+            estimate = REGISTER_COUNT * Math.log((double) REGISTER_COUNT / zeroRegisters);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Gets a copy of the registers.
+     *
+     * @return registers
+     */
+    @NonNull
+    public byte[] toByteArray() {
+        return Arrays.copyOf(registers, REGISTER_COUNT);
+    }
+}
@@ -166,6 +166,31 @@ public class ServiceUtils {
         return PageRequest.of(0, top, Sort.by(Sort.Direction.DESC, sortProperty));
     }
 
+    /**
+     * Collects ids whose batched updates affected no rows.
+     *
+     * @param deltas deltas keyed by id must not be null
+     * @param affectedRows numbers of rows affected, in the iteration order of the deltas
+     * @param <I> id type
+     * @return a list of id not updated
+     */
+    @NonNull
+    public static <I> List<I> fetchNotUpdatedIds(@NonNull Map<I, Long> deltas,
+        @NonNull int[] affectedRows) {
+        Assert.notNull(deltas, "Deltas must not be null");
+        Assert.isTrue(deltas.size() == affectedRows.length,
+            "Affected rows must match the deltas");
+
+        List<I> notUpdatedIds = new LinkedList<>();
+        int index = 0;
+        for (I id : deltas.keySet()) {
+            if (affectedRows[index++] != 1) {
+                notUpdatedIds.add(id);
+            }
+        }
+        return notUpdatedIds;
+    }
+
     /**
      * Build empty page result.
      *
@@ -5,6 +5,7 @@ import java.util.Optional;
 import javax.servlet.http.HttpServletRequest;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.http.HttpHeaders;
 import org.springframework.lang.NonNull;
 import org.springframework.lang.Nullable;
 import org.springframework.web.context.request.RequestContextHolder;
@@ -45,6 +46,19 @@ public class ServletUtils {
         return getCurrentRequest().map(ServletUtils::getClientIP).orElse(null);
     }
 
+    /**
+     * Gets the hash of request ip and user agent, which identifies a visitor.
+     *
+     * @return visitor hash or null
+     */
+    @Nullable
+    public static Long getRequestVisitorHash() {
+        return getCurrentRequest()
+            .map(request -> HyperLogLog.hash(getClientIP(request),
+                getHeaderIgnoreCase(request, HttpHeaders.USER_AGENT)))
+            .orElse(null);
+    }
+
     /**
      * Gets request header.
      *